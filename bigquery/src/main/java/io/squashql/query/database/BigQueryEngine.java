@@ -14,6 +14,7 @@ import org.eclipse.collections.api.tuple.Pair;
 import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.List;
+import java.util.UUID;
 
 public class BigQueryEngine extends AQueryEngine<BigQueryDatastore> {
 
@@ -44,9 +45,19 @@ public class BigQueryEngine extends AQueryEngine<BigQueryDatastore> {
 
   @Override
   protected Table retrieveAggregates(DatabaseQuery query, String sql) {
+    return retrieveAggregates(query, sql, new CancellationToken(null));
+  }
+
+  /**
+   * The query is executed as a job with a known id to be able to cancel the job when the token is cancelled.
+   */
+  @Override
+  protected Table retrieveAggregates(DatabaseQuery query, String sql, CancellationToken token) {
     QueryJobConfiguration queryConfig = QueryJobConfiguration.newBuilder(sql).build();
-    try {
-      TableResult tableResult = this.datastore.getBigquery().query(queryConfig);
+    BigQuery bigquery = this.datastore.getBigquery();
+    JobId jobId = JobId.of(UUID.randomUUID().toString());
+    try (CancellationToken.Registration registration = token.onCancel(() -> bigquery.cancel(jobId))) {
+      TableResult tableResult = bigquery.query(queryConfig, jobId);
       Schema schema = tableResult.getSchema();
       Pair<List<Header>, List<List<Object>>> result = transformToColumnFormat(
               query.scope().columns(),
@@ -59,7 +70,8 @@ public class BigQueryEngine extends AQueryEngine<BigQueryDatastore> {
               result.getOne(),
               new HashSet<>(query.measures()),
               result.getTwo());
-    } catch (InterruptedException e) {
+    } catch (InterruptedException | BigQueryException e) {
+      token.throwIfCancelled(); // the error is likely due to the cancellation
       throw new RuntimeException(e);
     }
   }
@@ -16,13 +16,20 @@ import io.squashql.table.ColumnarTable;
 import io.squashql.table.RowTable;
 import io.squashql.table.Table;
 import org.eclipse.collections.api.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 public class ClickHouseQueryEngine extends AQueryEngine<ClickHouseDatastore> {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClickHouseQueryEngine.class);
+
   /**
    * <a href="https://clickhouse.com/docs/en/sql-reference/aggregate-functions/reference/">aggregate functions</a>
    * NOTE: there is more but only a subset is proposed here.
@@ -56,22 +63,69 @@ public class ClickHouseQueryEngine extends AQueryEngine<ClickHouseDatastore> {
                  .query(sql)
                  .execute()
                  .get()) {
-      Pair<List<Header>, List<List<Object>>> result = transformToColumnFormat(
-              query.scope().columns(),
-              query.measures(),
-              response.getColumns(),
-              (column, name) -> ClickHouseUtil.clickHouseTypeToClass(column),
-              response.records().iterator(),
-              (index, r) -> getValue(r, index, response.getColumns()));
-      return new ColumnarTable(
-              result.getOne(),
-              new HashSet<>(query.measures()),
-              result.getTwo());
+      return toTable(query, response);
     } catch (ExecutionException | InterruptedException e) {
       throw new RuntimeException(e);
     }
   }
 
+  /**
+   * The ClickHouse client executes the query asynchronously, no thread is blocked while waiting for the response. The
+   * response is then read in the given executor. When the token is cancelled, the query is killed on the server.
+   */
+  @Override
+  protected CompletableFuture<Table> retrieveAggregatesAsync(DatabaseQuery query, String sql, Executor executor, CancellationToken token) {
+    token.throwIfCancelled();
+    String queryId = UUID.randomUUID().toString();
+    ClickHouseClient client = ClickHouseClient.newInstance(ClickHouseProtocol.HTTP);
+    try {
+      CompletableFuture<ClickHouseResponse> response = client.read(this.nodes)
+              .format(ClickHouseFormat.RowBinaryWithNamesAndTypes)
+              .query(sql, queryId)
+              .execute();
+      CancellationToken.Registration registration = token.onCancel(() -> killQuery(queryId));
+      return response
+              .thenApplyAsync(r -> {
+                try (ClickHouseResponse res = r) {
+                  return toTable(query, res);
+                }
+              }, executor)
+              .whenComplete((t, e) -> {
+                registration.close();
+                client.close();
+              });
+    } catch (RuntimeException e) {
+      client.close();
+      throw e;
+    }
+  }
+
+  private void killQuery(String queryId) {
+    try (ClickHouseClient client = ClickHouseClient.newInstance(ClickHouseProtocol.HTTP);
+         ClickHouseResponse response = client.read(this.nodes)
+                 .query("KILL QUERY WHERE query_id = '" + queryId + "' ASYNC")
+                 .execute()
+                 .get()) {
+      LOGGER.info("Query " + queryId + " killed");
+    } catch (Exception e) {
+      LOGGER.warn("Cannot kill query " + queryId, e);
+    }
+  }
+
+  private static Table toTable(DatabaseQuery query, ClickHouseResponse response) {
+    Pair<List<Header>, List<List<Object>>> result = transformToColumnFormat(
+            query.scope().columns(),
+            query.measures(),
+            response.getColumns(),
+            (column, name) -> ClickHouseUtil.clickHouseTypeToClass(column),
+            response.records().iterator(),
+            (index, r) -> getValue(r, index, response.getColumns()));
+    return new ColumnarTable(
+            result.getOne(),
+            new HashSet<>(query.measures()),
+            result.getTwo());
+  }
+
   @Override
   public Table executeRawSql(String sql) {
     try (ClickHouseClient client = ClickHouseClient.newInstance(ClickHouseProtocol.HTTP);
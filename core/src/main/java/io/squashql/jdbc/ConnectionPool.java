@@ -0,0 +1,281 @@
+package io.squashql.jdbc;
+
+import io.squashql.query.QueryScheduler;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A pool of JDBC connections. {@link #getConnection()} borrows a connection, returned to the pool when it is closed.
+ * <ul>
+ *   <li>At most {@link #maxSize} connections are open at the same time. When they are all borrowed, callers wait up to
+ *   {@link #connectionTimeout} for one to be returned.</li>
+ *   <li>Connections idle for more than {@link #idleTimeout} are closed.</li>
+ *   <li>A connection that has not been used recently is validated with {@link Connection#isValid(int)} before being
+ *   handed out. Invalid connections are discarded.</li>
+ * </ul>
+ * The defaults can be set with the properties {@code io.squashql.jdbc.pool.max-size},
+ * {@code io.squashql.jdbc.pool.idle-timeout} and {@code io.squashql.jdbc.pool.connection-timeout} (in seconds).
+ */
+@Slf4j
+public class ConnectionPool implements AutoCloseable {
+
+  public static final int DEFAULT_MAX_SIZE = Integer.parseInt(System.getProperty("io.squashql.jdbc.pool.max-size",
+          Integer.toString(QueryScheduler.MAX_CONCURRENCY)));
+  public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofSeconds(Long.parseLong(System.getProperty("io.squashql.jdbc.pool.idle-timeout", "600")));
+  public static final Duration DEFAULT_CONNECTION_TIMEOUT = Duration.ofSeconds(Long.parseLong(System.getProperty("io.squashql.jdbc.pool.connection-timeout", "30")));
+  /**
+   * A connection used less than this ago is not validated again.
+   */
+  private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+  private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+  private static final ScheduledExecutorService HOUSEKEEPER = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "squashql-connection-pool");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public final int maxSize;
+  public final Duration idleTimeout;
+  public final Duration connectionTimeout;
+  private final ConnectionFactory factory;
+  private final ScheduledFuture<?> housekeeping;
+  // All the fields below are guarded by this. The most recently used connections are at the head of the deque.
+  private final Deque<IdleConnection> idle = new ArrayDeque<>();
+  private int size; // idle, borrowed and being opened
+  private boolean closed;
+
+  public ConnectionPool(ConnectionFactory factory) {
+    this(factory, DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT, DEFAULT_CONNECTION_TIMEOUT);
+  }
+
+  public ConnectionPool(ConnectionFactory factory, int maxSize, Duration idleTimeout, Duration connectionTimeout) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize must be positive but was " + maxSize);
+    }
+    this.factory = factory;
+    this.maxSize = maxSize;
+    this.idleTimeout = idleTimeout;
+    this.connectionTimeout = connectionTimeout;
+    // The task does not retain the pool so that a pool no longer used can be garbage collected.
+    WeakReference<ConnectionPool> ref = new WeakReference<>(this);
+    long period = Math.min(idleTimeout.toNanos(), TimeUnit.SECONDS.toNanos(30));
+    this.housekeeping = HOUSEKEEPER.scheduleWithFixedDelay(() -> {
+      ConnectionPool pool = ref.get();
+      if (pool == null) {
+        throw new CancellationException(); // stops the subsequent executions
+      }
+      closeQuietly(pool.evictIdle());
+    }, period, period, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Borrows a connection from the pool. It must be closed to be returned to the pool.
+   */
+  public Connection getConnection() throws SQLException {
+    long deadline = System.nanoTime() + this.connectionTimeout.toNanos();
+    while (true) {
+      IdleConnection candidate = null;
+      List<Connection> evicted;
+      synchronized (this) {
+        if (this.closed) {
+          throw new SQLException("Connection pool is closed");
+        }
+        evicted = evictIdle();
+        if (!this.idle.isEmpty()) {
+          candidate = this.idle.pollFirst();
+        } else if (this.size < this.maxSize) {
+          this.size++;
+        } else {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            throw new SQLTimeoutException("Connection is not available, request timed out after " + this.connectionTimeout.toMillis() + "ms");
+          }
+          try {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+          }
+          continue;
+        }
+      }
+      closeQuietly(evicted);
+
+      if (candidate == null) {
+        try {
+          return wrap(this.factory.create());
+        } catch (SQLException | RuntimeException e) {
+          discard(null);
+          throw e;
+        }
+      } else if (isValid(candidate)) {
+        return wrap(candidate.connection);
+      } else {
+        discard(candidate.connection);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of open connections, idle or borrowed.
+   */
+  public synchronized int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the number of connections waiting in the pool to be borrowed.
+   */
+  public synchronized int idle() {
+    return this.idle.size();
+  }
+
+  /**
+   * Closes the idle connections. The borrowed ones are closed when they are returned.
+   */
+  @Override
+  public void close() {
+    List<Connection> toClose = new ArrayList<>();
+    synchronized (this) {
+      this.closed = true;
+      this.idle.forEach(c -> toClose.add(c.connection));
+      this.size -= this.idle.size();
+      this.idle.clear();
+      notifyAll();
+    }
+    this.housekeeping.cancel(false);
+    closeQuietly(toClose);
+  }
+
+  private List<Connection> evictIdle() {
+    List<Connection> evicted = new ArrayList<>();
+    synchronized (this) {
+      long now = System.nanoTime();
+      while (!this.idle.isEmpty() && now - this.idle.peekLast().lastUsed > this.idleTimeout.toNanos()) {
+        evicted.add(this.idle.pollLast().connection);
+        this.size--;
+      }
+    }
+    return evicted;
+  }
+
+  private static boolean isValid(IdleConnection candidate) {
+    if (System.nanoTime() - candidate.lastUsed < VALIDATION_BYPASS_NANOS) {
+      return true;
+    }
+    try {
+      return candidate.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Called when a borrowed connection is closed. The connection is reset to its default state (auto-commit) before
+   * going back to the pool.
+   */
+  private void release(Connection connection) {
+    boolean reusable;
+    try {
+      reusable = !connection.isClosed();
+      if (reusable && !connection.getAutoCommit()) {
+        connection.rollback();
+        connection.setAutoCommit(true);
+      }
+    } catch (SQLException e) {
+      reusable = false;
+    }
+
+    synchronized (this) {
+      if (reusable && !this.closed) {
+        this.idle.addFirst(new IdleConnection(connection, System.nanoTime()));
+        notifyAll();
+        return;
+      }
+    }
+    discard(connection);
+  }
+
+  private void discard(Connection connection) {
+    synchronized (this) {
+      this.size--;
+      notifyAll();
+    }
+    if (connection != null) {
+      closeQuietly(List.of(connection));
+    }
+  }
+
+  private static void closeQuietly(List<Connection> connections) {
+    for (Connection connection : connections) {
+      try {
+        connection.close();
+      } catch (SQLException e) {
+        log.warn("Cannot close connection", e);
+      }
+    }
+  }
+
+  /**
+   * Wraps the connection so that closing it returns it to the pool. Once closed, the wrapper cannot be used anymore.
+   */
+  private Connection wrap(Connection connection) {
+    AtomicBoolean closed = new AtomicBoolean();
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "close" -> {
+          if (closed.compareAndSet(false, true)) {
+            release(connection);
+          }
+          return null;
+        }
+        case "isClosed" -> {
+          if (closed.get()) {
+            return true;
+          }
+        }
+        case "equals" -> {
+          return proxy == args[0];
+        }
+        case "hashCode" -> {
+          return System.identityHashCode(proxy);
+        }
+        case "toString" -> {
+          return "Pooled" + connection;
+        }
+        default -> {
+          if (closed.get()) {
+            throw new SQLException("Connection is closed");
+          }
+        }
+      }
+      try {
+        return method.invoke(connection, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    });
+  }
+
+  @FunctionalInterface
+  public interface ConnectionFactory {
+
+    Connection create() throws SQLException;
+  }
+
+  private record IdleConnection(Connection connection, long lastUsed) {
+  }
+}
@@ -6,5 +6,9 @@ import java.sql.Connection;
 
 public interface JdbcDatastore extends Datastore {
 
+  /**
+   * Returns a connection to the database, usually borrowed from a {@link ConnectionPool}. The caller must close it once
+   * done to give it back.
+   */
   Connection getConnection();
 }
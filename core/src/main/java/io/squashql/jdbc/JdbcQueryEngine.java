@@ -2,10 +2,11 @@ package io.squashql.jdbc;
 
 import io.squashql.query.Header;
 import io.squashql.query.database.AQueryEngine;
+import io.squashql.query.database.CancellationToken;
 import io.squashql.query.database.DatabaseQuery;
-import io.squashql.table.ColumnarTable;
-import io.squashql.table.RowTable;
-import io.squashql.table.Table;
+import io.squashql.query.database.SqlUtils;
+import io.squashql.table.*;
+import lombok.extern.slf4j.Slf4j;
 import org.eclipse.collections.api.tuple.Pair;
 
 import java.io.Serializable;
@@ -16,8 +17,15 @@ import java.util.*;
 import java.util.function.BiFunction;
 import java.util.stream.IntStream;
 
+@Slf4j
 public abstract class JdbcQueryEngine<T extends JdbcDatastore> extends AQueryEngine<T> {
 
+  /**
+   * The number of rows fetched at once from the database when streaming a result, see
+   * {@link #executeStreaming(DatabaseQuery, CancellationToken, RowWriter)}.
+   */
+  public static final int STREAMING_FETCH_SIZE = Integer.parseInt(System.getProperty("io.squashql.jdbc.streaming.fetch-size", Integer.toString(10_000)));
+
   public JdbcQueryEngine(T datastore) {
     super(datastore);
   }
@@ -26,7 +34,12 @@ public abstract class JdbcQueryEngine<T extends JdbcDatastore> extends AQueryEng
 
   @Override
   protected Table retrieveAggregates(DatabaseQuery query, String sql) {
-    return executeQuery(sql, this.datastore.getConnection(), tableResult -> {
+    return retrieveAggregates(query, sql, new CancellationToken(null));
+  }
+
+  @Override
+  protected Table retrieveAggregates(DatabaseQuery query, String sql, CancellationToken token) {
+    return executeQuery(sql, token, tableResult -> {
       List<Class<?>> columnTypes = getColumnTypes(tableResult.getMetaData());
       ResultSetReader reader = createResultSetReader();
       Pair<List<Header>, List<List<Object>>> result = transformToColumnFormat(
@@ -43,9 +56,61 @@ public abstract class JdbcQueryEngine<T extends JdbcDatastore> extends AQueryEng
     });
   }
 
+  @Override
+  public void executeStreaming(DatabaseQuery query, CancellationToken token, RowWriter writer) {
+    String sql = createSqlStatement(query);
+    log.info(query + " streamed with " + System.lineSeparator() + "sql=" + sql);
+    ThrowingFunction<ResultSet, Void> consumer = tableResult -> {
+      List<Class<?>> columnTypes = getColumnTypes(tableResult.getMetaData());
+      List<String> fieldNames = new ArrayList<>(query.scope().columns().stream().map(SqlUtils::squashqlExpression).toList());
+      query.measures().forEach(m -> fieldNames.add(m.alias()));
+      List<Header> headers = new ArrayList<>(columnTypes.size());
+      for (int i = 0; i < columnTypes.size(); i++) {
+        headers.add(new Header(fieldNames.get(i), columnTypes.get(i), i >= query.scope().columns().size()));
+      }
+      writer.writeHeaders(headers);
+
+      ResultSetIterator iterator = new ResultSetIterator(columnTypes, tableResult, createResultSetReader());
+      ArrayRowCursor cursor = new ArrayRowCursor();
+      while (iterator.hasNext()) {
+        token.throwIfCancelled();
+        cursor.row = iterator.next();
+        cursor.index++;
+        writer.writeRow(cursor);
+      }
+      return null;
+    };
+
+    try (Connection connection = this.datastore.getConnection()) {
+      if (!streamWithinTransaction()) {
+        executeQuery(sql, connection, token, STREAMING_FETCH_SIZE, consumer);
+        return;
+      }
+      boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try {
+        executeQuery(sql, connection, token, STREAMING_FETCH_SIZE, consumer);
+      } finally {
+        connection.rollback(); // nothing has been written
+        connection.setAutoCommit(autoCommit);
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Whether the queries of {@link #executeStreaming(DatabaseQuery, CancellationToken, RowWriter)} are executed with
+   * autocommit turned off, the connection being restored before it is given back. Some drivers, e.g. PostgreSQL, only
+   * fetch the rows by batches of the fetch size within a transaction and otherwise read the whole result at once.
+   */
+  protected boolean streamWithinTransaction() {
+    return false;
+  }
+
   @Override
   public Table executeRawSql(String sql) {
-    return executeQuery(sql, this.datastore.getConnection(), tableResult -> {
+    return executeQuery(sql, new CancellationToken(null), tableResult -> {
       List<Header> headers = createHeaderList(tableResult, Collections.emptySet());
       List<Class<?>> columnTypes = getColumnTypes(tableResult.getMetaData());
       ResultSetReader reader = createResultSetReader();
@@ -58,7 +123,11 @@ public abstract class JdbcQueryEngine<T extends JdbcDatastore> extends AQueryEng
   }
 
   public boolean executeSql(String sql) {
-    return execute(sql, this.datastore.getConnection());
+    try (Connection connection = this.datastore.getConnection()) {
+      return execute(sql, connection);
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
   }
 
   protected List<Header> createHeaderList(ResultSet tableResult, Set<String> measureNames) throws SQLException {
@@ -118,6 +187,27 @@ public abstract class JdbcQueryEngine<T extends JdbcDatastore> extends AQueryEng
     }
   }
 
+  private static class ArrayRowCursor implements RowCursor {
+
+    private int index = -1;
+    private Object[] row;
+
+    @Override
+    public int index() {
+      return this.index;
+    }
+
+    @Override
+    public int size() {
+      return this.row.length;
+    }
+
+    @Override
+    public Object get(int columnIndex) {
+      return this.row[columnIndex];
+    }
+  }
+
   /**
    * Gets the value with the correct type, otherwise everything is read as Object.
    */
@@ -156,14 +246,54 @@ public abstract class JdbcQueryEngine<T extends JdbcDatastore> extends AQueryEng
   }
 
   protected <R> R executeQuery(String sql, Connection connection, ThrowingFunction<ResultSet, R> consumer) {
-    try (Statement statement = connection.createStatement()) {
+    return executeQuery(sql, connection, new CancellationToken(null), consumer);
+  }
+
+  /**
+   * Borrows a connection from the datastore to execute the query and gives it back once the result has been consumed.
+   */
+  protected <R> R executeQuery(String sql, CancellationToken token, ThrowingFunction<ResultSet, R> consumer) {
+    try (Connection connection = this.datastore.getConnection()) {
+      return executeQuery(sql, connection, token, consumer);
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Executes the query and calls {@link Statement#cancel()} if the token is cancelled while it is running.
+   */
+  protected <R> R executeQuery(String sql, Connection connection, CancellationToken token, ThrowingFunction<ResultSet, R> consumer) {
+    return executeQuery(sql, connection, token, 0, consumer);
+  }
+
+  /**
+   * Same as {@link #executeQuery(String, Connection, CancellationToken, ThrowingFunction)} with a hint of the number of
+   * rows to fetch at once, 0 to let the driver decide. It must be set before the execution to be used for the first
+   * rows.
+   */
+  protected <R> R executeQuery(String sql, Connection connection, CancellationToken token, int fetchSize, ThrowingFunction<ResultSet, R> consumer) {
+    try (Statement statement = connection.createStatement();
+         CancellationToken.Registration registration = token.onCancel(() -> cancel(statement))) {
+      if (fetchSize > 0) {
+        statement.setFetchSize(fetchSize);
+      }
       ResultSet tableResult = statement.executeQuery(sql);
       return consumer.apply(tableResult);
     } catch (SQLException e) {
+      token.throwIfCancelled(); // the error is likely due to the cancellation
       throw new RuntimeException(e);
     }
   }
 
+  private static void cancel(Statement statement) {
+    try {
+      statement.cancel();
+    } catch (SQLException e) {
+      log.warn("Cannot cancel statement", e);
+    }
+  }
+
   protected boolean execute(String sql, Connection connection) {
     try (Statement statement = connection.createStatement()) {
       return statement.execute(sql);
@@ -0,0 +1,114 @@
+package io.squashql.list;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only lists of numbers backed by a primitive array and a null mask. Values are only boxed when read with
+ * {@link List#get(int)}. Kernels working on primitive arrays can access the underlying arrays directly with
+ * {@link #toLongArray(List, BitSet)} and {@link #toDoubleArray(List, BitSet)}.
+ */
+public final class PrimitiveLists {
+
+  private PrimitiveLists() {
+  }
+
+  public static final class LongColumn extends AbstractList<Object> implements RandomAccess {
+
+    private final long[] values;
+    private final BitSet nulls;
+
+    /**
+     * The arrays are not copied and must not be modified afterward.
+     */
+    public LongColumn(long[] values, BitSet nulls) {
+      this.values = values;
+      this.nulls = nulls;
+    }
+
+    @Override
+    public Object get(int index) {
+      return this.nulls.get(index) ? null : this.values[index];
+    }
+
+    @Override
+    public int size() {
+      return this.values.length;
+    }
+  }
+
+  public static final class DoubleColumn extends AbstractList<Object> implements RandomAccess {
+
+    private final double[] values;
+    private final BitSet nulls;
+
+    /**
+     * The arrays are not copied and must not be modified afterward.
+     */
+    public DoubleColumn(double[] values, BitSet nulls) {
+      this.values = values;
+      this.nulls = nulls;
+    }
+
+    @Override
+    public Object get(int index) {
+      return this.nulls.get(index) ? null : this.values[index];
+    }
+
+    @Override
+    public int size() {
+      return this.values.length;
+    }
+  }
+
+  /**
+   * Returns the values of the list as longs (nulls are written as 0). The positions of null values are set in
+   * {@code nulls}. The returned array must not be modified as it can be the one backing the list.
+   */
+  public static long[] toLongArray(List<?> list, BitSet nulls) {
+    if (list instanceof LongColumn lc) {
+      nulls.or(lc.nulls);
+      return lc.values;
+    }
+    long[] values = new long[list.size()];
+    for (int i = 0; i < values.length; i++) {
+      Object o = list.get(i);
+      if (o == null) {
+        nulls.set(i);
+      } else {
+        values[i] = ((Number) o).longValue();
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Returns the values of the list as doubles (nulls are written as 0). The positions of null values are set in
+   * {@code nulls}. The returned array must not be modified as it can be the one backing the list.
+   */
+  public static double[] toDoubleArray(List<?> list, BitSet nulls) {
+    if (list instanceof DoubleColumn dc) {
+      nulls.or(dc.nulls);
+      return dc.values;
+    }
+    double[] values = new double[list.size()];
+    if (list instanceof LongColumn lc) {
+      nulls.or(lc.nulls);
+      for (int i = 0; i < values.length; i++) {
+        values[i] = lc.values[i];
+      }
+      return values;
+    }
+    for (int i = 0; i < values.length; i++) {
+      Object o = list.get(i);
+      if (o == null) {
+        nulls.set(i);
+      } else {
+        values[i] = ((Number) o).doubleValue();
+      }
+    }
+    return values;
+  }
+}
@@ -1,6 +1,7 @@
 package io.squashql.query;
 
 import io.squashql.query.compiled.CompiledComparisonMeasure;
+import io.squashql.query.dictionary.ObjectArrayDictionary;
 import io.squashql.query.util.BinaryOperations;
 import io.squashql.table.Table;
 import org.eclipse.collections.api.map.primitive.IntIntMap;
@@ -20,17 +21,64 @@ import java.util.regex.Pattern;
 public abstract class AComparisonExecutor<T extends CompiledComparisonMeasure> {
 
   public static final String REF_POS_FIRST = "first";
+  private static final Pattern SHIFT_PATTERN = Pattern.compile("[a-zA-Z]+([-+])(\\d)");
+  private static final Pattern CONSTANT_PATTERN = Pattern.compile("[a-zA-Z]+");
 
   protected abstract BiPredicate<Object[], Header[]> createShiftProcedure(T cm,
                                                                           ObjectIntMap<String> indexByColumn,
                                                                           Table readFromTable);
 
+  /**
+   * Returns a key identifying the shift applied by this executor for the given measure. Two measures with equal keys
+   * read the same rows when compared on the same tables so the result of
+   * {@link #computeReadPositions(CompiledComparisonMeasure, Table, Table)} can be shared between them.
+   */
+  public abstract Object shiftKey(T cm);
+
   public List<Object> compare(
           T cm,
           Table writeToTable,
           Table readFromTable) {
+    return compare(cm, writeToTable, readFromTable, computeReadPositions(cm, writeToTable, readFromTable));
+  }
+
+  /**
+   * Compares the values of the measure in the write table with the values of the measure in the read table at the
+   * given positions (see {@link #computeReadPositions(CompiledComparisonMeasure, Table, Table)}).
+   */
+  public List<Object> compare(
+          T cm,
+          Table writeToTable,
+          Table readFromTable,
+          int[] readPositions) {
+    List<Object> readAggregateValues = readFromTable.getAggregateValues(cm.measure());
+    List<Object> writeAggregateValues = writeToTable.getAggregateValues(cm.measure());
+    BiFunction<Object, Object, Object> comparisonBiFunction;
+    if (cm.comparisonMethod() != null) {
+      BiFunction<Number, Number, Number> f = BinaryOperations.createComparisonBiFunction(cm.comparisonMethod(), readFromTable.getHeader(cm.measure()).type());
+      comparisonBiFunction = (a, b) -> f.apply((Number) a, (Number) b);
+    } else {
+      comparisonBiFunction = cm.comparisonOperator();
+    }
+
+    List<Object> result = new ArrayList<>(readPositions.length);
+    for (int row = 0; row < readPositions.length; row++) {
+      int readPosition = readPositions[row];
+      if (readPosition >= 0) {
+        result.add(comparisonBiFunction.apply(writeAggregateValues.get(row), readAggregateValues.get(readPosition)));
+      } else {
+        result.add(null); // nothing to compare with
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Computes for each row of the write table the position of the row to compare with in the read table, -1 if there is
+   * nothing to compare with.
+   */
+  public int[] computeReadPositions(T cm, Table writeToTable, Table readFromTable) {
     MutableObjectIntMap<String> indexByColumn = new ObjectIntHashMap<>();
-    int readFromTableHeaderSize = readFromTable.headers().size();
     int index = 0;
     for (Header header : readFromTable.headers()) {
       if (!header.isMeasure()) {
@@ -39,41 +87,30 @@ public abstract class AComparisonExecutor<T extends CompiledComparisonMeasure> {
     }
     BiPredicate<Object[], Header[]> procedure = createShiftProcedure(cm, indexByColumn, readFromTable);
 
-    int readFromTableColumnsCount = (int) readFromTable.headers().stream().filter(header -> !header.isMeasure()).count();
+    int readFromTableColumnsCount = index;
     Object[] buffer = new Object[readFromTableColumnsCount];
     Header[] headers = new Header[readFromTableColumnsCount];
-    List<Object> result = new ArrayList<>(writeToTable.count());
-    List<Object> readAggregateValues = readFromTable.getAggregateValues(cm.measure());
-    List<Object> writeAggregateValues = writeToTable.getAggregateValues(cm.measure());
-    BiFunction<Object, Object, Object> comparisonBiFunction = cm.comparisonMethod() != null
-            ? (a, b) -> BinaryOperations.createComparisonBiFunction(cm.comparisonMethod(), readFromTable.getHeader(cm.measure()).type()).apply((Number) a, (Number) b)
-            : cm.comparisonOperator();
-    int[] rowIndex = new int[1];
-    IntIntMap mapping = buildMapping(writeToTable, readFromTable); // columns might be in a different order
-    writeToTable.forEach(row -> {
-      int i = 0;
-      for (int columnIndex = 0; columnIndex < readFromTableHeaderSize; columnIndex++) {
-        Header header = readFromTable.headers().get(columnIndex);
-        if (!header.isMeasure()) {
-          headers[i] = header;
-          buffer[i] = row.get(mapping.getIfAbsent(columnIndex, -1));
-          i++;
-        }
-      }
-      boolean success = procedure.test(buffer, headers);
-      int readPosition = readFromTable.pointDictionary().getPosition(buffer);
-      if (success && readPosition != -1) {
-        Object currentValue = writeAggregateValues.get(rowIndex[0]);
-        Object referenceValue = readAggregateValues.get(readPosition);
-        Object diff = comparisonBiFunction.apply(currentValue, referenceValue);
-        result.add(diff);
-      } else {
-        result.add(null); // nothing to compare with
+    List<List<Object>> writeColumns = new ArrayList<>(readFromTableColumnsCount); // columns might be in a different order
+    IntIntMap mapping = buildMapping(writeToTable, readFromTable);
+    int i = 0;
+    for (int columnIndex = 0; columnIndex < readFromTable.headers().size(); columnIndex++) {
+      Header header = readFromTable.headers().get(columnIndex);
+      if (!header.isMeasure()) {
+        headers[i++] = header;
+        writeColumns.add(writeToTable.getColumn(mapping.getIfAbsent(columnIndex, -1)));
       }
-      rowIndex[0]++;
-    });
+    }
 
-    return result;
+    ObjectArrayDictionary readPointDictionary = readFromTable.pointDictionary();
+    int[] positions = new int[writeToTable.count()];
+    for (int row = 0; row < positions.length; row++) {
+      for (int c = 0; c < readFromTableColumnsCount; c++) {
+        buffer[c] = writeColumns.get(c).get(row);
+      }
+      boolean success = procedure.test(buffer, headers);
+      positions[row] = success ? readPointDictionary.getPosition(buffer) : -1;
+    }
+    return positions;
   }
 
   public IntIntMap buildMapping(Table writeToTable, Table readFromTable) {
@@ -97,14 +134,12 @@ public abstract class AComparisonExecutor<T extends CompiledComparisonMeasure> {
       return REF_POS_FIRST;
     }
 
-    Pattern shiftPattern = Pattern.compile("[a-zA-Z]+([-+])(\\d)");
-    Pattern constantPattern = Pattern.compile("[a-zA-Z]+");
     Matcher m;
-    if ((m = shiftPattern.matcher(transformation)).matches()) {
+    if ((m = SHIFT_PATTERN.matcher(transformation)).matches()) {
       String signum = m.group(1);
       String shift = m.group(2);
       return (signum.equals("-") ? -1 : 1) * Integer.valueOf(shift);
-    } else if (constantPattern.matcher(transformation).matches()) {
+    } else if (CONSTANT_PATTERN.matcher(transformation).matches()) {
       return null; // nothing to do
     } else {
       throw new RuntimeException("Unsupported transformation: " + transformation);
@@ -0,0 +1,444 @@
+package io.squashql.query;
+
+import io.squashql.jdbc.JdbcQueryEngine;
+import io.squashql.query.compiled.*;
+import io.squashql.query.database.DatabaseQuery;
+import io.squashql.query.database.QueryEngine;
+import io.squashql.query.database.QueryScope;
+import io.squashql.query.database.SqlTranslator;
+import io.squashql.type.TableTypedField;
+import io.squashql.type.TypedField;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static io.squashql.query.agg.AggregationFunction.*;
+import static io.squashql.query.compiled.CompiledAggregatedMeasure.COMPILED_COUNT;
+
+/**
+ * Records the queries sent to the database and recommends aggregate tables (rollups of a table over a set of columns)
+ * that would answer the most expensive of them. Once created in the database with {@link #create(Recommendation)}, the
+ * aggregate tables are used instead of the table for the queries they cover, see {@link #route(DatabaseQuery)}.
+ * <p>
+ * A query can be answered from an aggregate table if it reads a single table (no join), all the columns it uses (to
+ * group by or in the where clause) are columns of the aggregate table, it has no having clause and its measures are
+ * sums, counts, mins and maxs of a field, without condition, that the aggregate table contains.
+ * <p>
+ * Aggregate tables are not updated when their table is modified. {@link #invalidate(String)} stops using them until
+ * they are recreated with {@link #refresh(String)}.
+ */
+@Slf4j
+public class AggregateAdvisor {
+
+  private static final Set<String> REAGGREGATABLE_FUNCTIONS = Set.of(SUM, COUNT, MIN, MAX);
+
+  private final QueryEngine<?> queryEngine;
+  private final Map<Shape, ShapeStatistics> statisticsByShape = new ConcurrentHashMap<>();
+  private final List<AggregateTable> aggregateTables = new CopyOnWriteArrayList<>();
+
+  public AggregateAdvisor(QueryEngine<?> queryEngine) {
+    this.queryEngine = queryEngine;
+  }
+
+  /**
+   * Records the execution of a query by the database.
+   *
+   * @param query    the query, before being routed
+   * @param routed   true if it was answered by an aggregate table
+   * @param duration the time taken by the database
+   * @param rowCount the number of rows returned
+   */
+  public void record(DatabaseQuery query, boolean routed, Duration duration, int rowCount) {
+    Shape shape = Shape.of(query);
+    if (shape != null) {
+      this.statisticsByShape.computeIfAbsent(shape, k -> new ShapeStatistics()).record(routed, duration, rowCount);
+    }
+  }
+
+  /**
+   * Forgets the recorded queries.
+   */
+  public void clearStatistics() {
+    this.statisticsByShape.clear();
+  }
+
+  /**
+   * Returns at most {@code max} aggregate tables to create, the most useful first. The usefulness of an aggregate table
+   * is the time spent by the database on the recorded queries it would answer. Queries already answered by an
+   * aggregate table are not taken into account.
+   */
+  public List<Recommendation> recommend(int max) {
+    Map<Shape, ShapeStatistics> remaining = new HashMap<>();
+    this.statisticsByShape.forEach((shape, stats) -> {
+      if (this.aggregateTables.stream().noneMatch(t -> t.covers(shape))) {
+        remaining.put(shape, stats);
+      }
+    });
+
+    List<Recommendation> recommendations = new ArrayList<>();
+    while (recommendations.size() < max && !remaining.isEmpty()) {
+      // Each recorded shape is a candidate. Pick the one covering the most expensive queries.
+      Shape best = null;
+      long bestNanos = -1;
+      for (Shape candidate : remaining.keySet()) {
+        long nanos = remaining.entrySet().stream()
+                .filter(e -> candidate.covers(e.getKey()))
+                .mapToLong(e -> e.getValue().totalNanos)
+                .sum();
+        if (nanos > bestNanos) {
+          best = candidate;
+          bestNanos = nanos;
+        }
+      }
+
+      Shape candidate = best;
+      Set<MeasureKey> measures = new TreeSet<>(Comparator.comparing(MeasureKey::toString));
+      measures.add(MeasureKey.of((CompiledAggregatedMeasure) COMPILED_COUNT));
+      long queryCount = 0;
+      long rowCount = 0;
+      for (Iterator<Map.Entry<Shape, ShapeStatistics>> it = remaining.entrySet().iterator(); it.hasNext(); ) {
+        Map.Entry<Shape, ShapeStatistics> e = it.next();
+        if (candidate.covers(e.getKey())) {
+          measures.addAll(e.getKey().measures);
+          queryCount += e.getValue().count;
+          rowCount += e.getValue().totalRows;
+          it.remove();
+        }
+      }
+      String name = name(candidate, recommendations);
+      AggregateTable aggregateTable = new AggregateTable(name, candidate.table, candidate.columns, new ArrayList<>(measures));
+      recommendations.add(new Recommendation(aggregateTable, queryCount, Duration.ofNanos(bestNanos), (double) rowCount / queryCount,
+              createStatement(aggregateTable)));
+    }
+    return recommendations;
+  }
+
+  /**
+   * Returns the name of the aggregate table over the columns of the given shape. It is the name of the aggregate table
+   * in use over the same columns, if any, so that it is replaced by the new one. Otherwise, the name is derived from the
+   * columns and suffixed if needed to differ from the names of the other aggregate tables.
+   */
+  private String name(Shape shape, List<Recommendation> recommendations) {
+    List<AggregateTable> others = new ArrayList<>(this.aggregateTables);
+    recommendations.forEach(r -> others.add(r.aggregateTable));
+    String prefix = shape.table + "_agg_" + Integer.toHexString(shape.columns.hashCode());
+    for (int i = 0; ; i++) {
+      String name = i == 0 ? prefix : prefix + "_" + i;
+      List<AggregateTable> sameName = others.stream().filter(t -> t.name.equals(name)).toList();
+      if (sameName.stream().allMatch(t -> t.table.equals(shape.table) && t.columns.equals(shape.columns))) {
+        return name;
+      }
+    }
+  }
+
+  /**
+   * Creates the recommended aggregate table in the database and uses it to answer the queries it covers.
+   */
+  public void create(Recommendation recommendation) {
+    AggregateTable aggregateTable = recommendation.aggregateTable;
+    // Stop using the table being replaced before dropping it
+    this.aggregateTables.removeIf(t -> t.name.equals(aggregateTable.name));
+    populate(aggregateTable);
+    this.aggregateTables.add(aggregateTable);
+  }
+
+  /**
+   * Creates the {@code max} most useful aggregate tables recommended by {@link #recommend(int)}.
+   *
+   * @return the created tables
+   */
+  public List<Recommendation> createRecommended(int max) {
+    List<Recommendation> recommendations = recommend(max);
+    recommendations.forEach(this::create);
+    return recommendations;
+  }
+
+  /**
+   * Stops using the given aggregate table and drops it from the database.
+   */
+  public void drop(AggregateTable aggregateTable) {
+    this.aggregateTables.remove(aggregateTable);
+    execute("drop table if exists " + this.queryEngine.queryRewriter().tableName(aggregateTable.name));
+  }
+
+  /**
+   * Stops using the aggregate tables of the given table, to be called when its content changes.
+   */
+  public void invalidate(String table) {
+    this.aggregateTables.stream().filter(t -> t.table.equals(table)).forEach(t -> t.stale = true);
+  }
+
+  /**
+   * Recreates the aggregate tables of the given table from its current content.
+   */
+  public void refresh(String table) {
+    for (AggregateTable aggregateTable : this.aggregateTables) {
+      if (aggregateTable.table.equals(table)) {
+        populate(aggregateTable);
+      }
+    }
+  }
+
+  /**
+   * Returns the aggregate tables in use.
+   */
+  public List<AggregateTable> aggregateTables() {
+    return Collections.unmodifiableList(this.aggregateTables);
+  }
+
+  /**
+   * Returns the query to send to the database instead of the given one: the same query reading the smallest aggregate
+   * table covering it, or the given query if there is none.
+   */
+  public DatabaseQuery route(DatabaseQuery query) {
+    if (this.aggregateTables.isEmpty()) {
+      return query;
+    }
+    Shape shape = Shape.of(query);
+    if (shape == null) {
+      return query;
+    }
+    AggregateTable target = null;
+    for (AggregateTable aggregateTable : this.aggregateTables) {
+      if (!aggregateTable.stale && aggregateTable.covers(shape)
+              && (target == null || aggregateTable.columns.size() < target.columns.size())) {
+        target = aggregateTable;
+      }
+    }
+    return target == null ? query : target.rewrite(query);
+  }
+
+  private void populate(AggregateTable aggregateTable) {
+    String tableName = this.queryEngine.queryRewriter().tableName(aggregateTable.name);
+    aggregateTable.stale = true; // Not routed to while it is missing from the database
+    execute("drop table if exists " + tableName);
+    execute(createStatement(aggregateTable));
+    aggregateTable.stale = false;
+    log.info("Aggregate table " + aggregateTable.name + " created over " + aggregateTable.columns + " of " + aggregateTable.table);
+  }
+
+  private void execute(String sql) {
+    if (this.queryEngine instanceof JdbcQueryEngine<?> jdbcQueryEngine) {
+      jdbcQueryEngine.executeSql(sql);
+    } else {
+      this.queryEngine.executeRawSql(sql);
+    }
+  }
+
+  private String createStatement(AggregateTable aggregateTable) {
+    List<TypedField> columns = aggregateTable.columns.stream().map(c -> (TypedField) new TableTypedField(null, c, Object.class)).toList();
+    List<CompiledMeasure> measures = aggregateTable.measures.stream().map(m -> (CompiledMeasure) new CompiledAggregatedMeasure(
+            m.columnName(),
+            new TableTypedField(null, m.field, Object.class),
+            m.aggregationFunction,
+            null,
+            false)).toList();
+    QueryScope scope = new QueryScope(new MaterializedTable(aggregateTable.table, Collections.emptyList()), columns, null, null,
+            Collections.emptyList(), Collections.emptySet(), Collections.emptyList(), Collections.emptyList(), -1);
+    return "create table " + this.queryEngine.queryRewriter().tableName(aggregateTable.name) + " as "
+            + SqlTranslator.translate(new DatabaseQuery(scope, measures), this.queryEngine.queryRewriter());
+  }
+
+  /**
+   * An aggregation function applied to a field ({@code *} for count(*)).
+   */
+  public record MeasureKey(String aggregationFunction, String field) {
+
+    private static MeasureKey of(CompiledAggregatedMeasure measure) {
+      return new MeasureKey(measure.aggregationFunction(), measure.field().name());
+    }
+
+    /**
+     * The name of the column of the aggregate table holding this measure.
+     */
+    public String columnName() {
+      return this.aggregationFunction + "_" + (CountMeasure.FIELD_NAME.equals(this.field) ? "all" : this.field);
+    }
+
+    @Override
+    public String toString() {
+      return this.aggregationFunction + "(" + this.field + ")";
+    }
+  }
+
+  /**
+   * The table, the columns and the measures of a query, if it can be answered from an aggregate table.
+   */
+  private record Shape(String table, Set<String> columns, Set<MeasureKey> measures) {
+
+    private static Shape of(DatabaseQuery query) {
+      QueryScope scope = query.scope();
+      if (!(scope.table() instanceof MaterializedTable mt) || (mt.joins() != null && !mt.joins().isEmpty())
+              || scope.havingCriteria() != null || !scope.cteRecordTables().isEmpty()) {
+        return null;
+      }
+
+      Set<String> measureAliases = query.measures().stream().map(CompiledMeasure::alias).collect(Collectors.toSet());
+      List<TypedField> fields = new ArrayList<>(scope.columns());
+      fields.addAll(scope.rollup());
+      scope.groupingSets().forEach(fields::addAll);
+      scope.orderBy().stream()
+              .map(CompiledOrderBy::field)
+              .filter(f -> !measureAliases.contains(f.name())) // ordered by a measure
+              .forEach(fields::add);
+      if (!addCriteriaFields(scope.whereCriteria(), fields)) {
+        return null;
+      }
+      Set<String> columns = new TreeSet<>();
+      for (TypedField field : fields) {
+        if (!isColumnOf(field, mt.name())) {
+          return null;
+        }
+        columns.add(field.name());
+      }
+
+      Set<MeasureKey> measures = new HashSet<>();
+      for (CompiledMeasure measure : query.measures()) {
+        if (!(measure instanceof CompiledAggregatedMeasure cam) || !(cam.field() instanceof TableTypedField)) {
+          return null;
+        } else if (cam.aggregationFunction().equals(GROUPING)) {
+          continue; // only depends on the columns
+        } else if (cam.criteria() != null || cam.distinct() || !REAGGREGATABLE_FUNCTIONS.contains(cam.aggregationFunction())
+                || (!CountMeasure.FIELD_NAME.equals(cam.field().name()) && !isColumnOf(cam.field(), mt.name()))) {
+          return null;
+        }
+        measures.add(MeasureKey.of(cam));
+      }
+      return new Shape(mt.name(), columns, measures);
+    }
+
+    private static boolean addCriteriaFields(CompiledCriteria criteria, List<TypedField> fields) {
+      if (criteria == null) {
+        return true;
+      } else if (criteria.measure() != null) {
+        return false;
+      }
+      if (criteria.field() != null) {
+        fields.add(criteria.field());
+      }
+      if (criteria.fieldOther() != null) {
+        fields.add(criteria.fieldOther());
+      }
+      if (criteria.children() != null) {
+        for (CompiledCriteria child : criteria.children()) {
+          if (!addCriteriaFields(child, fields)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private static boolean isColumnOf(TypedField field, String table) {
+      return field instanceof TableTypedField ttf && !ttf.cte() && (ttf.store() == null || ttf.store().equals(table));
+    }
+
+    private boolean covers(Shape other) {
+      return this.table.equals(other.table) && this.columns.containsAll(other.columns);
+    }
+  }
+
+  private static class ShapeStatistics {
+
+    private long count;
+    private long routedCount;
+    private long totalNanos;
+    private long totalRows;
+
+    private synchronized void record(boolean routed, Duration duration, int rowCount) {
+      this.count++;
+      this.routedCount += routed ? 1 : 0;
+      this.totalNanos += duration.toNanos();
+      this.totalRows += rowCount;
+    }
+  }
+
+  /**
+   * A rollup of {@link #table} over {@link #columns}, holding the given {@link #measures}.
+   */
+  public static class AggregateTable {
+
+    public final String name;
+    public final String table;
+    public final Set<String> columns;
+    public final List<MeasureKey> measures;
+    private volatile boolean stale = true;
+
+    public AggregateTable(String name, String table, Set<String> columns, List<MeasureKey> measures) {
+      this.name = name;
+      this.table = table;
+      this.columns = columns;
+      this.measures = measures;
+    }
+
+    private boolean covers(Shape shape) {
+      return this.table.equals(shape.table) && this.columns.containsAll(shape.columns) && this.measures.containsAll(shape.measures);
+    }
+
+    private DatabaseQuery rewrite(DatabaseQuery query) {
+      QueryScope scope = query.scope();
+      QueryScope newScope = new QueryScope(
+              new MaterializedTable(this.name, Collections.emptyList()),
+              scope.columns().stream().map(this::rewrite).toList(),
+              rewrite(scope.whereCriteria()),
+              null,
+              scope.rollup().stream().map(this::rewrite).toList(),
+              scope.groupingSets().stream().map(s -> s.stream().map(this::rewrite).collect(Collectors.toSet())).collect(Collectors.toSet()),
+              scope.cteRecordTables(),
+              scope.orderBy().stream().map(o -> new CompiledOrderBy(rewrite(o.field()), o.orderDto())).toList(),
+              scope.limit());
+      List<CompiledMeasure> measures = query.measures().stream().map(m -> {
+        CompiledAggregatedMeasure cam = (CompiledAggregatedMeasure) m;
+        if (cam.aggregationFunction().equals(GROUPING)) {
+          return new CompiledAggregatedMeasure(cam.alias(), rewrite(cam.field()), GROUPING, null, false);
+        }
+        // The counts are summed, the other functions are applied again
+        String function = cam.aggregationFunction().equals(COUNT) ? SUM : cam.aggregationFunction();
+        String column = MeasureKey.of(cam).columnName();
+        return (CompiledMeasure) new CompiledAggregatedMeasure(cam.alias(), new TableTypedField(null, column, cam.field().type()), function, null, false);
+      }).toList();
+      return new DatabaseQuery(newScope, measures);
+    }
+
+    private TypedField rewrite(TypedField field) {
+      if (field instanceof TableTypedField ttf && ttf.store() != null) {
+        return new TableTypedField(this.name, ttf.name(), ttf.type(), ttf.alias(), false);
+      }
+      return field;
+    }
+
+    private CompiledCriteria rewrite(CompiledCriteria criteria) {
+      if (criteria == null) {
+        return null;
+      }
+      return new CompiledCriteria(
+              criteria.condition(),
+              criteria.conditionType(),
+              criteria.field() == null ? null : rewrite(criteria.field()),
+              criteria.fieldOther() == null ? null : rewrite(criteria.fieldOther()),
+              null,
+              criteria.children() == null ? null : criteria.children().stream().map(this::rewrite).toList());
+    }
+
+    @Override
+    public String toString() {
+      return "AggregateTable{name='" + this.name + "', table='" + this.table + "', columns=" + this.columns + ", measures=" + this.measures + '}';
+    }
+  }
+
+  /**
+   * An aggregate table to create.
+   *
+   * @param aggregateTable the aggregate table
+   * @param queryCount     the number of recorded queries it would answer
+   * @param totalTime      the time the database spent on these queries
+   * @param averageRows    the average number of rows returned by these queries
+   * @param sql            the statement creating it
+   */
+  public record Recommendation(AggregateTable aggregateTable, long queryCount, Duration totalTime, double averageRows, String sql) {
+  }
+}
@@ -9,6 +9,11 @@ import java.util.function.BiPredicate;
 
 public class GrandTotalComparisonExecutor extends AComparisonExecutor<CompiledGrandTotalComparisonMeasure> {
 
+  @Override
+  public Object shiftKey(CompiledGrandTotalComparisonMeasure cm) {
+    return GrandTotalComparisonExecutor.class; // every row is compared with the grand total
+  }
+
   @Override
   protected BiPredicate<Object[], Header[]> createShiftProcedure(CompiledGrandTotalComparisonMeasure cm,
                                                                  ObjectIntMap<String> indexByColumn,
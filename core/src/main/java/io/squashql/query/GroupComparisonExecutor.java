@@ -23,6 +23,14 @@ public class GroupComparisonExecutor extends AComparisonExecutor<CompiledCompari
     this.cSet = cSet;
   }
 
+  @Override
+  public Object shiftKey(CompiledComparisonMeasureReferencePosition cm) {
+    return new ShiftKey(this.cSet, cm.referencePosition());
+  }
+
+  private record ShiftKey(CompiledGroupColumnSet cSet, Map<TypedField, String> referencePosition) {
+  }
+
   @Override
   protected BiPredicate<Object[], Header[]> createShiftProcedure(CompiledComparisonMeasureReferencePosition cm,
                                                                  ObjectIntMap<String> indexByColumn,
@@ -4,57 +4,69 @@ import io.squashql.query.database.SqlUtils;
 import io.squashql.query.dto.GroupColumnSetDto;
 import io.squashql.table.ColumnarTable;
 import io.squashql.table.Table;
-import org.eclipse.collections.api.set.primitive.MutableIntSet;
-import org.eclipse.collections.impl.set.mutable.primitive.IntHashSet;
+import io.squashql.util.ListUtils;
 
 import java.util.*;
-import java.util.function.Function;
+import java.util.stream.IntStream;
 
 public class GrouperExecutor {
 
+  /**
+   * Groups all the tables of the given map. The tables are independent from each other and are grouped in parallel.
+   */
+  public static <K> void group(Map<K, Table> tableByKey, GroupColumnSetDto groupColumnSetDto) {
+    GroupIndex groupIndex = new GroupIndex(groupColumnSetDto);
+    List<Map.Entry<K, Table>> entries = new ArrayList<>(tableByKey.entrySet());
+    Table[] groupedTables = new Table[entries.size()];
+    IntStream.range(0, entries.size())
+            .parallel()
+            .forEach(i -> groupedTables[i] = group(entries.get(i).getValue(), groupColumnSetDto, groupIndex));
+    for (int i = 0; i < entries.size(); i++) {
+      tableByKey.put(entries.get(i).getKey(), groupedTables[i]);
+    }
+  }
+
   public static Table group(Table table, GroupColumnSetDto groupColumnSetDto) {
-    Function<Object[], List<Object[]>> grouper = createGrouper(groupColumnSetDto);
+    return group(table, groupColumnSetDto, new GroupIndex(groupColumnSetDto));
+  }
 
-    int[] indexColumnsToRead = new int[groupColumnSetDto.getColumnsForPrefetching().size()];
-    for (int i = 0; i < groupColumnSetDto.getColumnsForPrefetching().size(); i++) {
-      indexColumnsToRead[i] = table.columnIndex(SqlUtils.squashqlExpression(groupColumnSetDto.getColumnsForPrefetching().get(i)));
+  private static Table group(Table table, GroupColumnSetDto groupColumnSetDto, GroupIndex groupIndex) {
+    List<Header> finalHeaders = new ArrayList<>(table.headers());
+    Header groupHeader = new Header(SqlUtils.squashqlExpression(groupColumnSetDto.newField), String.class, false);
+    if (!table.headers().contains(groupHeader)) {
+      finalHeaders.add(groupHeader); // append to the end
     }
 
-    MutableIntSet indexColsInPrefetch = new IntHashSet();
-    List<Field> newColumns = groupColumnSetDto.getNewColumns();
-    List<Header> finalHeaders = new ArrayList<>(table.headers());
-    for (int i = 0; i < newColumns.size(); i++) {
-      Field field = newColumns.get(i);
-      if (!groupColumnSetDto.getColumnsForPrefetching().contains(field)) {
-        indexColsInPrefetch.add(i);
-      }
-      Header header = new Header(SqlUtils.squashqlExpression(field), String.class, false);
-      if (!table.headers().contains(header)) {
-        finalHeaders.add(header); // append to the end
-      }
+    // First pass: count the number of output rows to allocate the arrays only once.
+    List<Object> values = table.getColumn(table.columnIndex(SqlUtils.squashqlExpression(groupColumnSetDto.field)));
+    int rowCount = values.size();
+    int[][] groupIdsByRow = new int[rowCount][];
+    int size = 0;
+    for (int row = 0; row < rowCount; row++) {
+      int[] groupIds = groupIndex.groupIds(values.get(row));
+      groupIdsByRow[row] = groupIds;
+      size += groupIds.length;
     }
 
-    List<List<Object>> newColumnValues = new ArrayList<>();
-    for (int j = 0; j < finalHeaders.size(); j++) {
-      newColumnValues.add(new ArrayList<>());
+    // Second pass: each row is duplicated as many times as the number of groups its value belongs to.
+    int[] rows = new int[size];
+    Object[] groups = new Object[size];
+    int position = 0;
+    for (int row = 0; row < rowCount; row++) {
+      for (int groupId : groupIdsByRow[row]) {
+        rows[position] = row;
+        groups[position] = groupIndex.groups[groupId];
+        position++;
+      }
     }
 
+    List<List<Object>> newColumnValues = new ArrayList<>(finalHeaders.size());
     int originalHeadersSize = table.headers().size();
-    Object[] buffer = new Object[indexColumnsToRead.length];
-    for (List<Object> row : table) {
-      transferValues(indexColumnsToRead, buffer, row);
-      List<Object[]> groupValuesList = grouper.apply(buffer);
-      for (Object[] groupValues : groupValuesList) {
-        // Pure copy for everything before
-        for (int i = 0; i < originalHeadersSize; i++) {
-          newColumnValues.get(i).add(row.get(i));
-        }
-        for (int i = 0; i < groupValues.length; i++) {
-          if (indexColsInPrefetch.contains(i)) {
-            newColumnValues.get(i + originalHeadersSize).add(groupValues[i]);
-          }
-        }
-      }
+    for (int i = 0; i < originalHeadersSize; i++) {
+      newColumnValues.add(ListUtils.reorder(table.getColumn(i), rows));
+    }
+    if (finalHeaders.size() > originalHeadersSize) {
+      newColumnValues.add(new ArrayList<>(Arrays.asList(groups)));
     }
 
     return new ColumnarTable(
@@ -63,26 +75,33 @@ public class GrouperExecutor {
             newColumnValues);
   }
 
-  private static Function<Object[], List<Object[]>> createGrouper(GroupColumnSetDto groupColumnSetDto) {
-    Map<Object, List<Object>> groupsByValue = new HashMap<>();
-    for (Map.Entry<Object, List<Object>> value : groupColumnSetDto.values.entrySet()) {
-      for (Object v : value.getValue()) {
-        groupsByValue
-                .computeIfAbsent(v, k -> new ArrayList<>())
-                .add(value.getKey());
+  /**
+   * Index from a value of the column to group to the ids of the groups it belongs to. The id of a group is its
+   * position in {@link #groups}.
+   */
+  private static class GroupIndex {
+
+    private static final int[] NO_GROUP = new int[0];
+
+    private final Object[] groups;
+    private final Map<Object, int[]> groupIdsByValue = new HashMap<>();
+
+    private GroupIndex(GroupColumnSetDto groupColumnSetDto) {
+      this.groups = groupColumnSetDto.values.keySet().toArray();
+      int groupId = 0;
+      for (List<Object> groupValues : groupColumnSetDto.values.values()) {
+        for (Object v : groupValues) {
+          int[] ids = this.groupIdsByValue.getOrDefault(v, NO_GROUP);
+          int[] newIds = Arrays.copyOf(ids, ids.length + 1);
+          newIds[ids.length] = groupId;
+          this.groupIdsByValue.put(v, newIds);
+        }
+        groupId++;
       }
     }
-    Function<Object[], List<Object[]>> grouper = toGroupColumnValues -> {
-      List<Object> groups = groupsByValue.get(toGroupColumnValues[0]);
-      return groups == null ? Collections.emptyList()
-              : groups.stream().map(b -> new Object[] {b, toGroupColumnValues[0]}).toList();
-    };
-    return grouper;
-  }
 
-  public static <T> void transferValues(int[] indices, Object[] buffer, List<T> list) {
-    for (int i = 0; i < indices.length; i++) {
-      buffer[i] = list.get(indices[i]);
+    private int[] groupIds(Object value) {
+      return this.groupIdsByValue.getOrDefault(value, NO_GROUP);
     }
   }
 }
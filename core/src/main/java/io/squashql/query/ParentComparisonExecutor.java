@@ -20,6 +20,14 @@ public class ParentComparisonExecutor extends AComparisonExecutor<CompiledCompar
     this.pcm = pcm;
   }
 
+  @Override
+  public Object shiftKey(CompiledComparisonMeasureReferencePosition cm) {
+    return new ShiftKey(this.pcm.ancestors(), cm.grandTotalAlongAncestors());
+  }
+
+  private record ShiftKey(List<TypedField> ancestors, boolean grandTotalAlongAncestors) {
+  }
+
   @Override
   protected BiPredicate<Object[], Header[]> createShiftProcedure(CompiledComparisonMeasureReferencePosition cm,
                                                                  ObjectIntMap<String> indexByColumn,
@@ -40,6 +40,14 @@ public class PeriodComparisonExecutor extends AComparisonExecutor<CompiledCompar
     }
   }
 
+  @Override
+  public Object shiftKey(CompiledComparisonMeasureReferencePosition cm) {
+    return new ShiftKey(this.cmrp.period(), cm.referencePosition());
+  }
+
+  private record ShiftKey(CompiledPeriod period, Map<TypedField, String> referencePosition) {
+  }
+
   @Override
   protected BiPredicate<Object[], Header[]> createShiftProcedure(CompiledComparisonMeasureReferencePosition cm,
                                                                  ObjectIntMap<String> indexByColumn,
@@ -69,6 +77,15 @@ public class PeriodComparisonExecutor extends AComparisonExecutor<CompiledCompar
     final Map<PeriodUnit, String> referencePosition;
     final ObjectIntMap<PeriodUnit> indexByPeriodUnit;
     final Map<PeriodUnit, Object> transformationByPeriodUnit;
+    // Resolved once as the procedure is applied to every row.
+    private final int yearIndex;
+    private final int semesterIndex;
+    private final int quarterIndex;
+    private final int monthIndex;
+    private final Object yearTransformation;
+    private final Object semesterTransformation;
+    private final Object quarterTransformation;
+    private final Object monthTransformation;
 
     ShiftProcedure(CompiledPeriod period,
                    Map<PeriodUnit, String> referencePosition,
@@ -84,29 +101,44 @@ public class PeriodComparisonExecutor extends AComparisonExecutor<CompiledCompar
           this.transformationByPeriodUnit.put(periodUnit, parse);
         }
       }
+      int unknown = -1;
+      this.yearIndex = indexByPeriodUnit.getIfAbsent(PeriodUnit.YEAR, unknown);
+      this.semesterIndex = indexByPeriodUnit.getIfAbsent(PeriodUnit.SEMESTER, unknown);
+      this.quarterIndex = indexByPeriodUnit.getIfAbsent(PeriodUnit.QUARTER, unknown);
+      this.monthIndex = indexByPeriodUnit.getIfAbsent(PeriodUnit.MONTH, unknown);
+      this.yearTransformation = getTransformation(PeriodUnit.YEAR);
+      this.semesterTransformation = getTransformation(PeriodUnit.SEMESTER);
+      this.quarterTransformation = getTransformation(PeriodUnit.QUARTER);
+      this.monthTransformation = getTransformation(PeriodUnit.MONTH);
+    }
+
+    /**
+     * Returns the transformation to apply to the given unit or null if the unit must not be shifted.
+     */
+    private Object getTransformation(PeriodUnit periodUnit) {
+      return this.referencePosition.containsKey(periodUnit) ? this.transformationByPeriodUnit.get(periodUnit) : null;
     }
 
     @Override
     public boolean test(Object[] row, Header[] headers) {
-      int unknown = -1;
-      int yearIndex = this.indexByPeriodUnit.getIfAbsent(PeriodUnit.YEAR, unknown);
-      int semesterIndex = this.indexByPeriodUnit.getIfAbsent(PeriodUnit.SEMESTER, unknown);
-      int quarterIndex = this.indexByPeriodUnit.getIfAbsent(PeriodUnit.QUARTER, unknown);
-      int monthIndex = this.indexByPeriodUnit.getIfAbsent(PeriodUnit.MONTH, unknown);
-      Object yearTransformation = this.transformationByPeriodUnit.get(PeriodUnit.YEAR);
-      Object semesterTransformation = this.transformationByPeriodUnit.get(PeriodUnit.SEMESTER);
-      Object quarterTransformation = this.transformationByPeriodUnit.get(PeriodUnit.QUARTER);
-      Object monthTransformation = this.transformationByPeriodUnit.get(PeriodUnit.MONTH);
+      int yearIndex = this.yearIndex;
+      int semesterIndex = this.semesterIndex;
+      int quarterIndex = this.quarterIndex;
+      int monthIndex = this.monthIndex;
+      Object yearTransformation = this.yearTransformation;
+      Object semesterTransformation = this.semesterTransformation;
+      Object quarterTransformation = this.quarterTransformation;
+      Object monthTransformation = this.monthTransformation;
       if (this.period instanceof CompiledPeriod.Quarter) {
         // YEAR, QUARTER
-        if (this.referencePosition.containsKey(PeriodUnit.YEAR) && yearTransformation != null) {
+        if (yearTransformation != null) {
           int year = readAsLong(row[yearIndex]);
           if (year < 0) {
             return false;
           }
           write(row, yearIndex, headers[yearIndex], year + (int) yearTransformation);
         }
-        if (this.referencePosition.containsKey(PeriodUnit.QUARTER) && quarterTransformation != null) {
+        if (quarterTransformation != null) {
           int quarter = readAsLong(row[quarterIndex]);
           if (quarter < 0) {
             return false;
@@ -118,7 +150,7 @@ public class PeriodComparisonExecutor extends AComparisonExecutor<CompiledCompar
         }
       } else if (this.period instanceof CompiledPeriod.Year) {
         // YEAR
-        if (this.referencePosition.containsKey(PeriodUnit.YEAR) && yearTransformation != null) {
+        if (yearTransformation != null) {
           int year = readAsLong(row[yearIndex]);
           if (year < 0) {
             return false;
@@ -127,14 +159,14 @@ public class PeriodComparisonExecutor extends AComparisonExecutor<CompiledCompar
         }
       } else if (this.period instanceof CompiledPeriod.Month) {
         // YEAR, MONTH
-        if (this.referencePosition.containsKey(PeriodUnit.YEAR) && yearTransformation != null) {
+        if (yearTransformation != null) {
           int year = readAsLong(row[yearIndex]);
           if (year < 0) {
             return false;
           }
           write(row, yearIndex, headers[yearIndex], year + (int) yearTransformation);
         }
-        if (this.referencePosition.containsKey(PeriodUnit.MONTH) && monthTransformation != null) {
+        if (monthTransformation != null) {
           int month = readAsLong(row[monthIndex]);
           if (month < 0) {
             return false;
@@ -146,14 +178,14 @@ public class PeriodComparisonExecutor extends AComparisonExecutor<CompiledCompar
         }
       } else if (this.period instanceof CompiledPeriod.Semester) {
         // YEAR, SEMESTER
-        if (this.referencePosition.containsKey(PeriodUnit.YEAR) && yearTransformation != null) {
+        if (yearTransformation != null) {
           int year = readAsLong(row[yearIndex]);
           if (year < 0) {
             return false;
           }
           write(row, yearIndex, headers[yearIndex], year + (int) yearTransformation);
         }
-        if (this.referencePosition.containsKey(PeriodUnit.SEMESTER) && semesterTransformation != null) {
+        if (semesterTransformation != null) {
           int semester = readAsLong(row[semesterIndex]);
           if (semester < 0) {
             return false;
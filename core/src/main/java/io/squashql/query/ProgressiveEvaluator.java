@@ -0,0 +1,123 @@
+package io.squashql.query;
+
+import io.squashql.query.DependencyGraph.NodeWithId;
+import io.squashql.query.QueryExecutor.ExecutionContext;
+import io.squashql.query.QueryExecutor.QueryPlanNodeKey;
+import io.squashql.query.compiled.Evaluator;
+import io.squashql.query.database.QueryScope;
+import io.squashql.query.database.SqlUtils;
+import io.squashql.query.dto.QueryDto;
+import io.squashql.table.ColumnarTable;
+import io.squashql.table.Table;
+import io.squashql.table.TableUtils;
+import io.squashql.util.Queries;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Evaluates the measures of a query as the results of its scopes are received from the database, instead of waiting
+ * for all of them, and notifies a consumer each time new measures of the query are available: first the aggregates
+ * of the scope of the query, then the measures computed from them and from the other scopes.
+ * <p>
+ * A measure is evaluated once the results of the scopes of all the measures it depends on have been received. The
+ * measures are added to the tables of the scopes, so they are not evaluated again when the final result is computed
+ * (see {@link Evaluator#accept(QueryPlanNodeKey, ExecutionContext)}). The final result is not notified.
+ */
+class ProgressiveEvaluator {
+
+  private final QueryDto query;
+  private final QueryDto preparedQuery;
+  private final QueryResolver queryResolver;
+  private final DependencyGraph<QueryPlanNodeKey> dependencyGraph;
+  private final Consumer<Table> partialResultConsumer;
+  private final Map<QueryScope, Table> tableByScope = new HashMap<>();
+  private final Set<QueryPlanNodeKey> evaluated = new HashSet<>();
+  private final Set<String> notifiedMeasures = new HashSet<>();
+  private final Evaluator evaluator = new Evaluator();
+
+  ProgressiveEvaluator(QueryDto query,
+                       QueryDto preparedQuery,
+                       QueryResolver queryResolver,
+                       DependencyGraph<QueryPlanNodeKey> dependencyGraph,
+                       Consumer<Table> partialResultConsumer) {
+    this.query = query;
+    this.preparedQuery = preparedQuery;
+    this.queryResolver = queryResolver;
+    this.dependencyGraph = dependencyGraph;
+    this.partialResultConsumer = partialResultConsumer;
+  }
+
+  /**
+   * Evaluates the measures that can be computed now that the result of the given scope has been received, and notifies
+   * the consumer if new measures of the query are available.
+   */
+  synchronized void onScopeResult(QueryScope scope, Table result) {
+    this.tableByScope.put(scope, result);
+
+    Map<NodeWithId<QueryPlanNodeKey>, Boolean> readiness = new HashMap<>();
+    Set<QueryPlanNodeKey> ready = new HashSet<>();
+    for (NodeWithId<QueryPlanNodeKey> node : this.dependencyGraph.nodes()) {
+      if (isReady(node, readiness)) {
+        ready.add(node.node);
+      }
+    }
+    // Executed in dependency order
+    new ExecutionPlan<>(this.dependencyGraph, node -> {
+      if (ready.contains(node) && this.evaluated.add(node)) {
+        this.evaluator.accept(node, new ExecutionContext(node.queryScope(),
+                this.tableByScope,
+                this.queryResolver.getColumns(),
+                this.queryResolver.getGroupColumns(),
+                this.queryResolver.getCompiledColumnSets(),
+                this.preparedQuery.limit));
+      }
+    }).execute();
+
+    notifyPartialResult();
+  }
+
+  private boolean isReady(NodeWithId<QueryPlanNodeKey> node, Map<NodeWithId<QueryPlanNodeKey>, Boolean> readiness) {
+    Boolean ready = readiness.get(node);
+    if (ready == null) {
+      ready = this.tableByScope.containsKey(node.node.queryScope());
+      for (NodeWithId<QueryPlanNodeKey> successor : this.dependencyGraph.successors(node)) {
+        ready &= isReady(successor, readiness);
+      }
+      readiness.put(node, ready);
+    }
+    return ready;
+  }
+
+  private void notifyPartialResult() {
+    Table table = this.tableByScope.get(this.queryResolver.getScope());
+    if (table == null) {
+      return;
+    }
+    Set<String> headers = new HashSet<>();
+    table.headers().forEach(h -> headers.add(h.name()));
+    List<String> available = this.query.measures.stream().map(Measure::alias).filter(headers::contains).toList();
+    if (available.size() == this.query.measures.size() || this.notifiedMeasures.containsAll(available)) {
+      return; // Nothing new, or the final result is about to be computed
+    }
+    this.notifiedMeasures.addAll(available);
+
+    List<String> columns = this.preparedQuery.columns.stream().map(SqlUtils::squashqlExpression).toList();
+    Table partial = TableUtils.selectAndOrderColumns((ColumnarTable) table, columns, available);
+    partial = TableUtils.replaceTotalCellValues((ColumnarTable) partial, !this.preparedQuery.rollupColumns.isEmpty());
+    // Orders by the available columns only
+    Map<String, Comparator<?>> comparators = new LinkedHashMap<>(Queries.getComparators(this.preparedQuery));
+    comparators.keySet().retainAll(union(columns, available));
+    partial = TableUtils.orderRows((ColumnarTable) partial, comparators, Collections.emptySet());
+    partial = TableUtils.selectAndOrderColumns((ColumnarTable) partial,
+            this.query.columns.stream().map(SqlUtils::squashqlExpression).toList(),
+            available);
+    this.partialResultConsumer.accept(partial);
+  }
+
+  private static Set<String> union(List<String> a, List<String> b) {
+    Set<String> union = new HashSet<>(a);
+    union.addAll(b);
+    return union;
+  }
+}
@@ -0,0 +1,41 @@
+package io.squashql.query;
+
+import io.squashql.query.database.CancellationToken;
+import io.squashql.query.dto.ApproximationDto;
+import io.squashql.query.dto.CacheStatsDto;
+import io.squashql.query.dto.QueueStatsDto;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * What a query is executed on behalf of, and what its execution reports back: the user, the token to cancel it and
+ * the builders filled with the statistics of the cache and of the queue, and with the approximation of the result if
+ * it has been computed on a sample of the rows. The builders are read once the execution has completed.
+ * <p>
+ * All the sampled database queries of an execution, including the ones of the queries of a merge executed with the
+ * same context, use {@link #samplingSeed} so that their measures are computed from the same rows.
+ * <p>
+ * The token is not closed by the executor, the creator of the context closes it.
+ */
+public final class QueryExecutionContext {
+
+  public final SquashQLUser user;
+  public final CancellationToken token;
+  public final CacheStatsDto.CacheStatsDtoBuilder cacheStats;
+  public final QueueStatsDto.QueueStatsDtoBuilder queueStats;
+  public final ApproximationDto.ApproximationDtoBuilder approximation;
+  public final int samplingSeed;
+
+  public QueryExecutionContext(SquashQLUser user, CancellationToken token) {
+    this(user, token, CacheStatsDto.builder());
+  }
+
+  public QueryExecutionContext(SquashQLUser user, CancellationToken token, CacheStatsDto.CacheStatsDtoBuilder cacheStats) {
+    this.user = user;
+    this.token = token;
+    this.cacheStats = cacheStats;
+    this.queueStats = QueueStatsDto.builder();
+    this.approximation = ApproximationDto.builder();
+    this.samplingSeed = ThreadLocalRandom.current().nextInt(1, Integer.MAX_VALUE);
+  }
+}
@@ -1,24 +1,41 @@
 package io.squashql.query;
 
+import io.squashql.query.agg.AggregationFunction;
 import io.squashql.query.cache.CaffeineQueryCache;
 import io.squashql.query.cache.EmptyQueryCache;
 import io.squashql.query.cache.GlobalCache;
+import io.squashql.query.cache.MaterializedAggregates;
 import io.squashql.query.cache.QueryCache;
 import io.squashql.query.compiled.*;
+import io.squashql.query.database.CancellationToken;
 import io.squashql.query.database.DatabaseQuery;
 import io.squashql.query.database.QueryEngine;
 import io.squashql.query.database.QueryScope;
 import io.squashql.query.database.SqlUtils;
 import io.squashql.query.dto.*;
+import io.squashql.query.exception.QueryCancelledException;
 import io.squashql.query.join.ExperimentalQueryJoinExecutor;
 import io.squashql.query.measure.visitor.PartialMeasureVisitor;
 import io.squashql.query.parameter.QueryCacheParameter;
+import io.squashql.query.parameter.QueryPriorityParameter;
+import io.squashql.query.parameter.QuerySamplingParameter;
+import io.squashql.query.parameter.QueryTimeoutParameter;
 import io.squashql.table.*;
 import io.squashql.type.TypedField;
+import io.squashql.util.BoundedExecutor;
 import io.squashql.util.Queries;
 import lombok.extern.slf4j.Slf4j;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
@@ -30,16 +47,52 @@ import static io.squashql.query.compiled.CompiledAggregatedMeasure.COMPILED_COUN
 public class QueryExecutor {
 
   public static final int LIMIT_DEFAULT_VALUE = Integer.parseInt(System.getProperty("squashql.query.limit", Integer.toString(10_000)));
+  /**
+   * The limit of the exported queries computed by SquashQL, large enough to keep all the rows. One is added to the
+   * limit of some intermediate queries so it cannot be {@link Integer#MAX_VALUE}.
+   */
+  private static final int EXPORT_LIMIT = Integer.MAX_VALUE - 1;
   public final QueryEngine<?> queryEngine;
   public final QueryCache queryCache;
+  /**
+   * The executor in which the queries sent to the database are executed (unless the engine is itself asynchronous) and
+   * in which the results are post-processed. See {@link BoundedExecutor}.
+   */
+  public final Executor executor;
+  /**
+   * Admission control of the queries sent to the database.
+   */
+  public final QueryScheduler scheduler;
+  /**
+   * The aggregates maintained by SquashQL from which the scopes they cover are computed, see
+   * {@link MaterializedAggregates}.
+   */
+  public final MaterializedAggregates materializedAggregates;
+  /**
+   * Records the queries sent to the database and routes them to the aggregate tables it created, see
+   * {@link AggregateAdvisor}.
+   */
+  public final AggregateAdvisor aggregateAdvisor;
 
   public QueryExecutor(QueryEngine<?> queryEngine) {
     this(queryEngine, new GlobalCache(CaffeineQueryCache::new));
   }
 
   public QueryExecutor(QueryEngine<?> queryEngine, QueryCache cache) {
+    this(queryEngine, cache, BoundedExecutor.DEFAULT);
+  }
+
+  public QueryExecutor(QueryEngine<?> queryEngine, QueryCache cache, Executor executor) {
+    this(queryEngine, cache, executor, new QueryScheduler());
+  }
+
+  public QueryExecutor(QueryEngine<?> queryEngine, QueryCache cache, Executor executor, QueryScheduler scheduler) {
     this.queryEngine = queryEngine;
     this.queryCache = cache;
+    this.executor = executor;
+    this.scheduler = scheduler;
+    this.materializedAggregates = new MaterializedAggregates(queryEngine);
+    this.aggregateAdvisor = new AggregateAdvisor(queryEngine);
   }
 
   private QueryCache getQueryCache(QueryCacheParameter queryCacheParameter, SquashQLUser user) {
@@ -62,26 +115,39 @@ public class QueryExecutor {
                                       SquashQLUser user,
                                       boolean replaceTotalCellsAndOrderRows,
                                       IntConsumer limitNotifier) {
+    return join(createCancellationToken(List.of(pivotTableQueryDto.query)),
+            token -> executePivotQueryAsync(pivotTableQueryDto, new QueryExecutionContext(user, token, cacheStatsDtoBuilder), replaceTotalCellsAndOrderRows, limitNotifier));
+  }
+
+  /**
+   * Asynchronous version of {@link #executePivotQuery(PivotTableQueryDto, CacheStatsDto.CacheStatsDtoBuilder, SquashQLUser, boolean, IntConsumer)}.
+   */
+  public CompletableFuture<PivotTable> executePivotQueryAsync(PivotTableQueryDto pivotTableQueryDto,
+                                                              QueryExecutionContext context,
+                                                              boolean replaceTotalCellsAndOrderRows,
+                                                              IntConsumer limitNotifier) {
     if (!pivotTableQueryDto.query.rollupColumns.isEmpty()) {
       throw new IllegalArgumentException("Rollup is not supported by this API");
     }
 
     PivotTableContext pivotTableContext = new PivotTableContext(pivotTableQueryDto);
     QueryDto preparedQuery = PivotTableUtils.prepareQuery(pivotTableQueryDto.query, pivotTableContext);
-    Table result = executeQuery(preparedQuery, cacheStatsDtoBuilder, user, false, limitNotifier, pivotTableContext);
-    if (replaceTotalCellsAndOrderRows) {
-      result = TableUtils.replaceTotalCellValues((ColumnarTable) result,
-              pivotTableQueryDto.rows.stream().map(SqlUtils::squashqlExpression).toList(),
-              pivotTableQueryDto.columns.stream().map(SqlUtils::squashqlExpression).toList());
-      result = TableUtils.orderRows((ColumnarTable) result, Queries.getComparators(preparedQuery), preparedQuery.columnSets.values());
-    }
+    return executeQueryAsync(preparedQuery, context, false, limitNotifier, pivotTableContext).thenApply(r -> {
+      Table result = r;
+      if (replaceTotalCellsAndOrderRows) {
+        result = TableUtils.replaceTotalCellValues((ColumnarTable) result,
+                pivotTableQueryDto.rows.stream().map(SqlUtils::squashqlExpression).toList(),
+                pivotTableQueryDto.columns.stream().map(SqlUtils::squashqlExpression).toList());
+        result = TableUtils.orderRows((ColumnarTable) result, Queries.getComparators(preparedQuery), preparedQuery.columnSets.values());
+      }
 
-    List<String> values = pivotTableQueryDto.query.measures.stream().map(Measure::alias).toList();
-    return new PivotTable(result,
-            pivotTableQueryDto.rows.stream().map(SqlUtils::squashqlExpression).toList(),
-            pivotTableQueryDto.columns.stream().map(SqlUtils::squashqlExpression).toList(),
-            values,
-            pivotTableQueryDto.hiddenTotals == null ? Collections.emptyList() : pivotTableQueryDto.hiddenTotals.stream().map(SqlUtils::squashqlExpression).toList());
+      List<String> values = pivotTableQueryDto.query.measures.stream().map(Measure::alias).toList();
+      return new PivotTable(result,
+              pivotTableQueryDto.rows.stream().map(SqlUtils::squashqlExpression).toList(),
+              pivotTableQueryDto.columns.stream().map(SqlUtils::squashqlExpression).toList(),
+              values,
+              pivotTableQueryDto.hiddenTotals == null ? Collections.emptyList() : pivotTableQueryDto.hiddenTotals.stream().map(SqlUtils::squashqlExpression).toList());
+    });
   }
 
   public Table executeRaw(String rawSqlQuery) {
@@ -101,6 +167,12 @@ public class QueryExecutor {
             createPivotTableContext(query));
   }
 
+  public CompletableFuture<Table> executeQueryAsync(QueryDto query) {
+    CancellationToken token = createCancellationToken(List.of(query));
+    return executeQueryAsync(query, new QueryExecutionContext(null, token), true, null, createPivotTableContext(query))
+            .whenComplete((r, e) -> token.close());
+  }
+
   /**
    * Tabular API. Tabular is a special case of Pivot Table
    */
@@ -110,6 +182,111 @@ public class QueryExecutor {
                             boolean replaceTotalCellsAndOrderRows,
                             IntConsumer limitNotifier,
                             PivotTableContext pivotTableContext) {
+    return join(createCancellationToken(List.of(query)),
+            token -> executeQueryAsync(query, new QueryExecutionContext(user, token, cacheStatsDtoBuilder), replaceTotalCellsAndOrderRows, limitNotifier, pivotTableContext));
+  }
+
+  /**
+   * Asynchronous version of {@link #executeQuery(QueryDto, CacheStatsDto.CacheStatsDtoBuilder, SquashQLUser, boolean, IntConsumer, PivotTableContext)}.
+   * The query is planned in the calling thread, then the queries of the different scopes are sent to the database
+   * concurrently, as admitted by the {@link #scheduler}, and the result is computed once all of them have completed,
+   * without blocking the calling thread.
+   * <p>
+   * When the token of the context is cancelled, the returned future completes with a {@link QueryCancelledException}
+   * and the queries still running are stopped if the engine supports it. The token is not closed by this method.
+   */
+  public CompletableFuture<Table> executeQueryAsync(QueryDto query,
+                                                    QueryExecutionContext context,
+                                                    boolean replaceTotalCellsAndOrderRows,
+                                                    IntConsumer limitNotifier,
+                                                    PivotTableContext pivotTableContext) {
+    return executeQueryAsync(query, context, replaceTotalCellsAndOrderRows, limitNotifier, pivotTableContext, null);
+  }
+
+  /**
+   * Same as {@link #executeQueryAsync(QueryDto, QueryExecutionContext, boolean, IntConsumer, PivotTableContext)}
+   * but the consumer is notified of the measures of the query available before the final result is computed: first
+   * the aggregates of the scope of the query as soon as they are received from the database, then the measures
+   * computed from them as the results of the other scopes are received. Each partial result contains all the columns
+   * of the query and the measures available so far, the final result is only returned by the future.
+   * <p>
+   * Queries with column sets are not evaluated progressively, only the final result is returned. The consumer is
+   * called from the thread receiving the results.
+   */
+  public CompletableFuture<Table> executeQueryProgressivelyAsync(QueryDto query,
+                                                                 QueryExecutionContext context,
+                                                                 Consumer<Table> partialResultConsumer) {
+    return executeQueryAsync(query, context, true, null, createPivotTableContext(query), partialResultConsumer);
+  }
+
+  /**
+   * Synchronous version of {@link #exportQueryAsync(QueryDto, RowWriter, QueryExecutionContext)}. The token is closed by
+   * this method.
+   */
+  public void exportQuery(QueryDto query, RowWriter writer, QueryExecutionContext context) {
+    join(context.token, t -> exportQueryAsync(query, writer, context));
+  }
+
+  /**
+   * Executes the query and writes all the rows of its result to the writer, the limit of the query being ignored. The
+   * rows of flat queries, whose measures are all computed by the database and which have neither rollup, grouping sets,
+   * column sets nor sampling, are streamed from the database, see
+   * {@link QueryEngine#executeStreaming(DatabaseQuery, CancellationToken, RowWriter)}. Their rows are ordered by the
+   * database as SquashQL orders them: by the orders of the query first, then by the columns in ascending order.
+   * <p>
+   * The other queries need the whole result to be computed by SquashQL, so they are executed as usual but without
+   * limit, and the final result is written. The writer is called from the threads of {@link #executor}.
+   */
+  public CompletableFuture<Void> exportQueryAsync(QueryDto query, RowWriter writer, QueryExecutionContext context) {
+    QueryDto preparedQuery = prepareQuery(query, createPivotTableContext(query));
+    QueryResolver queryResolver = new QueryResolver(preparedQuery, this.queryEngine.datastore().storeByName());
+    List<CompiledMeasure> measures = preparedQuery.measures.stream().map(queryResolver.getMeasures()::get).toList();
+    boolean flat = preparedQuery.columnSets.isEmpty()
+            && preparedQuery.rollupColumns.isEmpty()
+            && preparedQuery.groupingSets.isEmpty()
+            && !preparedQuery.parameters.containsKey(QuerySamplingParameter.KEY)
+            && measures.stream().allMatch(MeasureUtils::isPrimitive);
+    if (!flat) {
+      QueryDto unlimited = query.clone();
+      unlimited.limit = EXPORT_LIMIT;
+      return executeQueryAsync(unlimited, context, true, null, createPivotTableContext(unlimited))
+              .thenAccept(result -> {
+                writer.writeHeaders(result.headers());
+                result.forEachRow(writer::writeRow);
+              });
+    }
+
+    QueryScope scope = queryResolver.getScope();
+    List<CompiledOrderBy> orderBy = new ArrayList<>(scope.orderBy());
+    Set<TypedField> ordered = orderBy.stream().map(CompiledOrderBy::field).collect(Collectors.toSet());
+    for (TypedField column : scope.columns()) {
+      if (!ordered.contains(column)) {
+        orderBy.add(new CompiledOrderBy(column, new SimpleOrderDto(OrderKeywordDto.ASC, NullsOrderDto.LAST)));
+      }
+    }
+    DatabaseQuery databaseQuery = new DatabaseQuery(new QueryScope(scope.table(), scope.columns(), scope.whereCriteria(),
+            scope.havingCriteria(), scope.rollup(), scope.groupingSets(), scope.cteRecordTables(), orderBy, -1), measures);
+    // The columns added to the query to order the rows are not written
+    int[] selected = new int[query.columns.size() + measures.size()];
+    for (int i = 0; i < selected.length; i++) {
+      selected[i] = i < query.columns.size() ? i : scope.columns().size() + i - query.columns.size();
+    }
+    RowWriter selectingWriter = new ColumnSelectingRowWriter(writer, selected);
+
+    QueryPriorityParameter priorityParameter = (QueryPriorityParameter) preparedQuery.parameters.get(QueryPriorityParameter.KEY);
+    QueryPriorityParameter.Priority priority = priorityParameter == null ? QueryPriorityParameter.Priority.NORMAL : priorityParameter.priority;
+    return this.scheduler.submit(context.user, priority, context.token, context.queueStats,
+            () -> CompletableFuture.runAsync(() -> this.queryEngine.executeStreaming(databaseQuery, context.token, selectingWriter), this.executor));
+  }
+
+  private CompletableFuture<Table> executeQueryAsync(QueryDto query,
+                                                     QueryExecutionContext context,
+                                                     boolean replaceTotalCellsAndOrderRows,
+                                                     IntConsumer limitNotifier,
+                                                     PivotTableContext pivotTableContext,
+                                                     Consumer<Table> partialResultConsumer) {
+    SquashQLUser user = context.user;
+    CancellationToken token = context.token;
     QueryDto preparedQuery = prepareQuery(query, pivotTableContext);
 
     QueryResolver queryResolver = new QueryResolver(preparedQuery, this.queryEngine.datastore().storeByName());
@@ -126,12 +303,25 @@ public class QueryExecutor {
     });
     prefetchingPlan.execute();
 
-    Map<QueryScope, Table> tableByScope = new HashMap<>();
+    QueryPriorityParameter priorityParameter = (QueryPriorityParameter) preparedQuery.parameters.get(QueryPriorityParameter.KEY);
+    QueryPriorityParameter.Priority priority = priorityParameter == null ? QueryPriorityParameter.Priority.NORMAL : priorityParameter.priority;
+    double samplingPercentage = getSamplingPercentage((QuerySamplingParameter) preparedQuery.parameters.get(QuerySamplingParameter.KEY));
+    Map<QueryScope, CompletableFuture<Table>> futureByScope = new HashMap<>();
     for (QueryScope scope : prefetchQueryScopeByQueryScope.keySet()) {
       QueryScope prefetchQueryScope = prefetchQueryScopeByQueryScope.get(scope);
       Set<CompiledMeasure> measures = measuresByQueryScope.get(scope);
+      Table materialized = this.materializedAggregates.get(prefetchQueryScope, measures);
+      if (materialized != null) {
+        // Always up to date, no need to go through the cache
+        futureByScope.put(scope, CompletableFuture.completedFuture(materialized));
+        continue;
+      }
+
+      boolean sampled = canBeSampled(prefetchQueryScope, samplingPercentage);
       QueryCache.QueryCacheKey queryCacheKey = new QueryCache.QueryCacheKey(scope, user);
-      QueryCache queryCache = getQueryCache((QueryCacheParameter) preparedQuery.parameters.getOrDefault(QueryCacheParameter.KEY, new QueryCacheParameter(QueryCacheParameter.Action.USE)), user);
+      QueryCache queryCache = sampled
+              ? EmptyQueryCache.INSTANCE // estimates are not cached
+              : getQueryCache((QueryCacheParameter) preparedQuery.parameters.getOrDefault(QueryCacheParameter.KEY, new QueryCacheParameter(QueryCacheParameter.Action.USE)), user);
 
       Set<CompiledMeasure> measuresToExcludeFromCache = new HashSet<>(); // the measures not to put in cache
       Set<CompiledMeasure> cached = new HashSet<>();
@@ -148,30 +338,190 @@ public class QueryExecutor {
         }
       }
       notCached.addAll(measuresToExcludeFromCache);
+      long dataVersion = queryCache.dataVersion(queryCacheKey);
 
-      Table result;
+      CompletableFuture<Table> future;
       if (!notCached.isEmpty()) {
         notCached.add(COMPILED_COUNT);
-        result = this.queryEngine.execute(new DatabaseQuery(prefetchQueryScope, new ArrayList<>(notCached)));
-        result = TableUtils.replaceNullCellsByTotal(result, scope);
+        DatabaseQuery databaseQuery = new DatabaseQuery(prefetchQueryScope, new ArrayList<>(notCached), sampled ? samplingPercentage : 0, context.samplingSeed);
+        future = this.scheduler.submit(user, priority, token, context.queueStats, () -> executeInDatabase(databaseQuery, token))
+                .thenApply(result -> sampled ? scaleEstimates(databaseQuery, measures, result, context.approximation) : result)
+                .thenApply(result -> TableUtils.replaceNullCellsByTotal(result, scope));
       } else {
         // Create an empty result that will be populated by the query cache
-        result = queryCache.createRawResult(queryCacheKey);
+        future = CompletableFuture.completedFuture(queryCache.createRawResult(queryCacheKey));
       }
 
-      queryCache.contributeToResult(result, cached, queryCacheKey);
-      Set<CompiledMeasure> measuresToCache = notCached.stream().filter(m -> !measuresToExcludeFromCache.contains(m)).collect(Collectors.toSet());
-      queryCache.contributeToCache(result, measuresToCache, queryCacheKey);
+      futureByScope.put(scope, future.thenApply(result -> {
+        queryCache.contributeToResult(result, cached, queryCacheKey);
+        Set<CompiledMeasure> measuresToCache = notCached.stream().filter(m -> !measuresToExcludeFromCache.contains(m)).collect(Collectors.toSet());
+        queryCache.contributeToCache(result, measuresToCache, queryCacheKey, dataVersion);
+        return result;
+      }));
+    }
 
-      // The table in the cache contains null values for totals but in this map, we need to replace the nulls with totals
-      tableByScope.put(scope, result);
+    if (partialResultConsumer != null && preparedQuery.columnSets.isEmpty()) {
+      ProgressiveEvaluator progressiveEvaluator = new ProgressiveEvaluator(query, preparedQuery, queryResolver, dependencyGraph, partialResultConsumer);
+      futureByScope.replaceAll((scope, future) -> future.thenApply(t -> {
+        token.throwIfCancelled();
+        progressiveEvaluator.onScopeResult(scope, t);
+        return t;
+      }));
     }
 
+    CompletableFuture<Table> result = CompletableFuture.allOf(futureByScope.values().toArray(new CompletableFuture[0]))
+            .thenApply(__ -> {
+              token.throwIfCancelled();
+              // The table in the cache contains null values for totals but in this map, we need to replace the nulls with totals
+              Map<QueryScope, Table> tableByScope = new HashMap<>();
+              futureByScope.forEach((scope, future) -> tableByScope.put(scope, future.join()));
+              return computeResult(query, preparedQuery, queryResolver, dependencyGraph, tableByScope, context.cacheStats, user, replaceTotalCellsAndOrderRows, limitNotifier);
+            });
+    // Do not wait for the engines to notice the cancellation
+    CancellationToken.Registration registration = token.onCancel(() -> result.completeExceptionally(new QueryCancelledException(token.reason())));
+    result.whenComplete((r, e) -> registration.close());
+    return result;
+  }
+
+  /**
+   * Sends the query to the database, or the equivalent query on an aggregate table if there is one, and records its
+   * execution.
+   */
+  private CompletableFuture<Table> executeInDatabase(DatabaseQuery query, CancellationToken token) {
+    if (query.isSampled()) {
+      // The aggregate tables are not sampled, and the recorded times are the ones of exact queries
+      return this.queryEngine.executeAsync(query, this.executor, token);
+    }
+    DatabaseQuery routed = this.aggregateAdvisor.route(query);
+    long start = System.nanoTime();
+    CompletableFuture<Table> future = this.queryEngine.executeAsync(routed, this.executor, token).whenComplete((result, e) -> {
+      if (e == null) {
+        this.aggregateAdvisor.record(query, routed != query, Duration.ofNanos(System.nanoTime() - start), result.count());
+      }
+    });
+    if (routed == query) {
+      return future;
+    }
+    // The aliases are kept by the rewriting, the result is attached to the measures of the original query.
+    Set<String> counts = query.measures().stream()
+            .filter(m -> m instanceof CompiledAggregatedMeasure cam && cam.aggregationFunction().equals(AggregationFunction.COUNT))
+            .map(CompiledMeasure::alias)
+            .collect(Collectors.toSet());
+    return future.thenApply(result -> {
+      List<Header> headers = new ArrayList<>(result.headers().size());
+      List<List<Object>> values = new ArrayList<>(result.headers().size());
+      for (int i = 0; i < result.headers().size(); i++) {
+        Header header = result.headers().get(i);
+        List<Object> column = result.getColumn(i);
+        if (counts.contains(header.name())) {
+          // The counts are summed from the aggregate table and some databases return the sum of integers as a decimal
+          header = new Header(header.name(), long.class, header.isMeasure());
+          column = column.stream().map(v -> v == null ? null : (Object) ((Number) v).longValue()).collect(Collectors.toList());
+        }
+        headers.add(header);
+        values.add(column);
+      }
+      return new ColumnarTable(headers, new HashSet<>(query.measures()), values);
+    });
+  }
+
+  private static double getSamplingPercentage(QuerySamplingParameter samplingParameter) {
+    if (samplingParameter == null) {
+      return 0;
+    }
+    if (!(samplingParameter.percentage > 0 && samplingParameter.percentage <= 100)) {
+      throw new IllegalArgumentException("The sampling percentage must be in ]0, 100] but was " + samplingParameter.percentage);
+    }
+    return samplingParameter.percentage;
+  }
+
+  /**
+   * Only the rows of a table can be sampled, the query of a sub-query is executed exactly.
+   */
+  private boolean canBeSampled(QueryScope scope, double samplingPercentage) {
+    return samplingPercentage > 0
+            && scope.table() instanceof MaterializedTable
+            && this.queryEngine.queryRewriter().tableSample(samplingPercentage, 1) != null;
+  }
+
+  /**
+   * Scales the sums and counts computed on a sample of the rows to estimate their values on all the rows, and records
+   * the error bound of the estimates.
+   *
+   * @param query    the sampled query
+   * @param measures the measures of the scope, the estimates of the other measures of the query are not reported
+   */
+  private static Table scaleEstimates(DatabaseQuery query, Set<CompiledMeasure> measures, Table result, ApproximationDto.ApproximationDtoBuilder approximationDtoBuilder) {
+    double factor = 100 / query.samplingPercentage();
+    long sampledRows = result.count() == 0 ? 0 : Long.MAX_VALUE;
+    List<Object> counts = result.getColumnValues(COMPILED_COUNT.alias());
+    for (Object count : counts) {
+      sampledRows = Math.min(sampledRows, ((Number) count).longValue());
+    }
+
+    Set<String> estimated = new HashSet<>();
+    List<List<Object>> values = new ArrayList<>(result.headers().size());
+    for (int i = 0; i < result.headers().size(); i++) {
+      List<Object> column = result.getColumn(i);
+      Header header = result.headers().get(i);
+      CompiledMeasure measure = header.isMeasure() ? findMeasure(query.measures(), header.name()) : null;
+      if (measure instanceof CompiledAggregatedMeasure cam
+              && !cam.distinct()
+              && (cam.aggregationFunction().equals(AggregationFunction.SUM) || cam.aggregationFunction().equals(AggregationFunction.COUNT))) {
+        column = column.stream().map(v -> scale(v, factor)).collect(Collectors.toCollection(ArrayList::new));
+        if (measures.contains(measure)) {
+          estimated.add(measure.alias());
+        }
+      }
+      values.add(column);
+    }
+    approximationDtoBuilder.record(query.samplingPercentage(), sampledRows, estimated);
+    return new ColumnarTable(result.headers(), new HashSet<>(query.measures()), values);
+  }
+
+  private static CompiledMeasure findMeasure(List<CompiledMeasure> measures, String alias) {
+    for (CompiledMeasure measure : measures) {
+      if (measure.alias().equals(alias)) {
+        return measure;
+      }
+    }
+    return null;
+  }
+
+  private static Object scale(Object value, double factor) {
+    if (value instanceof Double d) {
+      return d * factor;
+    } else if (value instanceof Float f) {
+      return (float) (f * factor);
+    } else if (value instanceof Long l) {
+      return Math.round(l * factor);
+    } else if (value instanceof Integer i) {
+      return (int) Math.round(i * factor);
+    } else if (value instanceof BigDecimal bd) {
+      return bd.multiply(BigDecimal.valueOf(factor));
+    } else if (value instanceof BigInteger bi) {
+      // Keeps the type of the column, e.g. the sums of integers computed by some databases
+      return new BigDecimal(bi).multiply(BigDecimal.valueOf(factor)).setScale(0, RoundingMode.HALF_UP).toBigInteger();
+    } else if (value instanceof Number n) {
+      return n.doubleValue() * factor;
+    }
+    return value; // null
+  }
+
+  private Table computeResult(QueryDto query,
+                              QueryDto preparedQuery,
+                              QueryResolver queryResolver,
+                              DependencyGraph<QueryPlanNodeKey> dependencyGraph,
+                              Map<QueryScope, Table> tableByScope,
+                              CacheStatsDto.CacheStatsDtoBuilder cacheStatsDtoBuilder,
+                              SquashQLUser user,
+                              boolean replaceTotalCellsAndOrderRows,
+                              IntConsumer limitNotifier) {
     if (preparedQuery.columnSets.containsKey(GROUP)) {
       // Apply this as it modifies the "shape" of the result
       GroupColumnSetDto columnSet = (GroupColumnSetDto) preparedQuery.columnSets.get(GROUP);
       // Reshape all results
-      tableByScope.replaceAll((scope, table) -> GrouperExecutor.group(table, columnSet));
+      GrouperExecutor.group(tableByScope, columnSet);
     }
 
     // Here we take the global plan and execute the plans for a given scope one by one, in dependency order. The order
@@ -214,6 +564,39 @@ public class QueryExecutor {
     return result;
   }
 
+  /**
+   * Creates the token to cancel the execution of the given queries. Its timeout is the smallest of the
+   * {@link QueryTimeoutParameter} of the queries, or {@link CancellationToken#DEFAULT_TIMEOUT} if none is set.
+   */
+  public static CancellationToken createCancellationToken(List<QueryDto> queries) {
+    Duration timeout = queries.stream()
+            .map(q -> (QueryTimeoutParameter) q.parameters.get(QueryTimeoutParameter.KEY))
+            .filter(Objects::nonNull)
+            .map(p -> Duration.ofSeconds(p.seconds))
+            .min(Comparator.naturalOrder())
+            .orElse(CancellationToken.DEFAULT_TIMEOUT);
+    return new CancellationToken(timeout);
+  }
+
+  /**
+   * Executes the query with the given token, waits for the result and rethrows the exception it completed with, if
+   * any, as it would have been thrown by a synchronous execution. The token is closed afterward.
+   */
+  private static <T> T join(CancellationToken token, Function<CancellationToken, CompletableFuture<T>> execution) {
+    try {
+      return execution.apply(token).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException re) {
+        throw re;
+      } else if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw e;
+    } finally {
+      token.close();
+    }
+  }
+
   private static QueryDto prepareQuery(QueryDto query, PivotTableContext pivotTableContext) {
     QueryDto deepCopy = query.clone();
     deepCopy.limit = query.limit < 0 ? LIMIT_DEFAULT_VALUE : query.limit;
@@ -274,6 +657,44 @@ public class QueryExecutor {
     return builder.build(queriedMeasures.stream().map(m -> new QueryPlanNodeKey(queryScope, m)).toList());
   }
 
+  private static final class ColumnSelectingRowWriter implements RowWriter, RowCursor {
+
+    private final RowWriter writer;
+    private final int[] selected;
+    private RowCursor row;
+
+    private ColumnSelectingRowWriter(RowWriter writer, int[] selected) {
+      this.writer = writer;
+      this.selected = selected;
+    }
+
+    @Override
+    public void writeHeaders(List<Header> headers) {
+      this.writer.writeHeaders(Arrays.stream(this.selected).mapToObj(headers::get).toList());
+    }
+
+    @Override
+    public void writeRow(RowCursor row) {
+      this.row = row;
+      this.writer.writeRow(this);
+    }
+
+    @Override
+    public int index() {
+      return this.row.index();
+    }
+
+    @Override
+    public int size() {
+      return this.selected.length;
+    }
+
+    @Override
+    public Object get(int columnIndex) {
+      return this.row.get(this.selected[columnIndex]);
+    }
+  }
+
   public record QueryPlanNodeKey(QueryScope queryScope, CompiledMeasure measure) {
   }
 
@@ -289,11 +710,20 @@ public class QueryExecutor {
   }
 
   public PivotTable executePivotQueryMerge(PivotTableQueryMergeDto pivotTableQueryMergeDto, SquashQLUser user) {
-    return QueryMergeExecutor.executePivotQueryMerge(this, pivotTableQueryMergeDto, user);
+    return join(createCancellationToken(pivotTableQueryMergeDto.query.queries),
+            token -> executePivotQueryMergeAsync(pivotTableQueryMergeDto, new QueryExecutionContext(user, token)));
+  }
+
+  public CompletableFuture<PivotTable> executePivotQueryMergeAsync(PivotTableQueryMergeDto pivotTableQueryMergeDto, QueryExecutionContext context) {
+    return QueryMergeExecutor.executePivotQueryMerge(this, pivotTableQueryMergeDto, context);
   }
 
   public Table executeQueryMerge(QueryMergeDto queryMerge, SquashQLUser user) {
-    return QueryMergeExecutor.executeQueryMerge(this, queryMerge, user);
+    return join(createCancellationToken(queryMerge.queries), token -> executeQueryMergeAsync(queryMerge, new QueryExecutionContext(user, token)));
+  }
+
+  public CompletableFuture<Table> executeQueryMergeAsync(QueryMergeDto queryMerge, QueryExecutionContext context) {
+    return QueryMergeExecutor.executeQueryMerge(this, queryMerge, context);
   }
 
   public Table executeExperimentalQueryMerge(QueryJoinDto queryJoin) {
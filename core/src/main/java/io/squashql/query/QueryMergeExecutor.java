@@ -8,7 +8,6 @@ import io.squashql.util.Queries;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -17,52 +16,50 @@ import static io.squashql.query.QueryExecutor.createPivotTableContext;
 
 public class QueryMergeExecutor {
 
-  public static Table executeQueryMerge(QueryExecutor queryExecutor, QueryMergeDto queryMerge, SquashQLUser user) {
-    Function<QueryDto, Table> executor = query -> queryExecutor.executeQuery(
+  public static CompletableFuture<Table> executeQueryMerge(QueryExecutor queryExecutor, QueryMergeDto queryMerge, QueryExecutionContext context) {
+    Function<QueryDto, CompletableFuture<Table>> executor = query -> queryExecutor.executeQueryAsync(
             query,
-            CacheStatsDto.builder(),
-            user,
+            context,
             false,
             limit -> {
               throw new LimitExceedException("Result of " + query + " is too big (limit=" + limit + ")");
             },
-            createPivotTableContext(query)
-    );
+            createPivotTableContext(query));
     return execute(queryMerge,
             t -> (ColumnarTable) TableUtils.replaceTotalCellValues((ColumnarTable) t, true),
             executor);
   }
 
-  public static PivotTable executePivotQueryMerge(QueryExecutor queryExecutor, PivotTableQueryMergeDto pivotTableQueryMergeDto, SquashQLUser user) {
+  public static CompletableFuture<PivotTable> executePivotQueryMerge(QueryExecutor queryExecutor, PivotTableQueryMergeDto pivotTableQueryMergeDto, QueryExecutionContext context) {
     List<Field> rows = pivotTableQueryMergeDto.rows;
     List<Field> columns = pivotTableQueryMergeDto.columns;
-    Function<QueryDto, Table> executor = query -> {
+    Function<QueryDto, CompletableFuture<Table>> executor = query -> {
       Set<Field> columnsFromColumnSets = query.columnSets.values().stream().flatMap(cs -> cs.getNewColumns().stream()).collect(Collectors.toSet());
       List<Field> localRows = getLocalFields(rows, query, columnsFromColumnSets);
       List<Field> localColumns = getLocalFields(columns, query, columnsFromColumnSets);
       query.minify = false;
 
-      return queryExecutor.executePivotQuery(
+      return queryExecutor.executePivotQueryAsync(
               new PivotTableQueryDto(query, localRows, localColumns),
-              CacheStatsDto.builder(),
-              user,
+              context,
               false,
               limit -> {
                 throw new LimitExceedException("Result of " + query + " is too big (limit=" + limit + ")");
               })
-              .table;
+              .thenApply(pt -> pt.table);
     };
 
     Function<Table, ColumnarTable> replaceTotalCellValuesFunction = t -> (ColumnarTable) TableUtils.replaceTotalCellValues((ColumnarTable) t,
             rows.stream().map(SqlUtils::squashqlExpression).toList(),
             columns.stream().map(SqlUtils::squashqlExpression).toList());
-    ColumnarTable table = execute(pivotTableQueryMergeDto.query, replaceTotalCellValuesFunction, executor);
-    List<String> values = table.headers().stream().filter(Header::isMeasure).map(Header::name).toList();
-    return new PivotTable(table,
-            rows.stream().map(SqlUtils::squashqlExpression).toList(),
-            columns.stream().map(SqlUtils::squashqlExpression).toList(),
-            values,
-            Collections.emptyList()); // not supported for now
+    return execute(pivotTableQueryMergeDto.query, replaceTotalCellValuesFunction, executor).thenApply(table -> {
+      List<String> values = table.headers().stream().filter(Header::isMeasure).map(Header::name).toList();
+      return new PivotTable(table,
+              rows.stream().map(SqlUtils::squashqlExpression).toList(),
+              columns.stream().map(SqlUtils::squashqlExpression).toList(),
+              values,
+              Collections.emptyList()); // not supported for now
+    });
   }
 
   private static List<Field> getLocalFields(List<Field> elements, QueryDto query, Set<Field> columnsFromColumnSets) {
@@ -76,9 +73,9 @@ public class QueryMergeExecutor {
     return localElements;
   }
 
-  private static ColumnarTable execute(QueryMergeDto queryMerge,
-                                       Function<Table, ColumnarTable> replaceTotalCellValuesFunction,
-                                       Function<QueryDto, Table> executor) {
+  private static CompletableFuture<Table> execute(QueryMergeDto queryMerge,
+                                                  Function<Table, ColumnarTable> replaceTotalCellValuesFunction,
+                                                  Function<QueryDto, CompletableFuture<Table>> executor) {
     Map<String, Comparator<?>> comparators = new LinkedHashMap<>();
     Set<ColumnSet> columnSets = new HashSet<>();
     List<CompletableFuture<Table>> futures = new ArrayList<>();
@@ -86,25 +83,15 @@ public class QueryMergeExecutor {
       // Use putIfAbsent because the comparators of the first query take precedence over the second's
       Queries.getComparators(q).forEach(comparators::putIfAbsent);
       columnSets.addAll(q.columnSets.values());
-      futures.add(CompletableFuture.supplyAsync(() -> executor.apply(q)));
+      // thenCompose so that an exception thrown while planning the query completes the future instead of being thrown
+      futures.add(CompletableFuture.completedFuture(q).thenCompose(executor));
     }
 
-    try {
-      return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-              .thenApply(__ -> {
-                ColumnarTable table = (ColumnarTable) MergeTables.mergeTables(futures.stream().map(CompletableFuture::join).toList(), queryMerge.joinTypes);
-                table = replaceTotalCellValuesFunction.apply(table);
-                return (ColumnarTable) TableUtils.orderRows(table, comparators, columnSets);
-              })
-              .join();
-    } catch (Exception e) {
-      if (e instanceof CompletionException) {
-        Throwable cause = e.getCause();
-        if (cause instanceof LimitExceedException lee) {
-          throw lee;
-        }
-      }
-      throw new RuntimeException(e);
-    }
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .thenApply(__ -> {
+              ColumnarTable table = (ColumnarTable) MergeTables.mergeTables(futures.stream().map(CompletableFuture::join).toList(), queryMerge.joinTypes);
+              table = replaceTotalCellValuesFunction.apply(table);
+              return TableUtils.orderRows(table, comparators, columnSets);
+            });
   }
 }
@@ -0,0 +1,207 @@
+package io.squashql.query;
+
+import io.squashql.query.database.CancellationToken;
+import io.squashql.query.dto.QueueStatsDto;
+import io.squashql.query.exception.QueryCancelledException;
+import io.squashql.query.parameter.QueryPriorityParameter.Priority;
+import io.squashql.util.BoundedExecutor;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Admission control of the queries sent to the database. At most {@link #maxConcurrency} queries run at the same time,
+ * and at most {@link #maxConcurrencyPerUser} for a given user. The other queries wait in a queue per user.
+ * <p>
+ * When a slot is free, the next query is taken from the user that received the smallest share of the database so far
+ * (weighted fair queueing): each admitted query adds {@code 1 / weight} to the virtual time of its user, the weight
+ * being given by its {@link Priority}. A user opening a dashboard with many widgets thus cannot take the database
+ * over. Within the queue of a user, queries of higher priority go first.
+ */
+public class QueryScheduler {
+
+  public static final int MAX_CONCURRENCY = Integer.parseInt(System.getProperty("io.squashql.scheduler.max-concurrency",
+          Integer.toString(BoundedExecutor.MAX_CONCURRENCY)));
+  public static final int MAX_CONCURRENCY_PER_USER = Integer.parseInt(System.getProperty("io.squashql.scheduler.max-concurrency-per-user",
+          Integer.toString(MAX_CONCURRENCY)));
+
+  public final int maxConcurrency;
+  public final int maxConcurrencyPerUser;
+  // All the fields below are guarded by this.
+  private final Map<SquashQLUser, UserQueue> queueByUser = new HashMap<>();
+  private int running;
+  private long sequence;
+  private double virtualTime;
+
+  public QueryScheduler() {
+    this(MAX_CONCURRENCY, MAX_CONCURRENCY_PER_USER);
+  }
+
+  public QueryScheduler(int maxConcurrency, int maxConcurrencyPerUser) {
+    if (maxConcurrency <= 0 || maxConcurrencyPerUser <= 0) {
+      throw new IllegalArgumentException("Concurrency limits must be positive but were " + maxConcurrency + " and " + maxConcurrencyPerUser);
+    }
+    this.maxConcurrency = maxConcurrency;
+    this.maxConcurrencyPerUser = maxConcurrencyPerUser;
+  }
+
+  /**
+   * Starts the given query as soon as the limits allow it. The slot is released when the future returned by the query
+   * completes.
+   *
+   * @param user     the user executing the query, can be null
+   * @param priority the priority of the query
+   * @param token    if cancelled while the query is waiting, the query is not started
+   * @param stats    where the time spent waiting is recorded
+   * @param query    starts the query
+   * @return a future completed with the result of the query
+   */
+  public <T> CompletableFuture<T> submit(SquashQLUser user,
+                                         Priority priority,
+                                         CancellationToken token,
+                                         QueueStatsDto.QueueStatsDtoBuilder stats,
+                                         Supplier<CompletableFuture<T>> query) {
+    Task<T> task;
+    synchronized (this) {
+      UserQueue queue = this.queueByUser.computeIfAbsent(user, u -> new UserQueue(this.virtualTime));
+      task = new Task<>(queue, priority, this.sequence++, token, stats, query);
+      queue.tasks.add(task);
+    }
+    dispatch();
+    return task.result;
+  }
+
+  /**
+   * Returns the number of queries waiting to be started.
+   */
+  public synchronized int queued() {
+    return this.queueByUser.values().stream().mapToInt(q -> q.tasks.size()).sum();
+  }
+
+  private void dispatch() {
+    List<Task<?>> toStart = new ArrayList<>();
+    synchronized (this) {
+      while (this.running < this.maxConcurrency) {
+        UserQueue next = null;
+        for (UserQueue queue : this.queueByUser.values()) {
+          if (!queue.tasks.isEmpty() && queue.running < this.maxConcurrencyPerUser
+                  && (next == null || queue.compareTo(next) < 0)) {
+            next = queue;
+          }
+        }
+        if (next == null) {
+          break;
+        }
+        Task<?> task = next.tasks.poll();
+        if (!task.token.isCancelled()) {
+          this.virtualTime = next.virtualTime;
+          next.virtualTime += 1d / task.priority.weight;
+          next.running++;
+          this.running++;
+          task.admitted = true;
+        }
+        toStart.add(task);
+      }
+      this.queueByUser.values().removeIf(q -> q.tasks.isEmpty() && q.running == 0);
+    }
+    toStart.forEach(this::start);
+  }
+
+  private <T> void start(Task<T> task) {
+    if (!task.admitted) {
+      task.result.completeExceptionally(new QueryCancelledException(task.token.reason()));
+      return;
+    }
+    if (task.token.isCancelled()) {
+      // Cancelled after it has been admitted
+      release(task);
+      task.result.completeExceptionally(new QueryCancelledException(task.token.reason()));
+      return;
+    }
+
+    task.stats.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - task.submissionTime));
+    CompletableFuture<T> future;
+    try {
+      future = task.query.get();
+    } catch (RuntimeException e) {
+      future = CompletableFuture.failedFuture(e);
+    }
+    future.whenComplete((r, e) -> {
+      release(task);
+      if (e == null) {
+        task.result.complete(r);
+      } else {
+        task.result.completeExceptionally(e);
+      }
+    });
+  }
+
+  /**
+   * Gives back the slot taken by the task and starts the next queries.
+   */
+  private void release(Task<?> task) {
+    synchronized (this) {
+      task.queue.running--;
+      this.running--;
+      if (task.queue.running == 0 && task.queue.tasks.isEmpty()) {
+        this.queueByUser.values().remove(task.queue);
+      }
+    }
+    dispatch();
+  }
+
+  private static class UserQueue implements Comparable<UserQueue> {
+
+    // Higher priority first, then first in first out.
+    private final Queue<Task<?>> tasks = new PriorityQueue<>(Comparator
+            .comparingInt((Task<?> t) -> -t.priority.weight)
+            .thenComparingLong(t -> t.sequence));
+    private double virtualTime;
+    private int running;
+
+    private UserQueue(double virtualTime) {
+      this.virtualTime = virtualTime;
+    }
+
+    /**
+     * Smallest virtual time first. On a tie, the queue whose next query was submitted first.
+     */
+    @Override
+    public int compareTo(UserQueue other) {
+      int c = Double.compare(this.virtualTime, other.virtualTime);
+      return c != 0 ? c : Long.compare(this.tasks.peek().sequence, other.tasks.peek().sequence);
+    }
+  }
+
+  private static class Task<T> {
+
+    private final UserQueue queue;
+    private final Priority priority;
+    private final long sequence;
+    private final CancellationToken token;
+    private final QueueStatsDto.QueueStatsDtoBuilder stats;
+    private final Supplier<CompletableFuture<T>> query;
+    private final long submissionTime = System.nanoTime();
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    /**
+     * Whether the task has taken a slot, guarded by the scheduler.
+     */
+    private boolean admitted;
+
+    private Task(UserQueue queue,
+                 Priority priority,
+                 long sequence,
+                 CancellationToken token,
+                 QueueStatsDto.QueueStatsDtoBuilder stats,
+                 Supplier<CompletableFuture<T>> query) {
+      this.queue = queue;
+      this.priority = priority;
+      this.sequence = sequence;
+      this.token = token;
+      this.stats = stats;
+      this.query = query;
+    }
+  }
+}
@@ -21,6 +21,14 @@ public class SingleGroupComparisonExecutor extends AComparisonExecutor<CompiledC
 
   private final TypedField field;
 
+  @Override
+  public Object shiftKey(CompiledComparisonMeasureReferencePosition cm) {
+    return new ShiftKey(this.field, cm.referencePosition(), cm.elements());
+  }
+
+  private record ShiftKey(TypedField field, Map<TypedField, String> referencePosition, List<?> elements) {
+  }
+
   @Override
   protected BiPredicate<Object[], Header[]> createShiftProcedure(CompiledComparisonMeasureReferencePosition cm,
                                                                  ObjectIntMap<String> indexByColumn,
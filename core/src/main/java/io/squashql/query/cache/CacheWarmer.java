@@ -0,0 +1,175 @@
+package io.squashql.query.cache;
+
+import io.squashql.jackson.JacksonUtil;
+import io.squashql.query.QueryExecutor;
+import io.squashql.query.dto.CacheSnapshotDto;
+import io.squashql.query.dto.PivotTableQueryDto;
+import io.squashql.query.dto.QueryDto;
+import io.squashql.query.parameter.QueryCacheParameter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the most recently executed queries so that they can be saved to disk when the server stops and
+ * replayed in the background when it starts again, to warm up the query cache before users hit it.
+ * <p>
+ * Only the queries are saved, not the results: the data may have changed while the server was down and replaying the
+ * queries is the only way to be sure the cache is consistent with the database.
+ */
+@Slf4j
+public class CacheWarmer {
+
+  public static final int MAX_QUERIES;
+  public static final int PARALLELISM;
+
+  static {
+    String size = System.getProperty("io.squashql.cache.warmup.size", Integer.toString(128));
+    MAX_QUERIES = Integer.parseInt(size);
+    String parallelism = System.getProperty("io.squashql.cache.warmup.parallelism", Integer.toString(2));
+    PARALLELISM = Integer.parseInt(parallelism);
+  }
+
+  private final int maxQueries;
+  /**
+   * The executed queries, either {@link QueryDto} or {@link PivotTableQueryDto}, with the sequence number of their last
+   * execution. The queries are kept as they are and only serialized when a snapshot is taken so that recording them
+   * costs almost nothing to the queries being executed.
+   */
+  private final ConcurrentHashMap<Object, Long> queries = new ConcurrentHashMap<>();
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicBoolean trimming = new AtomicBoolean();
+
+  public CacheWarmer() {
+    this(MAX_QUERIES);
+  }
+
+  public CacheWarmer(int maxQueries) {
+    this.maxQueries = maxQueries;
+  }
+
+  public void record(QueryDto query) {
+    if (usesCache(query)) {
+      recordQuery(query);
+    }
+  }
+
+  public void record(PivotTableQueryDto query) {
+    if (usesCache(query.query)) {
+      recordQuery(query);
+    }
+  }
+
+  private void recordQuery(Object query) {
+    this.queries.put(query, this.sequence.incrementAndGet());
+    // Let the map grow up to twice its capacity before trimming it to amortize the cost of sorting the entries.
+    if (this.queries.size() > 2 * this.maxQueries && this.trimming.compareAndSet(false, true)) {
+      try {
+        List<Map.Entry<Object, Long>> entries = sortedEntries();
+        for (Map.Entry<Object, Long> entry : entries.subList(0, Math.max(0, entries.size() - this.maxQueries))) {
+          this.queries.remove(entry.getKey(), entry.getValue()); // Keeps it if it has been executed again meanwhile
+        }
+      } finally {
+        this.trimming.set(false);
+      }
+    }
+  }
+
+  private List<Map.Entry<Object, Long>> sortedEntries() {
+    List<Map.Entry<Object, Long>> entries = new ArrayList<>();
+    this.queries.forEach((query, seq) -> entries.add(Map.entry(query, seq)));
+    entries.sort(Map.Entry.comparingByValue());
+    return entries;
+  }
+
+  private static boolean usesCache(QueryDto query) {
+    QueryCacheParameter parameter = (QueryCacheParameter) query.parameters.get(QueryCacheParameter.KEY);
+    return parameter == null || parameter.action == QueryCacheParameter.Action.USE;
+  }
+
+  /**
+   * Returns the most recently executed queries, the most recently executed last.
+   */
+  public CacheSnapshotDto snapshot() {
+    List<Map.Entry<Object, Long>> entries = sortedEntries();
+    CacheSnapshotDto snapshot = new CacheSnapshotDto();
+    for (Map.Entry<Object, Long> entry : entries.subList(Math.max(0, entries.size() - this.maxQueries), entries.size())) {
+      if (entry.getKey() instanceof QueryDto query) {
+        snapshot.queries.add(query);
+      } else {
+        snapshot.pivotQueries.add((PivotTableQueryDto) entry.getKey());
+      }
+    }
+    return snapshot;
+  }
+
+  public void save(Path path) {
+    try {
+      Files.writeString(path, JacksonUtil.serialize(snapshot()));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Reads a snapshot written by {@link #save(Path)} or written by hand to list the queries to warm up the cache with.
+   * Returns an empty snapshot if the file does not exist.
+   */
+  public static CacheSnapshotDto load(Path path) {
+    if (!Files.exists(path)) {
+      return new CacheSnapshotDto();
+    }
+    try {
+      return JacksonUtil.deserialize(Files.readString(path), CacheSnapshotDto.class);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Executes the queries of the snapshot in the background with at most {@code parallelism} queries at the same time.
+   * The queries that fail are logged and ignored. The replayed queries are recorded.
+   */
+  public CompletableFuture<Void> replay(QueryExecutor queryExecutor, CacheSnapshotDto snapshot, int parallelism) {
+    ExecutorService executorService = Executors.newFixedThreadPool(parallelism, r -> {
+      Thread thread = new Thread(r, "squashql-cache-warmer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (QueryDto query : snapshot.queries) {
+      futures.add(replay(() -> {
+        queryExecutor.executeQuery(query);
+        record(query);
+      }, query, executorService));
+    }
+    for (PivotTableQueryDto query : snapshot.pivotQueries) {
+      futures.add(replay(() -> {
+        queryExecutor.executePivotQuery(query);
+        record(query);
+      }, query, executorService));
+    }
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .whenComplete((r, e) -> executorService.shutdown());
+  }
+
+  private static CompletableFuture<Void> replay(Runnable execution, Object query, ExecutorService executorService) {
+    return CompletableFuture.runAsync(execution, executorService)
+            .exceptionally(e -> {
+              log.warn("Cannot replay " + query + " to warm up the cache", e);
+              return null;
+            });
+  }
+}
@@ -6,7 +6,6 @@ import com.github.benmanes.caffeine.cache.RemovalListener;
 import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
 import com.github.benmanes.caffeine.cache.stats.StatsCounter;
-import com.google.common.util.concurrent.Striped;
 import io.squashql.query.CountMeasure;
 import io.squashql.query.Header;
 import io.squashql.query.SquashQLUser;
@@ -15,18 +14,18 @@ import io.squashql.query.database.SqlUtils;
 import io.squashql.query.dictionary.ObjectArrayDictionary;
 import io.squashql.query.dto.CacheStatsDto;
 import io.squashql.table.ColumnarTable;
+import io.squashql.table.RowCursor;
 import io.squashql.table.Table;
 import io.squashql.type.TypedField;
-import lombok.AllArgsConstructor;
 import org.eclipse.collections.api.list.primitive.MutableIntList;
 import org.eclipse.collections.impl.list.mutable.primitive.IntArrayList;
 
 import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import static io.squashql.query.compiled.CompiledAggregatedMeasure.COMPILED_COUNT;
 
@@ -45,12 +44,16 @@ public class CaffeineQueryCache implements QueryCache {
 
   private volatile StatsCounter scopeCounter = new ConcurrentStatsCounter();
   private volatile StatsCounter measureCounter = new ConcurrentStatsCounter();
-  private final Striped<ReadWriteLock> lock;
 
   /**
-   * The cached results.
+   * The cached results. Each scope holds an immutable snapshot that is replaced atomically when measures are added to
+   * it, so that reads never lock.
    */
-  private final Cache<QueryCacheKey, DelegateTable> results;
+  private final Cache<QueryCacheKey, CachedScope> results;
+  /**
+   * The number of times each table has been invalidated.
+   */
+  private final ConcurrentMap<String, Long> versionByTable = new ConcurrentHashMap<>();
 
   public CaffeineQueryCache() {
     this(MAX_SIZE, (a, b, c) -> {
@@ -65,7 +68,6 @@ public class CaffeineQueryCache implements QueryCache {
             // Use removalListener and not evictionListener because evictionListener is called before updating the stats
             .removalListener(evictionListener)
             .build();
-    this.lock = Striped.readWriteLock(Runtime.getRuntime().availableProcessors() * 4);
   }
 
   @Override
@@ -75,45 +77,61 @@ public class CaffeineQueryCache implements QueryCache {
     headers.add(new Header(CountMeasure.ALIAS, long.class, true));
 
     List<List<Object>> values = new ArrayList<>();
-    Table table = this.results.getIfPresent(key);
-    return executeRead(table, () -> {
-      for (TypedField f : columns) {
-        values.add(table.getColumnValues(SqlUtils.squashqlExpression(f)));
-      }
-      values.add(table.getColumnValues(COMPILED_COUNT.alias()));
-      return new ColumnarTable(headers, Collections.singleton(COMPILED_COUNT), values);
-    });
+    Table table = this.results.getIfPresent(key).snapshot.get();
+    for (TypedField f : columns) {
+      values.add(table.getColumnValues(SqlUtils.squashqlExpression(f)));
+    }
+    values.add(table.getColumnValues(COMPILED_COUNT.alias()));
+    return new ColumnarTable(headers, Collections.singleton(COMPILED_COUNT), values);
   }
 
   @Override
   public boolean contains(CompiledMeasure measure, QueryCacheKey scope) {
-    Table table = this.results.getIfPresent(scope);
-    if (table != null) {
-      return executeRead(table, () -> table.measures().contains(measure));
+    CachedScope cachedScope = this.results.getIfPresent(scope);
+    return cachedScope != null && cachedScope.snapshot.get().measures().contains(measure);
+  }
+
+  @Override
+  public long dataVersion(QueryCacheKey scope) {
+    long version = 0;
+    for (String table : scope.scope().tableNames()) {
+      version += this.versionByTable.getOrDefault(table, 0L); // The versions only increase, so does the sum
     }
-    return false;
+    return version;
   }
 
   @Override
-  public void contributeToCache(Table result, Set<CompiledMeasure> measures, QueryCacheKey scope) {
-    Table cache = this.results.get(scope, s -> {
+  public void contributeToCache(Table result, Set<CompiledMeasure> measures, QueryCacheKey scope, long dataVersion) {
+    if (dataVersion(scope) != dataVersion) {
+      return; // Computed from data that has changed since
+    }
+    CachedScope cachedScope = this.results.get(scope, s -> {
       this.measureCounter.recordMisses(measures.size());
       if (result instanceof ColumnarTable ct) {
-        return new DelegateTable(ct.copy());
+        return new CachedScope(new CompressedTable(ct));
       } else {
-        return new DelegateTable(result);
+        return new CachedScope(result);
       }
     });
 
-    executeWrite(cache, () -> {
-      for (CompiledMeasure measure : measures) {
-        if (!cache.measures().contains(measure)) {
-          // Not in the previousResult, add it.
-          cache.transferAggregates(result, measure);
-          this.measureCounter.recordMisses(1);
-        }
+    while (true) {
+      Table snapshot = cachedScope.snapshot.get();
+      List<CompiledMeasure> missing = measures.stream().filter(m -> !snapshot.measures().contains(m)).toList();
+      if (missing.isEmpty()) {
+        break;
       }
-    });
+      CompressedTable base = snapshot instanceof CompressedTable ct ? ct : new CompressedTable(snapshot);
+      if (cachedScope.snapshot.compareAndSet(snapshot, base.withAggregates(result, missing))) {
+        this.measureCounter.recordMisses(missing.size());
+        break;
+      }
+      // Another thread published a new snapshot in the meantime, try again with it.
+    }
+
+    if (dataVersion(scope) != dataVersion) {
+      // Invalidated while the result was being put, the scope may not have been seen by invalidate.
+      this.results.asMap().remove(scope, cachedScope);
+    }
   }
 
   @Override
@@ -121,15 +139,13 @@ public class CaffeineQueryCache implements QueryCache {
     if (measures.isEmpty()) {
       return;
     }
-    Table cache = this.results.getIfPresent(scope);
-    if (cache != null) {
-      executeRead(cache, () -> {
-        for (CompiledMeasure measure : measures) {
-          result.transferAggregates(cache, measure);
-          this.measureCounter.recordHits(1);
-        }
-        return null;
-      });
+    CachedScope cachedScope = this.results.getIfPresent(scope);
+    if (cachedScope != null) {
+      Table snapshot = cachedScope.snapshot.get();
+      for (CompiledMeasure measure : measures) {
+        result.transferAggregates(snapshot, measure);
+        this.measureCounter.recordHits(1);
+      }
     }
   }
 
@@ -165,89 +181,78 @@ public class CaffeineQueryCache implements QueryCache {
     this.scopeCounter = new ConcurrentStatsCounter();
   }
 
-  private <V> V executeRead(Table t, Callable<V> callable) {
-    Lock l = this.lock.get(t).readLock();
-    try {
-      l.lock();
-      return callable.call();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    } finally {
-      l.unlock();
-    }
-  }
-
-  private void executeWrite(Table t, Runnable runnable) {
-    Lock l = this.lock.get(t).writeLock();
-    try {
-      l.lock();
-      runnable.run();
-    } finally {
-      l.unlock();
-    }
+  @Override
+  public void invalidate(String table) {
+    // Bump the version first so that the results being computed from the previous data are not put in the cache.
+    this.versionByTable.merge(table, 1L, Long::sum);
+    this.results.asMap().keySet().removeIf(key -> key.scope().tableNames().contains(table));
   }
 
   /**
-   * A wrapper around another {@link Table} to make sure this implementation does not override {@link Object#hashCode()}
-   * and {@link Object#equals(Object)} to work with the {@link Striped striped lock}.
+   * Holds the current snapshot of a cached scope. The snapshot is never modified once published, a new one replaces
+   * it. This class implements {@link Table} for the removal listener and does not override {@link Object#hashCode()}
+   * and {@link Object#equals(Object)} on purpose: two scopes are never equal.
    */
-  @AllArgsConstructor
-  private final class DelegateTable implements Table {
+  private static final class CachedScope implements Table {
 
-    private final Table underlying;
+    private final AtomicReference<Table> snapshot;
 
-    @Override
-    public boolean equals(Object o) {
-      return super.equals(o); // DO NOT CHANGE IT
-    }
-
-    @Override
-    public int hashCode() {
-      return super.hashCode(); // DO NOT CHANGE IT
+    private CachedScope(Table snapshot) {
+      this.snapshot = new AtomicReference<>(snapshot);
     }
 
     @Override
     public List<Header> headers() {
-      return this.underlying.headers();
+      return this.snapshot.get().headers();
     }
 
     @Override
     public Set<CompiledMeasure> measures() {
-      return this.underlying.measures();
+      return this.snapshot.get().measures();
     }
 
     @Override
     public void transferAggregates(Table from, CompiledMeasure measure) {
-      this.underlying.transferAggregates(from, measure);
+      throw new UnsupportedOperationException();
     }
 
     @Override
     public ObjectArrayDictionary pointDictionary() {
-      return this.underlying.pointDictionary();
+      return this.snapshot.get().pointDictionary();
     }
 
     @Override
     public Iterator<List<Object>> iterator() {
-      return this.underlying.iterator();
+      return this.snapshot.get().iterator();
+    }
+
+    @Override
+    public void forEachRow(Consumer<RowCursor> action) {
+      this.snapshot.get().forEachRow(action);
+    }
+
+    @Override
+    public List<Object> getColumn(int columnIndex) {
+      return this.snapshot.get().getColumn(columnIndex);
     }
 
     @Override
     public void addAggregates(Header header, CompiledMeasure measure, List<Object> values) {
-      this.underlying.addAggregates(header, measure, values);
+      throw new UnsupportedOperationException();
     }
 
     @Override
     public int count() {
-      return this.underlying.count();
+      return this.snapshot.get().count();
     }
   }
 
   protected int[] getHistogramInteger() {
-    ConcurrentMap<QueryCacheKey, DelegateTable> map = this.results.asMap();
+    ConcurrentMap<QueryCacheKey, CachedScope> map = this.results.asMap();
     MutableIntList l = new IntArrayList();
-    for (DelegateTable value : map.values()) {
-      int nbCells = executeRead(value, () -> value.count() * value.headers().size());
-      l.add(nbCells);
+    for (CachedScope value : map.values()) {
+      Table snapshot = value.snapshot.get();
+      l.add(snapshot.count() * snapshot.headers().size());
     }
     return getCountByHist(l, histogram);
   }
@@ -0,0 +1,344 @@
+package io.squashql.query.cache;
+
+import io.squashql.list.PrimitiveLists;
+import io.squashql.query.Header;
+import io.squashql.query.compiled.CompiledMeasure;
+import io.squashql.query.dictionary.ObjectArrayDictionary;
+import io.squashql.table.ColumnarTable;
+import io.squashql.table.RowCursor;
+import io.squashql.table.Table;
+
+import java.lang.ref.SoftReference;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * The {@link Table} stored in {@link CaffeineQueryCache}. Its columns are encoded to reduce the memory footprint of
+ * the cache:
+ * <ul>
+ *   <li>columns with few distinct values (typically the columns of the scope) are dictionary-encoded, the codes being
+ *   stored as runs when consecutive values are equal or packed in the smallest integer type otherwise;</li>
+ *   <li>columns of longs or doubles are stored in primitive arrays;</li>
+ *   <li>other columns are stored as they are.</li>
+ * </ul>
+ * The lists returned by {@link #getColumn(int)} are read-only and decode the values when they are read. The point
+ * dictionary is rebuilt on demand and only softly referenced.
+ * <p>
+ * A compressed table is immutable so that it can be read without synchronization. Adding measures creates a new table
+ * sharing the existing columns, see {@link #withAggregates(Table, Collection)}.
+ */
+final class CompressedTable implements Table {
+
+  private final List<Header> headers;
+  private final Set<CompiledMeasure> measures;
+  private final List<List<Object>> columns;
+  private final int count;
+  private volatile SoftReference<ObjectArrayDictionary> pointDictionary;
+
+  CompressedTable(Table table) {
+    List<List<Object>> columns = new ArrayList<>(table.headers().size());
+    for (int i = 0; i < table.headers().size(); i++) {
+      columns.add(encode(table.getColumn(i)));
+    }
+    this.headers = List.copyOf(table.headers());
+    this.measures = Set.copyOf(table.measures());
+    this.columns = Collections.unmodifiableList(columns);
+    this.count = table.count();
+    this.pointDictionary = new SoftReference<>(null);
+  }
+
+  private CompressedTable(List<Header> headers, Set<CompiledMeasure> measures, List<List<Object>> columns, int count, ObjectArrayDictionary pointDictionary) {
+    this.headers = List.copyOf(headers);
+    this.measures = Set.copyOf(measures);
+    this.columns = Collections.unmodifiableList(columns);
+    this.count = count;
+    this.pointDictionary = new SoftReference<>(pointDictionary);
+  }
+
+  @Override
+  public ObjectArrayDictionary pointDictionary() {
+    ObjectArrayDictionary dictionary = this.pointDictionary.get();
+    if (dictionary == null) {
+      dictionary = ColumnarTable.createPointDictionary(this);
+      this.pointDictionary = new SoftReference<>(dictionary);
+    }
+    return dictionary;
+  }
+
+  @Override
+  public List<Header> headers() {
+    return this.headers;
+  }
+
+  @Override
+  public Set<CompiledMeasure> measures() {
+    return this.measures;
+  }
+
+  @Override
+  public void addAggregates(Header header, CompiledMeasure measure, List<Object> values) {
+    throw new UnsupportedOperationException("A compressed table cannot be modified, use withAggregates instead");
+  }
+
+  @Override
+  public void transferAggregates(Table from, CompiledMeasure measure) {
+    throw new UnsupportedOperationException("A compressed table cannot be modified, use withAggregates instead");
+  }
+
+  /**
+   * Returns a new table made of the columns of this table and the aggregates of the given measures read from
+   * {@code from}. The columns of this table are shared, not copied. The points of the two tables are matched as in
+   * {@link ColumnarTable#transferAggregates(Table, CompiledMeasure)}, once for all the measures.
+   */
+  CompressedTable withAggregates(Table from, Collection<CompiledMeasure> measures) {
+    if (this.headers.stream().filter(h -> !h.isMeasure()).count() !=
+            from.headers().stream().filter(h -> !h.isMeasure()).count()) {
+      List<String> toHeaderNames = this.headers.stream().filter(h -> !h.isMeasure()).map(Header::name).toList();
+      List<String> fromHeaderNames = from.headers().stream().filter(h -> !h.isMeasure()).map(Header::name).toList();
+      throw new IllegalArgumentException(
+              "The aggregates you are trying to transfer comes from a table that has the following headers " + fromHeaderNames
+                      + " but does not match the headers of the destination table " + toHeaderNames);
+    }
+
+    int[] positions = new int[this.count];
+    ObjectArrayDictionary dictionary = pointDictionary();
+    ObjectArrayDictionary fromDictionary = from.pointDictionary();
+    dictionary.forEach((point, index) -> positions[index] = fromDictionary.getPosition(point));
+
+    List<Header> headers = new ArrayList<>(this.headers);
+    Set<CompiledMeasure> newMeasures = new HashSet<>(this.measures);
+    List<List<Object>> columns = new ArrayList<>(this.columns);
+    for (CompiledMeasure measure : measures) {
+      List<Object> aggregateValues = from.getAggregateValues(measure);
+      List<Object> values = new ArrayList<>(this.count);
+      for (int position : positions) {
+        values.add(position >= 0 ? aggregateValues.get(position) : null);
+      }
+      Header header = from.getHeader(measure);
+      headers.add(new Header(header.name(), header.type(), true));
+      newMeasures.add(measure);
+      columns.add(encode(values));
+    }
+    return new CompressedTable(headers, newMeasures, columns, this.count, dictionary);
+  }
+
+  @Override
+  public List<Object> getColumn(int columnIndex) {
+    return this.columns.get(columnIndex);
+  }
+
+  @Override
+  public int count() {
+    return this.count;
+  }
+
+  @Override
+  public void forEachRow(Consumer<RowCursor> action) {
+    List<Object>[] columns = this.columns.toArray(new List[0]);
+    int[] row = new int[1];
+    RowCursor cursor = new RowCursor() {
+      @Override
+      public int index() {
+        return row[0];
+      }
+
+      @Override
+      public int size() {
+        return columns.length;
+      }
+
+      @Override
+      public Object get(int columnIndex) {
+        return columns[columnIndex].get(row[0]);
+      }
+    };
+    for (; row[0] < this.count; row[0]++) {
+      action.accept(cursor);
+    }
+  }
+
+  @Override
+  public Iterator<List<Object>> iterator() {
+    List<List<Object>> rows = new ArrayList<>(this.count);
+    forEachRow(row -> {
+      List<Object> r = new ArrayList<>(row.size());
+      for (int i = 0; i < row.size(); i++) {
+        r.add(row.get(i));
+      }
+      rows.add(r);
+    });
+    return rows.iterator();
+  }
+
+  static List<Object> encode(List<Object> values) {
+    if (values instanceof PrimitiveLists.LongColumn
+            || values instanceof PrimitiveLists.DoubleColumn
+            || values instanceof DictionaryColumn) {
+      return values; // already compact and read-only
+    }
+
+    Class<?> numberType = numberType(values);
+    if (numberType == Long.class) {
+      BitSet nulls = new BitSet();
+      return new PrimitiveLists.LongColumn(PrimitiveLists.toLongArray(values, nulls), nulls);
+    } else if (numberType == Double.class) {
+      BitSet nulls = new BitSet();
+      return new PrimitiveLists.DoubleColumn(PrimitiveLists.toDoubleArray(values, nulls), nulls);
+    }
+
+    // Dictionary encoding is only worth it when values repeat.
+    int size = values.size();
+    Map<Object, Integer> codeByValue = new HashMap<>();
+    int[] codes = new int[size];
+    int runs = 0;
+    for (int i = 0; i < size; i++) {
+      Object value = values.get(i);
+      Integer code = codeByValue.get(value);
+      if (code == null) {
+        if (codeByValue.size() > size / 2) {
+          return Collections.unmodifiableList(new ArrayList<>(values));
+        }
+        code = codeByValue.size();
+        codeByValue.put(value, code);
+      }
+      codes[i] = code;
+      if (i == 0 || codes[i - 1] != code) {
+        runs++;
+      }
+    }
+
+    Object[] dictionary = new Object[codeByValue.size()];
+    codeByValue.forEach((value, code) -> dictionary[code] = value);
+    if (runs <= size / 2) {
+      return new RunLengthColumn(dictionary, codes, runs);
+    } else if (dictionary.length <= 1 << Byte.SIZE) {
+      return new ByteCodeColumn(dictionary, codes);
+    } else if (dictionary.length <= 1 << Character.SIZE) {
+      return new CharCodeColumn(dictionary, codes);
+    } else {
+      return new IntCodeColumn(dictionary, codes);
+    }
+  }
+
+  /**
+   * Returns {@link Long} or {@link Double} if all the non-null values are of this exact type, null otherwise. The exact
+   * type is required for the decoded values to be equal to the original ones.
+   */
+  private static Class<?> numberType(List<Object> values) {
+    Class<?> type = null;
+    for (Object value : values) {
+      if (value != null) {
+        if (type == null) {
+          type = value.getClass();
+          if (type != Long.class && type != Double.class) {
+            return null;
+          }
+        } else if (type != value.getClass()) {
+          return null;
+        }
+      }
+    }
+    return type;
+  }
+
+  private abstract static class DictionaryColumn extends AbstractList<Object> implements RandomAccess {
+
+    private final Object[] dictionary;
+    private final int size;
+
+    DictionaryColumn(Object[] dictionary, int size) {
+      this.dictionary = dictionary;
+      this.size = size;
+    }
+
+    abstract int code(int index);
+
+    @Override
+    public Object get(int index) {
+      Objects.checkIndex(index, this.size);
+      return this.dictionary[code(index)];
+    }
+
+    @Override
+    public int size() {
+      return this.size;
+    }
+  }
+
+  private static final class RunLengthColumn extends DictionaryColumn {
+
+    private final int[] runStarts;
+    private final int[] runCodes;
+
+    RunLengthColumn(Object[] dictionary, int[] codes, int runs) {
+      super(dictionary, codes.length);
+      this.runStarts = new int[runs];
+      this.runCodes = new int[runs];
+      int run = -1;
+      for (int i = 0; i < codes.length; i++) {
+        if (i == 0 || codes[i - 1] != codes[i]) {
+          run++;
+          this.runStarts[run] = i;
+          this.runCodes[run] = codes[i];
+        }
+      }
+    }
+
+    @Override
+    int code(int index) {
+      int run = Arrays.binarySearch(this.runStarts, index);
+      return this.runCodes[run >= 0 ? run : -run - 2];
+    }
+  }
+
+  private static final class ByteCodeColumn extends DictionaryColumn {
+
+    private final byte[] codes;
+
+    ByteCodeColumn(Object[] dictionary, int[] codes) {
+      super(dictionary, codes.length);
+      this.codes = new byte[codes.length];
+      for (int i = 0; i < codes.length; i++) {
+        this.codes[i] = (byte) codes[i];
+      }
+    }
+
+    @Override
+    int code(int index) {
+      return Byte.toUnsignedInt(this.codes[index]);
+    }
+  }
+
+  private static final class CharCodeColumn extends DictionaryColumn {
+
+    private final char[] codes;
+
+    CharCodeColumn(Object[] dictionary, int[] codes) {
+      super(dictionary, codes.length);
+      this.codes = new char[codes.length];
+      for (int i = 0; i < codes.length; i++) {
+        this.codes[i] = (char) codes[i];
+      }
+    }
+
+    @Override
+    int code(int index) {
+      return this.codes[index];
+    }
+  }
+
+  private static final class IntCodeColumn extends DictionaryColumn {
+
+    private final int[] codes;
+
+    IntCodeColumn(Object[] dictionary, int[] codes) {
+      super(dictionary, codes.length);
+      this.codes = codes;
+    }
+
+    @Override
+    int code(int index) {
+      return this.codes[index];
+    }
+  }
+}
@@ -26,10 +26,15 @@ public class EmptyQueryCache implements QueryCache {
   }
 
   @Override
-  public void contributeToCache(Table result, Set<CompiledMeasure> measures, QueryCacheKey scope) {
+  public void contributeToCache(Table result, Set<CompiledMeasure> measures, QueryCacheKey scope, long dataVersion) {
     // NOOP
   }
 
+  @Override
+  public long dataVersion(QueryCacheKey scope) {
+    return 0;
+  }
+
   @Override
   public void contributeToResult(Table result, Set<CompiledMeasure> measures, QueryCacheKey scope) {
     // NOOP
@@ -43,6 +48,10 @@ public class EmptyQueryCache implements QueryCache {
   public void clear() {
   }
 
+  @Override
+  public void invalidate(String table) {
+  }
+
   @Override
   public CacheStatsDto stats(SquashQLUser user) {
     return new CacheStatsDto(-1, -1, -1);
@@ -45,8 +45,13 @@ public class GlobalCache implements QueryCache {
   }
 
   @Override
-  public void contributeToCache(Table result, Set<CompiledMeasure> measures, QueryCacheKey scope) {
-    getCache(scope).contributeToCache(result, measures, scope);
+  public void contributeToCache(Table result, Set<CompiledMeasure> measures, QueryCacheKey scope, long dataVersion) {
+    getCache(scope).contributeToCache(result, measures, scope, dataVersion);
+  }
+
+  @Override
+  public long dataVersion(QueryCacheKey scope) {
+    return getCache(scope).dataVersion(scope);
   }
 
   @Override
@@ -64,6 +69,11 @@ public class GlobalCache implements QueryCache {
     this.cacheByUser.clear();
   }
 
+  @Override
+  public void invalidate(String table) {
+    this.cacheByUser.values().forEach(cache -> cache.invalidate(table));
+  }
+
   @Override
   public CacheStatsDto stats(SquashQLUser user) {
     return this.cacheByUser.computeIfAbsent(user(user), u -> this.cacheSupplier.get()).stats();
@@ -0,0 +1,380 @@
+package io.squashql.query.cache;
+
+import io.squashql.query.CountMeasure;
+import io.squashql.query.Header;
+import io.squashql.query.MeasureUtils;
+import io.squashql.query.QueryResolver;
+import io.squashql.query.compiled.CompiledAggregatedMeasure;
+import io.squashql.query.compiled.CompiledMeasure;
+import io.squashql.query.compiled.MaterializedTable;
+import io.squashql.query.database.DatabaseQuery;
+import io.squashql.query.database.QueryEngine;
+import io.squashql.query.database.QueryScope;
+import io.squashql.query.database.SqlUtils;
+import io.squashql.query.dto.QueryDto;
+import io.squashql.store.Store;
+import io.squashql.table.ColumnarTable;
+import io.squashql.table.Table;
+import io.squashql.transaction.DataLoader;
+import io.squashql.type.TableTypedField;
+import io.squashql.type.TypedField;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static io.squashql.query.agg.AggregationFunction.*;
+import static io.squashql.query.compiled.CompiledAggregatedMeasure.COMPILED_COUNT;
+
+/**
+ * Aggregates kept by SquashQL for registered queries, and maintained incrementally when rows are loaded into their
+ * table, so that queries reading them are answered without touching the database.
+ * <p>
+ * The registered query defines the table, the columns the aggregates are keyed on and the measures. Only queries on a
+ * single table (no join), without condition, rollup or grouping sets can be registered, and only their primitive
+ * measures aggregated with {@code sum}, {@code count}, {@code min} or {@code max} are materialized. A scope of another
+ * query is answered from the aggregates if it has the same shape, reads the same table, its columns are among the
+ * materialized columns and its primitive measures are all materialized: the aggregates are then rolled up to its
+ * columns.
+ * <p>
+ * To keep the aggregates up to date, the rows must be loaded with {@link #load(DataLoader, String, List)} (see
+ * {@link io.squashql.transaction.MaterializingDataLoader}). Loads going through this method are serialized.
+ */
+public class MaterializedAggregates {
+
+  private static final Set<String> SUPPORTED_AGGREGATION_FUNCTIONS = Set.of(SUM, COUNT, MIN, MAX);
+
+  private final QueryEngine<?> queryEngine;
+  private final List<Aggregate> aggregates = new CopyOnWriteArrayList<>();
+
+  public MaterializedAggregates(QueryEngine<?> queryEngine) {
+    this.queryEngine = queryEngine;
+  }
+
+  /**
+   * Registers the given query and computes its aggregates from the database.
+   *
+   * @throws IllegalArgumentException if the query cannot be materialized
+   */
+  public synchronized void register(QueryDto query) {
+    QueryResolver queryResolver = new QueryResolver(query, this.queryEngine.datastore().storeByName());
+    QueryScope scope = queryResolver.getScope();
+    if (!isSupported(scope) || !scope.orderBy().isEmpty()) {
+      throw new IllegalArgumentException("Only queries on a single table without condition, rollup, grouping sets or order can be materialized: " + query);
+    }
+
+    String table = ((MaterializedTable) scope.table()).name();
+    Store store = this.queryEngine.datastore().storeByName().get(table);
+    List<CompiledAggregatedMeasure> measures = new ArrayList<>();
+    measures.add((CompiledAggregatedMeasure) COMPILED_COUNT);
+    for (CompiledMeasure measure : queryResolver.getMeasures().values()) {
+      if (!MeasureUtils.isPrimitive(measure)) {
+        continue;
+      }
+      if (!(measure instanceof CompiledAggregatedMeasure cam) || !isSupported(cam)) {
+        throw new IllegalArgumentException("Measure " + measure.alias() + " cannot be materialized. Only sum, count, min and max of a field are supported");
+      }
+      if (measures.stream().noneMatch(m -> sameMeasure(m, cam))) {
+        measures.add(cam);
+      }
+    }
+
+    Aggregate aggregate = new Aggregate(table, new DatabaseQuery(scope.copyWithNewLimit(-1), new ArrayList<>(measures)), scope.columns(), measures, store);
+    aggregate.reset(this.queryEngine.execute(aggregate.query));
+    this.aggregates.add(aggregate);
+  }
+
+  /**
+   * Loads the rows with the given loader then adds them to the aggregates of the table.
+   */
+  public synchronized void load(DataLoader loader, String table, List<Object[]> tuples) {
+    loader.load(table, tuples);
+    for (Aggregate aggregate : this.aggregates) {
+      if (aggregate.table.equals(table)) {
+        aggregate.add(tuples);
+      }
+    }
+  }
+
+  /**
+   * Recomputes from the database the aggregates of the given table. To be called when the table is modified otherwise
+   * than with {@link #load(DataLoader, String, List)}.
+   */
+  public synchronized void refresh(String table) {
+    for (Aggregate aggregate : this.aggregates) {
+      if (aggregate.table.equals(table)) {
+        aggregate.reset(this.queryEngine.execute(aggregate.query));
+      }
+    }
+  }
+
+  /**
+   * Drops all the aggregates.
+   */
+  public synchronized void clear() {
+    this.aggregates.clear();
+  }
+
+  /**
+   * Returns the result of the given scope computed from the aggregates or null if no registered query covers it.
+   *
+   * @param scope    the scope
+   * @param measures the measures of the scope. The ones that are not primitive are ignored.
+   */
+  public Table get(QueryScope scope, Set<CompiledMeasure> measures) {
+    if (this.aggregates.isEmpty() || !isSupported(scope)) {
+      return null;
+    }
+    String table = ((MaterializedTable) scope.table()).name();
+    List<CompiledAggregatedMeasure> primitives = new ArrayList<>();
+    for (CompiledMeasure measure : measures) {
+      if (MeasureUtils.isPrimitive(measure)) {
+        if (!(measure instanceof CompiledAggregatedMeasure cam)) {
+          return null;
+        }
+        primitives.add(cam);
+      }
+    }
+    for (Aggregate aggregate : this.aggregates) {
+      if (aggregate.table.equals(table)) {
+        Table result = aggregate.rollup(scope, primitives);
+        if (result != null) {
+          return result;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static boolean isSupported(QueryScope scope) {
+    return scope.table() instanceof MaterializedTable mt
+            && (mt.joins() == null || mt.joins().isEmpty())
+            && scope.whereCriteria() == null
+            && scope.havingCriteria() == null
+            && scope.rollup().isEmpty()
+            && scope.groupingSets().isEmpty()
+            && scope.cteRecordTables().isEmpty()
+            && scope.columns().stream().allMatch(f -> f instanceof TableTypedField);
+  }
+
+  private static boolean isSupported(CompiledAggregatedMeasure measure) {
+    return measure.field() instanceof TableTypedField
+            && measure.criteria() == null
+            && !measure.distinct()
+            && SUPPORTED_AGGREGATION_FUNCTIONS.contains(measure.aggregationFunction());
+  }
+
+  /**
+   * Compares the fields by name: the table can be omitted and the alias does not matter.
+   */
+  private static boolean sameField(TypedField a, TypedField b) {
+    return a instanceof TableTypedField ta && b instanceof TableTypedField tb && ta.name().equals(tb.name())
+            && (ta.store() == null || tb.store() == null || ta.store().equals(tb.store()));
+  }
+
+  private static boolean sameMeasure(CompiledAggregatedMeasure a, CompiledAggregatedMeasure b) {
+    return a.aggregationFunction().equals(b.aggregationFunction()) && sameField(a.field(), b.field())
+            && isSupported(a) && isSupported(b);
+  }
+
+  /**
+   * The value to aggregate for a single row.
+   */
+  private static Object lift(String aggregationFunction, Object value, Class<?> type) {
+    if (aggregationFunction.equals(COUNT)) {
+      return value == null ? 0L : 1L;
+    }
+    return normalize(value, type);
+  }
+
+  private static Object combine(String aggregationFunction, Object a, Object b, Class<?> type) {
+    if (a == null) {
+      return b;
+    } else if (b == null) {
+      return a;
+    }
+    return switch (aggregationFunction) {
+      case COUNT -> ((Number) a).longValue() + ((Number) b).longValue();
+      case SUM -> {
+        if (a instanceof Double || a instanceof Float || b instanceof Double || b instanceof Float) {
+          yield normalize(((Number) a).doubleValue() + ((Number) b).doubleValue(), type);
+        }
+        yield normalize(((Number) a).longValue() + ((Number) b).longValue(), type);
+      }
+      case MIN -> compare(a, b) <= 0 ? a : b;
+      case MAX -> compare(a, b) >= 0 ? a : b;
+      default -> throw new IllegalStateException("Unexpected aggregation function " + aggregationFunction);
+    };
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compare(Object a, Object b) {
+    return ((Comparable) a).compareTo(b);
+  }
+
+  /**
+   * Converts the numbers to the given type so that values coming from the database and from the loaded rows can be
+   * compared.
+   */
+  private static Object normalize(Object value, Class<?> type) {
+    if (!(value instanceof Number n)) {
+      return value;
+    } else if (type == int.class || type == Integer.class) {
+      return n.intValue();
+    } else if (type == long.class || type == Long.class) {
+      return n.longValue();
+    } else if (type == double.class || type == Double.class) {
+      return n.doubleValue();
+    } else if (type == float.class || type == Float.class) {
+      return n.floatValue();
+    }
+    return value;
+  }
+
+  private static class Aggregate {
+
+    private final String table;
+    private final DatabaseQuery query;
+    private final List<TypedField> columns;
+    private final List<CompiledAggregatedMeasure> measures;
+    /**
+     * Position in the rows of the table of each column and of the field of each measure, -1 for count(*).
+     */
+    private final int[] columnPositions;
+    private final int[] measurePositions;
+    // The fields below are guarded by this.
+    private final Class<?>[] measureTypes;
+    private Map<List<Object>, Object[]> values = new HashMap<>();
+
+    private Aggregate(String table, DatabaseQuery query, List<TypedField> columns, List<CompiledAggregatedMeasure> measures, Store store) {
+      this.table = table;
+      this.query = query;
+      this.columns = columns;
+      this.measures = measures;
+      List<TableTypedField> fields = store.fields();
+      this.columnPositions = columns.stream().mapToInt(c -> position(fields, c)).toArray();
+      this.measurePositions = measures.stream()
+              .mapToInt(m -> CountMeasure.FIELD_NAME.equals(((TableTypedField) m.field()).name()) ? -1 : position(fields, m.field()))
+              .toArray();
+      this.measureTypes = new Class<?>[measures.size()];
+    }
+
+    private static int position(List<TableTypedField> fields, TypedField field) {
+      for (int i = 0; i < fields.size(); i++) {
+        if (sameField(fields.get(i), field)) {
+          return i;
+        }
+      }
+      throw new IllegalArgumentException("Cannot find field " + field + " in " + fields);
+    }
+
+    private synchronized void reset(Table result) {
+      for (int i = 0; i < this.measures.size(); i++) {
+        this.measureTypes[i] = result.getHeader(this.measures.get(i).alias()).type();
+      }
+      Map<List<Object>, Object[]> values = new HashMap<>();
+      for (List<Object> row : result) {
+        List<Object> key = new ArrayList<>(this.columns.size());
+        for (int i = 0; i < this.columns.size(); i++) {
+          key.add(normalize(row.get(i), this.columns.get(i).type()));
+        }
+        Object[] aggregates = new Object[this.measures.size()];
+        for (int i = 0; i < aggregates.length; i++) {
+          aggregates[i] = normalize(row.get(this.columns.size() + i), this.measureTypes[i]);
+        }
+        values.put(key, aggregates);
+      }
+      this.values = values;
+    }
+
+    private synchronized void add(List<Object[]> tuples) {
+      for (Object[] tuple : tuples) {
+        List<Object> key = new ArrayList<>(this.columns.size());
+        for (int i = 0; i < this.columnPositions.length; i++) {
+          key.add(normalize(tuple[this.columnPositions[i]], this.columns.get(i).type()));
+        }
+        Object[] aggregates = this.values.computeIfAbsent(key, k -> new Object[this.measures.size()]);
+        for (int i = 0; i < aggregates.length; i++) {
+          String aggregationFunction = this.measures.get(i).aggregationFunction();
+          Object value = this.measurePositions[i] < 0 ? Boolean.TRUE : tuple[this.measurePositions[i]];
+          aggregates[i] = combine(aggregationFunction, aggregates[i], lift(aggregationFunction, value, this.measureTypes[i]), this.measureTypes[i]);
+        }
+      }
+    }
+
+    /**
+     * Rolls up the aggregates to the columns of the scope. Returns null if they do not cover the scope.
+     */
+    private synchronized Table rollup(QueryScope scope, List<CompiledAggregatedMeasure> queried) {
+      int[] keyIndices = new int[scope.columns().size()];
+      for (int i = 0; i < keyIndices.length; i++) {
+        keyIndices[i] = indexOf(this.columns, scope.columns().get(i));
+        if (keyIndices[i] < 0) {
+          return null;
+        }
+      }
+      int[] measureIndices = new int[queried.size()];
+      for (int i = 0; i < measureIndices.length; i++) {
+        CompiledAggregatedMeasure measure = queried.get(i);
+        measureIndices[i] = -1;
+        for (int j = 0; j < this.measures.size(); j++) {
+          if (sameMeasure(this.measures.get(j), measure)) {
+            measureIndices[i] = j;
+            break;
+          }
+        }
+        if (measureIndices[i] < 0) {
+          return null;
+        }
+      }
+
+      Map<List<Object>, Object[]> rolledUp = new LinkedHashMap<>();
+      this.values.forEach((key, aggregates) -> {
+        List<Object> point = new ArrayList<>(keyIndices.length);
+        for (int keyIndex : keyIndices) {
+          point.add(key.get(keyIndex));
+        }
+        Object[] values = rolledUp.computeIfAbsent(point, k -> new Object[measureIndices.length]);
+        for (int i = 0; i < measureIndices.length; i++) {
+          int j = measureIndices[i];
+          values[i] = combine(this.measures.get(j).aggregationFunction(), values[i], aggregates[j], this.measureTypes[j]);
+        }
+      });
+      if (rolledUp.size() > scope.limit() && scope.limit() > 0 && !scope.orderBy().isEmpty()) {
+        return null; // which rows to keep depends on the order, let the database do it
+      }
+
+      List<Header> headers = new ArrayList<>();
+      List<List<Object>> columnValues = new ArrayList<>();
+      for (TypedField column : scope.columns()) {
+        headers.add(new Header(SqlUtils.squashqlExpression(column), column.type(), false));
+        columnValues.add(new ArrayList<>());
+      }
+      for (int i = 0; i < queried.size(); i++) {
+        headers.add(new Header(queried.get(i).alias(), this.measureTypes[measureIndices[i]], true));
+        columnValues.add(new ArrayList<>());
+      }
+      int count = 0;
+      for (Map.Entry<List<Object>, Object[]> entry : rolledUp.entrySet()) {
+        if (scope.limit() > 0 && count++ == scope.limit()) {
+          break;
+        }
+        for (int i = 0; i < keyIndices.length; i++) {
+          columnValues.get(i).add(entry.getKey().get(i));
+        }
+        for (int i = 0; i < queried.size(); i++) {
+          columnValues.get(keyIndices.length + i).add(entry.getValue()[i]);
+        }
+      }
+      return new ColumnarTable(headers, new HashSet<>(queried), columnValues);
+    }
+
+    private static int indexOf(List<TypedField> fields, TypedField field) {
+      for (int i = 0; i < fields.size(); i++) {
+        if (sameField(fields.get(i), field)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+}
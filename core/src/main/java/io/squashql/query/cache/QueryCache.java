@@ -15,7 +15,25 @@ public interface QueryCache {
 
   boolean contains(CompiledMeasure measure, QueryCacheKey scope);
 
-  void contributeToCache(Table result, Set<CompiledMeasure> measures, QueryCacheKey scope);
+  /**
+   * Puts the aggregates of the given measures in the cache, unless one of the tables read by the scope has been
+   * invalidated since {@code dataVersion} was read: the result may then have been computed from the previous content of
+   * the table.
+   *
+   * @param dataVersion the version of the data read by the scope (see {@link #dataVersion(QueryCacheKey)}) before the
+   *                    result was computed
+   */
+  void contributeToCache(Table result, Set<CompiledMeasure> measures, QueryCacheKey scope, long dataVersion);
+
+  default void contributeToCache(Table result, Set<CompiledMeasure> measures, QueryCacheKey scope) {
+    contributeToCache(result, measures, scope, dataVersion(scope));
+  }
+
+  /**
+   * Returns the version of the data read by the given scope. It changes every time one of the tables the scope reads is
+   * {@link #invalidate(String) invalidated}. To be read before the result of the scope starts being computed.
+   */
+  long dataVersion(QueryCacheKey scope);
 
   void contributeToResult(Table result, Set<CompiledMeasure> measures, QueryCacheKey scope);
 
@@ -31,6 +49,14 @@ public interface QueryCache {
    */
   void clear();
 
+  /**
+   * Invalidates the results, of all users, that read the given table. To be called when the content of the table
+   * changes.
+   *
+   * @param table the name of the table
+   */
+  void invalidate(String table);
+
   CacheStatsDto stats(SquashQLUser user);
 
   String getHistogram();
@@ -0,0 +1,180 @@
+package io.squashql.query.cache;
+
+import io.squashql.query.SquashQLUser;
+import io.squashql.query.exception.LimitExceedException;
+import io.squashql.table.ColumnarTable;
+import io.squashql.table.Table;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the final results of queries so that they can be read page by page without executing the queries again,
+ * typically by grids loading the rows as the user scrolls.
+ * <p>
+ * A result is identified by a cursor id and kept until it has not been read for {@link #EXPIRATION_DURATION} minutes
+ * or until it is closed. The results are also evicted, least recently used first, when the estimated memory they use
+ * exceeds {@link #MAX_MEMORY}.
+ */
+public class ResultCursors {
+
+  public static final int EXPIRATION_DURATION; // in minutes
+  public static final long MAX_MEMORY; // in bytes
+
+  static {
+    String duration = System.getProperty("io.squashql.cursor.duration", Integer.toString(5));
+    EXPIRATION_DURATION = Integer.parseInt(duration);
+    String memory = System.getProperty("io.squashql.cursor.max-memory", Long.toString(256L << 20));
+    MAX_MEMORY = Long.parseLong(memory);
+  }
+
+  private final long maxMemory;
+  private final long expirationNanos;
+  private final LongSupplier nanoTime;
+  /**
+   * The cursors, from the least recently read to the most recently read.
+   */
+  private final LinkedHashMap<String, Cursor> cursors = new LinkedHashMap<>(16, 0.75f, true);
+  private long memoryUsage;
+
+  public ResultCursors() {
+    this(MAX_MEMORY, Duration.ofMinutes(EXPIRATION_DURATION), System::nanoTime);
+  }
+
+  public ResultCursors(long maxMemory, Duration expiration, LongSupplier nanoTime) {
+    this.maxMemory = maxMemory;
+    this.expirationNanos = expiration.toNanos();
+    this.nanoTime = nanoTime;
+  }
+
+  /**
+   * Keeps the given result and returns the cursor to read it. The rows are read in the order of the table, that must
+   * then be the final result of the query.
+   *
+   * @param user the user allowed to read the result, null if any
+   * @throws LimitExceedException if the result alone exceeds the memory budget
+   */
+  public synchronized Cursor open(Table table, SquashQLUser user) {
+    long size = estimateSize(table);
+    if (size > this.maxMemory) {
+      throw new LimitExceedException("The result of the query is too large to be kept (estimated size: "
+              + size + " bytes, budget: " + this.maxMemory + " bytes). Please add a limit to the query.");
+    }
+    long now = this.nanoTime.getAsLong();
+    evict(now, this.maxMemory - size);
+    Cursor cursor = new Cursor(UUID.randomUUID().toString(), table, user, size);
+    cursor.lastAccess = now;
+    this.cursors.put(cursor.id, cursor);
+    this.memoryUsage += size;
+    return cursor;
+  }
+
+  /**
+   * Returns the cursor with the given id, or null if it does not exist, has expired or belongs to another user.
+   */
+  public synchronized Cursor get(String id, SquashQLUser user) {
+    long now = this.nanoTime.getAsLong();
+    evict(now, this.maxMemory);
+    Cursor cursor = this.cursors.get(id);
+    if (cursor == null || !Objects.equals(cursor.user, user)) {
+      return null;
+    }
+    cursor.lastAccess = now;
+    return cursor;
+  }
+
+  /**
+   * Releases the result of the cursor with the given id before it expires. Returns false if it does not exist.
+   */
+  public synchronized boolean close(String id, SquashQLUser user) {
+    Cursor cursor = get(id, user);
+    if (cursor == null) {
+      return false;
+    }
+    this.cursors.remove(id);
+    this.memoryUsage -= cursor.size;
+    return true;
+  }
+
+  /**
+   * Returns the estimated number of bytes used by the kept results.
+   */
+  public synchronized long memoryUsage() {
+    evict(this.nanoTime.getAsLong(), this.maxMemory);
+    return this.memoryUsage;
+  }
+
+  /**
+   * Removes the expired cursors, then the least recently read ones until the memory used is below the given value.
+   */
+  private void evict(long now, long maxMemory) {
+    Iterator<Cursor> it = this.cursors.values().iterator();
+    while (it.hasNext()) {
+      Cursor cursor = it.next();
+      if (now - cursor.lastAccess < this.expirationNanos && this.memoryUsage <= maxMemory) {
+        break; // The next ones have been read more recently
+      }
+      it.remove();
+      this.memoryUsage -= cursor.size;
+    }
+  }
+
+  /**
+   * Estimates the number of bytes used by the values of the table, counting the references to the values, the boxed
+   * primitives and the characters of the strings.
+   */
+  static long estimateSize(Table table) {
+    long size = 0;
+    for (int i = 0; i < table.headers().size(); i++) {
+      for (Object value : table.getColumn(i)) {
+        size += 8; // reference
+        if (value instanceof String s) {
+          size += 40 + 2L * s.length();
+        } else if (value != null) {
+          size += 16;
+        }
+      }
+    }
+    return size;
+  }
+
+  public static final class Cursor {
+
+    public final String id;
+    private final Table table;
+    private final SquashQLUser user;
+    private final long size;
+    private long lastAccess;
+
+    private Cursor(String id, Table table, SquashQLUser user, long size) {
+      this.id = id;
+      this.table = table;
+      this.user = user;
+      this.size = size;
+    }
+
+    /**
+     * Returns the total number of rows of the result.
+     */
+    public int count() {
+      return this.table.count();
+    }
+
+    /**
+     * Returns a table containing at most limit rows of the result starting at the given offset.
+     */
+    public Table page(int offset, int limit) {
+      if (offset < 0 || limit < 0) {
+        throw new IllegalArgumentException("offset and limit must be positive: offset=" + offset + ", limit=" + limit);
+      }
+      int from = Math.min(offset, this.table.count());
+      int to = from + Math.min(limit, this.table.count() - from);
+      List<List<Object>> values = new ArrayList<>(this.table.headers().size());
+      for (int i = 0; i < this.table.headers().size(); i++) {
+        values.add(new ArrayList<>(this.table.getColumn(i).subList(from, to)));
+      }
+      return new ColumnarTable(this.table.headers(), this.table.measures(), values);
+    }
+  }
+}
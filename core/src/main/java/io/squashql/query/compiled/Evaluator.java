@@ -10,17 +10,22 @@ import io.squashql.table.Table;
 import io.squashql.type.TypedField;
 import io.squashql.util.ListUtils;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 import java.util.function.BiConsumer;
-import java.util.function.BiFunction;
 
 import static io.squashql.query.ColumnSetKey.GROUP;
 
 public class Evaluator implements BiConsumer<QueryPlanNodeKey, ExecutionContext>, CompiledMeasureVisitor<Void> {
 
   private ExecutionContext executionContext;
+  /**
+   * The positions of the rows to compare with, computed by {@link AComparisonExecutor#computeReadPositions}. They are
+   * shared by the comparison measures applying the same shift on the same tables.
+   */
+  private final Map<ReadPositionsKey, int[]> readPositionsByKey = new HashMap<>();
+
+  private record ReadPositionsKey(QueryScope writeScope, QueryScope readScope, Object shiftKey) {
+  }
 
   @Override
   public void accept(QueryPlanNodeKey queryPlanNodeKey, ExecutionContext executionContext) {
@@ -37,14 +42,11 @@ public class Evaluator implements BiConsumer<QueryPlanNodeKey, ExecutionContext>
     Table intermediateResult = this.executionContext.getWriteToTable();
     List<Object> lo = intermediateResult.getAggregateValues(bom.leftOperand());
     List<Object> ro = intermediateResult.getAggregateValues(bom.rightOperand());
-    List<Object> r = new ArrayList<>(lo.size());
 
     Class<?> lType = intermediateResult.getHeader(bom.leftOperand()).type();
     Class<?> rType = intermediateResult.getHeader(bom.rightOperand()).type();
-    BiFunction<Number, Number, Number> operation = BinaryOperations.createBiFunction(bom.operator(), lType, rType);
-    for (int i = 0; i < lo.size(); i++) {
-      r.add(operation.apply((Number) lo.get(i), (Number) ro.get(i)));
-    }
+    // The result is kept as a primitive array so that a binary operation reading it does not need to unbox it.
+    List<Object> r = BinaryOperations.apply(bom.operator(), lo, lType, ro, rType);
     Header header = new Header(bom.alias(), BinaryOperations.getOutputType(bom.operator(), lType, rType), true);
     intermediateResult.addAggregates(header, bom, r);
     return null;
@@ -79,7 +81,7 @@ public class Evaluator implements BiConsumer<QueryPlanNodeKey, ExecutionContext>
     if (readFromTable.count() == this.executionContext.queryLimit()) {
       throw new RuntimeException("Too many rows, some intermediate results exceed the limit " + this.executionContext.queryLimit());
     }
-    executeComparator(cm, this.executionContext.getWriteToTable(), readFromTable, executor);
+    executeComparator(cm, readScope, readFromTable, executor);
     return null;
   }
 
@@ -90,12 +92,15 @@ public class Evaluator implements BiConsumer<QueryPlanNodeKey, ExecutionContext>
     if (readFromTable.count() == this.executionContext.queryLimit()) {
       throw new RuntimeException("Too many rows, some intermediate results exceed the limit " + this.executionContext.queryLimit());
     }
-    executeComparator(cm, this.executionContext.getWriteToTable(), readFromTable, new GrandTotalComparisonExecutor());
+    executeComparator(cm, readScope, readFromTable, new GrandTotalComparisonExecutor());
     return null;
   }
 
-  private static <T extends CompiledComparisonMeasure> void executeComparator(T cm, Table writeToTable, Table readFromTable, AComparisonExecutor<T> executor) {
-    List<Object> agg = executor.compare(cm, writeToTable, readFromTable);
+  private <T extends CompiledComparisonMeasure> void executeComparator(T cm, QueryScope readScope, Table readFromTable, AComparisonExecutor<T> executor) {
+    Table writeToTable = this.executionContext.getWriteToTable();
+    ReadPositionsKey key = new ReadPositionsKey(this.executionContext.queryScope(), readScope, executor.shiftKey(cm));
+    int[] readPositions = this.readPositionsByKey.computeIfAbsent(key, k -> executor.computeReadPositions(cm, writeToTable, readFromTable));
+    List<Object> agg = executor.compare(cm, writeToTable, readFromTable, readPositions);
     Class<?> outputType = cm.comparisonOperator() != null ? UnknownType.class : BinaryOperations.getComparisonOutputType(cm.comparisonMethod(), writeToTable.getHeader(cm.measure()).type());
     Header header = new Header(cm.alias(), outputType, true);
     writeToTable.addAggregates(header, cm, agg);
@@ -13,6 +13,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.IntStream;
@@ -38,12 +40,38 @@ public abstract class AQueryEngine<T extends Datastore> implements QueryEngine<T
     return retrieveAggregates(query, sql);
   }
 
+  @Override
+  public CompletableFuture<Table> executeAsync(DatabaseQuery query, Executor executor, CancellationToken token) {
+    String sql = createSqlStatement(query);
+    log.info(query + " translated into " + System.lineSeparator() + "sql=" + sql);
+    return retrieveAggregatesAsync(query, sql, executor, token);
+  }
+
   protected String createSqlStatement(DatabaseQuery query) {
     return SqlTranslator.translate(query, queryRewriter());
   }
 
   protected abstract Table retrieveAggregates(DatabaseQuery query, String sql);
 
+  /**
+   * Same as {@link #retrieveAggregates(DatabaseQuery, String)} but the query is stopped on the database side when the
+   * token is cancelled. The default implementation does not stop it.
+   */
+  protected Table retrieveAggregates(DatabaseQuery query, String sql, CancellationToken token) {
+    return retrieveAggregates(query, sql);
+  }
+
+  /**
+   * Asynchronous version of {@link #retrieveAggregates(DatabaseQuery, String, CancellationToken)}. The default
+   * implementation runs it in the given executor.
+   */
+  protected CompletableFuture<Table> retrieveAggregatesAsync(DatabaseQuery query, String sql, Executor executor, CancellationToken token) {
+    return CompletableFuture.supplyAsync(() -> {
+      token.throwIfCancelled();
+      return retrieveAggregates(query, sql, token);
+    }, executor);
+  }
+
   public static <Column, Record> Pair<List<Header>, List<List<Object>>> transformToColumnFormat(
           Collection<TypedField> typedFields,
           Collection<CompiledMeasure> measures,
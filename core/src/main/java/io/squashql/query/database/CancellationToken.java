@@ -0,0 +1,128 @@
+package io.squashql.query.database;
+
+import io.squashql.query.exception.QueryCancelledException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Carried along with a query to be able to stop it, from the caller ({@link #cancel()}) or when its deadline is reached.
+ * The engines register with {@link #onCancel(Runnable)} the action stopping the query on the database side (cancel
+ * the statement, kill the query...) and check {@link #throwIfCancelled()} before starting new work.
+ * <p>
+ * The default timeout of the queries can be set with the property {@code io.squashql.query.timeout} (in seconds, no
+ * timeout by default).
+ */
+public class CancellationToken {
+
+  public static final Duration DEFAULT_TIMEOUT;
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "squashql-query-timeout");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  static {
+    String timeout = System.getProperty("io.squashql.query.timeout");
+    DEFAULT_TIMEOUT = timeout == null ? null : Duration.ofSeconds(Long.parseLong(timeout));
+  }
+
+  private final List<Runnable> callbacks = new CopyOnWriteArrayList<>();
+  private final Duration duration;
+  private final ScheduledFuture<?> timeout;
+  private volatile String reason;
+
+  public CancellationToken() {
+    this(DEFAULT_TIMEOUT);
+  }
+
+  /**
+   * @param timeout the duration after which the query is cancelled. Null means no timeout.
+   */
+  public CancellationToken(Duration timeout) {
+    this.duration = timeout;
+    this.timeout = timeout == null
+            ? null
+            : SCHEDULER.schedule(() -> cancel("Query timed out after " + timeout), timeout.toNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  public void cancel() {
+    cancel("Query cancelled");
+  }
+
+  private void cancel(String reason) {
+    synchronized (this.callbacks) {
+      if (this.reason != null) {
+        return;
+      }
+      this.reason = reason;
+    }
+    if (this.timeout != null) {
+      this.timeout.cancel(false);
+    }
+    for (Runnable callback : this.callbacks) {
+      callback.run();
+    }
+  }
+
+  /**
+   * Returns the duration after which the query is cancelled, counted from the creation of this token, or null if there
+   * is no timeout.
+   */
+  public Duration timeout() {
+    return this.duration;
+  }
+
+  public boolean isCancelled() {
+    return this.reason != null;
+  }
+
+  /**
+   * Returns why this token was cancelled or null if it is not.
+   */
+  public String reason() {
+    return this.reason;
+  }
+
+  public void throwIfCancelled() {
+    if (this.reason != null) {
+      throw new QueryCancelledException(this.reason);
+    }
+  }
+
+  /**
+   * Registers an action to run when this token is cancelled. The action is run immediately if it is already cancelled.
+   * The returned registration unregisters the action and should be closed once the query has completed.
+   */
+  public Registration onCancel(Runnable callback) {
+    boolean cancelled;
+    synchronized (this.callbacks) {
+      cancelled = this.reason != null;
+      if (!cancelled) {
+        this.callbacks.add(callback);
+      }
+    }
+    if (cancelled) {
+      callback.run();
+    }
+    return () -> this.callbacks.remove(callback);
+  }
+
+  /**
+   * Releases the resources held by this token. To call once the query has completed.
+   */
+  public void close() {
+    if (this.timeout != null) {
+      this.timeout.cancel(false);
+    }
+    this.callbacks.clear();
+  }
+
+  @FunctionalInterface
+  public interface Registration extends AutoCloseable {
+
+    @Override
+    void close();
+  }
+}
@@ -4,5 +4,18 @@ import io.squashql.query.compiled.CompiledMeasure;
 
 import java.util.List;
 
-public record DatabaseQuery(QueryScope scope, List<CompiledMeasure> measures) {
+/**
+ * @param samplingPercentage the percentage of the rows of the table to read, see {@link QueryRewriter#tableSample(double, int)},
+ *                           or 0 to read all the rows
+ * @param samplingSeed       the seed of the sample, the queries sampled with the same seed read the same rows
+ */
+public record DatabaseQuery(QueryScope scope, List<CompiledMeasure> measures, double samplingPercentage, int samplingSeed) {
+
+  public DatabaseQuery(QueryScope scope, List<CompiledMeasure> measures) {
+    this(scope, measures, 0, 0);
+  }
+
+  public boolean isSampled() {
+    return this.samplingPercentage > 0;
+  }
 }
@@ -1,9 +1,12 @@
 package io.squashql.query.database;
 
 import io.squashql.store.Datastore;
+import io.squashql.table.RowWriter;
 import io.squashql.table.Table;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public interface QueryEngine<T extends Datastore> {
 
@@ -12,6 +15,34 @@ public interface QueryEngine<T extends Datastore> {
 
   Table execute(DatabaseQuery query);
 
+  /**
+   * Asynchronous version of {@link #execute(DatabaseQuery)}. By default, the query is executed by a task submitted to
+   * the given executor. Engines whose driver is asynchronous should override this method to not block a thread while
+   * the database computes the result.
+   * <p>
+   * Engines able to stop a running query should register the action doing it with
+   * {@link CancellationToken#onCancel(Runnable)}.
+   */
+  default CompletableFuture<Table> executeAsync(DatabaseQuery query, Executor executor, CancellationToken token) {
+    return CompletableFuture.supplyAsync(() -> {
+      token.throwIfCancelled();
+      return execute(query);
+    }, executor);
+  }
+
+  /**
+   * Executes the query and passes the rows of the result to the writer as they are read from the database, the headers
+   * being the same as the ones of {@link #execute(DatabaseQuery)}. The default implementation reads the whole result
+   * before writing it; engines able to iterate over the result without loading it should override this method so that
+   * the memory used does not depend on the number of rows.
+   */
+  default void executeStreaming(DatabaseQuery query, CancellationToken token, RowWriter writer) {
+    token.throwIfCancelled();
+    Table table = execute(query);
+    writer.writeHeaders(table.headers());
+    table.forEachRow(writer::writeRow);
+  }
+
   Table executeRawSql(String sql);
 
   T datastore();
@@ -157,6 +157,23 @@ public interface QueryRewriter {
     }
   }
 
+  /**
+   * Returns the clause written after the table name in the FROM clause to read a random sample of its rows, e.g.
+   * {@code tablesample bernoulli (10) repeatable (42)}, or null if sampling is not supported. See
+   * {@link io.squashql.query.parameter.QuerySamplingParameter}.
+   * <p>
+   * Each row must be drawn independently (Bernoulli sampling, not block sampling) for the error bounds of
+   * {@link io.squashql.query.dto.ApproximationDto} to hold, and the same rows must be drawn for the same seed so that
+   * the scopes of a query are computed from the same sample.
+   *
+   * @param percentage the percentage of the rows to read, between 0 (exclusive) and 100 (inclusive)
+   * @param seed       the seed of the sample, positive
+   * @return the clause or null
+   */
+  default String tableSample(double percentage, int seed) {
+    return null;
+  }
+
   default String arrayContains(TypedField field, Object value) {
     return "array_contains(" + field.sqlExpression(this) + ", " + value + ")";
   }
@@ -1,11 +1,9 @@
 package io.squashql.query.database;
 
-import io.squashql.query.compiled.CompiledCriteria;
-import io.squashql.query.compiled.CompiledOrderBy;
-import io.squashql.query.compiled.CompiledTable;
-import io.squashql.query.compiled.CteRecordTable;
+import io.squashql.query.compiled.*;
 import io.squashql.type.TypedField;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -19,6 +17,29 @@ public record QueryScope(CompiledTable table,
                          List<CompiledOrderBy> orderBy,
                          int limit) {
 
+  /**
+   * Returns the names of the tables of the database read by this scope: the table and the joined tables, including the
+   * ones of nested queries. Tables created on the fly such as CTEs are not returned.
+   */
+  public Set<String> tableNames() {
+    Set<String> names = new HashSet<>();
+    addTableNames(this.table, names);
+    return names;
+  }
+
+  private static void addTableNames(CompiledTable table, Set<String> names) {
+    if (table instanceof MaterializedTable mt) {
+      names.add(mt.name());
+    } else if (table instanceof NestedQueryTable nqt) {
+      names.addAll(nqt.query().scope().tableNames());
+    }
+    if (table.joins() != null) {
+      for (CompiledJoin join : table.joins()) {
+        addTableNames(join.table(), names);
+      }
+    }
+  }
+
   public QueryScope copyWithNewLimit(int newLimit) {
     return new QueryScope(this.table, this.columns, this.whereCriteria, this.havingCriteria, this.rollup, this.groupingSets, this.cteRecordTables, this.orderBy, newLimit);
   }
@@ -5,6 +5,7 @@ import io.squashql.list.Lists;
 import io.squashql.query.compiled.CompiledCriteria;
 import io.squashql.query.compiled.CompiledOrderBy;
 import io.squashql.query.compiled.CteRecordTable;
+import io.squashql.query.compiled.MaterializedTable;
 import io.squashql.store.UnknownType;
 
 import java.util.ArrayList;
@@ -37,7 +38,7 @@ public class SqlTranslator {
     statement.append("select ");
     statement.append(String.join(", ", selects));
     statement.append(" from ");
-    statement.append(query.table().sqlExpression(queryRewriter));
+    statement.append(tableExpression(dq, queryRewriter));
     addWhereConditions(statement, dq, queryRewriter);
     if (!query.groupingSets().isEmpty()) {
       addGroupingSets(query.groupingSets().stream().map(g -> g.stream().map(queryRewriter::rollup).toList()).toList(), statement);
@@ -50,6 +51,27 @@ public class SqlTranslator {
     return statement.toString();
   }
 
+  private static String tableExpression(DatabaseQuery dq, QueryRewriter qr) {
+    if (!dq.isSampled()) {
+      return dq.scope().table().sqlExpression(qr);
+    }
+    if (!(dq.scope().table() instanceof MaterializedTable table)) {
+      throw new IllegalArgumentException("Only the rows of a table can be sampled: " + dq.scope().table());
+    }
+    String sample = qr.tableSample(dq.samplingPercentage(), dq.samplingSeed());
+    if (sample == null) {
+      throw new UnsupportedOperationException("Sampling is not supported by " + qr.getClass().getSimpleName());
+    }
+    StringBuilder statement = new StringBuilder()
+            .append(table.sqlExpressionTableName(qr))
+            .append(" ")
+            .append(sample);
+    if (table.joins() != null) {
+      table.joins().forEach(j -> statement.append(j.sqlExpression(qr)));
+    }
+    return statement.toString();
+  }
+
   private static void addCtes(List<CteRecordTable> cteRecordTables, StringBuilder statement, QueryRewriter qr) {
     if (cteRecordTables == null || cteRecordTables.isEmpty()) {
       return;
@@ -0,0 +1,86 @@
+package io.squashql.query.dto;
+
+import lombok.*;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Describes the estimates of a query executed on a sample of the rows, see
+ * {@link io.squashql.query.parameter.QuerySamplingParameter}.
+ * <p>
+ * The relative error is the widest bound, over all the rows of the result, of the {@link #CONFIDENCE_LEVEL}
+ * confidence interval of the estimates: {@code z * sqrt((1 - p) / n)} with {@code p} the sampled fraction and
+ * {@code n} the number of sampled rows aggregated in the row of the result. It holds for the counts and assumes the
+ * values are evenly spread for the sums.
+ */
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor // For Jackson
+@Getter
+public class ApproximationDto {
+
+  public static final double CONFIDENCE_LEVEL = 0.95;
+  private static final double Z = 1.96;
+
+  public double samplingPercentage;
+  public double confidenceLevel;
+  public double relativeError;
+  /**
+   * The aliases of the measures whose values are estimates.
+   */
+  public Set<String> estimatedMeasures;
+
+  public ApproximationDto(double samplingPercentage, double confidenceLevel, double relativeError, Set<String> estimatedMeasures) {
+    this.samplingPercentage = samplingPercentage;
+    this.confidenceLevel = confidenceLevel;
+    this.relativeError = relativeError;
+    this.estimatedMeasures = estimatedMeasures;
+  }
+
+  public static ApproximationDtoBuilder builder() {
+    return new ApproximationDtoBuilder();
+  }
+
+  /**
+   * Accumulates the estimates of the queries sent to the database. Can be used by several threads.
+   */
+  public static class ApproximationDtoBuilder {
+    private double samplingPercentage;
+    private double relativeError;
+    private boolean sampled;
+    private final Set<String> estimatedMeasures = new TreeSet<>();
+
+    ApproximationDtoBuilder() {
+    }
+
+    /**
+     * Records the estimates of a result.
+     *
+     * @param samplingPercentage the percentage of the rows read
+     * @param sampledRows        the smallest number of sampled rows aggregated in a row of the result, 0 if the result
+     *                           is empty
+     * @param measures           the aliases of the estimated measures
+     */
+    public synchronized ApproximationDtoBuilder record(double samplingPercentage, long sampledRows, Set<String> measures) {
+      double p = samplingPercentage / 100;
+      this.samplingPercentage = samplingPercentage;
+      this.sampled = true;
+      if (sampledRows > 0) {
+        this.relativeError = Math.max(this.relativeError, Z * Math.sqrt((1 - p) / sampledRows));
+      }
+      this.estimatedMeasures.addAll(measures);
+      return this;
+    }
+
+    /**
+     * Returns the approximation, or null if nothing has been recorded i.e. no rows have been sampled.
+     */
+    public synchronized ApproximationDto build() {
+      if (!this.sampled) {
+        return null;
+      }
+      return new ApproximationDto(this.samplingPercentage, CONFIDENCE_LEVEL, this.relativeError, new TreeSet<>(this.estimatedMeasures));
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package io.squashql.query.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The queries to replay to warm up the query cache. See {@link io.squashql.query.cache.CacheWarmer}.
+ */
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor // For Jackson
+@AllArgsConstructor
+public class CacheSnapshotDto {
+
+  public List<QueryDto> queries = new ArrayList<>();
+  public List<PivotTableQueryDto> pivotQueries = new ArrayList<>();
+}
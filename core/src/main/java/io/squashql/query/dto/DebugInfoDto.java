@@ -10,4 +10,5 @@ import lombok.*;
 public class DebugInfoDto {
 
   public CacheStatsDto cache;
+  public QueueStatsDto queue;
 }
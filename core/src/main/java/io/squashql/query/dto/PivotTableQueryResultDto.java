@@ -18,4 +18,13 @@ public class PivotTableQueryResultDto {
   public List<String> columns;
   public List<String> values;
   public List<String> hiddenTotals;
+  /**
+   * Set when the query has been executed on a sample of the rows, see
+   * {@link io.squashql.query.parameter.QuerySamplingParameter}.
+   */
+  public ApproximationDto approximation;
+
+  public PivotTableQueryResultDto(List<Map<String, Object>> cells, List<String> rows, List<String> columns, List<String> values, List<String> hiddenTotals) {
+    this(cells, rows, columns, values, hiddenTotals, null);
+  }
 }
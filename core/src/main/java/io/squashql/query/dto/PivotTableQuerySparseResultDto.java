@@ -0,0 +1,36 @@
+package io.squashql.query.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Same as {@link PivotTableQueryResultDto} but with cells encoded as {@link SparseCellsDto}.
+ */
+@Builder
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor// For Jackson
+@AllArgsConstructor
+@Getter
+public class PivotTableQuerySparseResultDto {
+
+  public SparseCellsDto cells;
+  public List<String> rows;
+  public List<String> columns;
+  public List<String> values;
+  public List<String> hiddenTotals;
+  /**
+   * Set when the query has been executed on a sample of the rows, see
+   * {@link io.squashql.query.parameter.QuerySamplingParameter}.
+   */
+  public ApproximationDto approximation;
+
+  public PivotTableQuerySparseResultDto(SparseCellsDto cells, List<String> rows, List<String> columns, List<String> values, List<String> hiddenTotals) {
+    this(cells, rows, columns, values, hiddenTotals, null);
+  }
+
+  public PivotTableQueryResultDto toPivotTableQueryResultDto() {
+    return new PivotTableQueryResultDto(this.cells.toCells(), this.rows, this.columns, this.values, this.hiddenTotals, this.approximation);
+  }
+}
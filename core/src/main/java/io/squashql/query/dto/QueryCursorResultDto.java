@@ -0,0 +1,33 @@
+package io.squashql.query.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * A page of the result of a query kept on the server, see {@link io.squashql.query.cache.ResultCursors}.
+ */
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor // For Jackson
+@AllArgsConstructor
+public class QueryCursorResultDto {
+
+  /**
+   * The id to use to fetch the other pages of the result.
+   */
+  public String cursorId;
+  /**
+   * The total number of rows of the result.
+   */
+  public int count;
+  /**
+   * The index of the first row of the page in the result.
+   */
+  public int offset;
+  /**
+   * The rows of the page.
+   */
+  public QueryResultDto result;
+}
@@ -17,4 +17,9 @@ public class QueryResultDto {
   public List<Map<String, Object>> cells;
   public List<MetadataItem> metadata;
   public DebugInfoDto debug;
+  /**
+   * Set when the query has been executed on a sample of the rows, see
+   * {@link io.squashql.query.parameter.QuerySamplingParameter}.
+   */
+  public ApproximationDto approximation;
 }
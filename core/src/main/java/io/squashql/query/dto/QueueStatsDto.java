@@ -0,0 +1,50 @@
+package io.squashql.query.dto;
+
+import lombok.*;
+
+/**
+ * Time spent by the queries sent to the database waiting to be admitted by the
+ * {@link io.squashql.query.QueryScheduler}, in milliseconds.
+ */
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor // For Jackson
+@Getter
+public class QueueStatsDto {
+  public long queryCount;
+  public long totalWaitTime;
+  public long maxWaitTime;
+
+  public QueueStatsDto(long queryCount, long totalWaitTime, long maxWaitTime) {
+    this.queryCount = queryCount;
+    this.totalWaitTime = totalWaitTime;
+    this.maxWaitTime = maxWaitTime;
+  }
+
+  public static QueueStatsDtoBuilder builder() {
+    return new QueueStatsDtoBuilder();
+  }
+
+  /**
+   * Accumulates the wait times of the queries. Can be used by several threads.
+   */
+  public static class QueueStatsDtoBuilder {
+    private long queryCount;
+    private long totalWaitTime;
+    private long maxWaitTime;
+
+    QueueStatsDtoBuilder() {
+    }
+
+    public synchronized QueueStatsDtoBuilder record(long waitTime) {
+      this.queryCount++;
+      this.totalWaitTime += waitTime;
+      this.maxWaitTime = Math.max(this.maxWaitTime, waitTime);
+      return this;
+    }
+
+    public synchronized QueueStatsDto build() {
+      return new QueueStatsDto(this.queryCount, this.totalWaitTime, this.maxWaitTime);
+    }
+  }
+}
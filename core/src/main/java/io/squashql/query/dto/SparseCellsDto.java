@@ -0,0 +1,62 @@
+package io.squashql.query.dto;
+
+import lombok.*;
+
+import java.util.*;
+
+/**
+ * Compact representation of the non-empty cells of a result, i.e. the cells with at least one measure value. The cells
+ * without any are left out and shown empty by the client. Instead of one map per cell, the values of the columns are
+ * encoded with a dictionary: {@link #dictionaries} contains the distinct values of each column and {@link #coordinates}
+ * the position in the dictionary of the value of each cell (-1 if the column is absent from the cell, e.g. for totals).
+ * The values of the measures are stored as arrays in {@link #measureValues}. {@link #toCells()} gives back the
+ * non-empty cells as they would have been returned in {@link PivotTableQueryResultDto#cells}.
+ */
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor // For Jackson
+@AllArgsConstructor
+@Getter
+public class SparseCellsDto {
+
+  /**
+   * The number of non-empty cells.
+   */
+  public int count;
+  public Map<String, List<Object>> dictionaries;
+  public Map<String, int[]> coordinates;
+  public Map<String, List<Object>> measureValues;
+  /**
+   * The indices of the cells from which a measure is absent because the entire column is empty (minify).
+   */
+  public Map<String, int[]> absentMeasureCells;
+
+  public List<Map<String, Object>> toCells() {
+    List<Map<String, Object>> cells = new ArrayList<>(this.count);
+    for (int i = 0; i < this.count; i++) {
+      cells.add(new HashMap<>());
+    }
+
+    this.coordinates.forEach((column, codes) -> {
+      List<Object> dictionary = this.dictionaries.get(column);
+      for (int i = 0; i < codes.length; i++) {
+        if (codes[i] >= 0) {
+          cells.get(i).put(column, dictionary.get(codes[i]));
+        }
+      }
+    });
+
+    this.measureValues.forEach((measure, values) -> {
+      BitSet absent = new BitSet(this.count);
+      for (int i : this.absentMeasureCells.getOrDefault(measure, new int[0])) {
+        absent.set(i);
+      }
+      for (int i = 0; i < values.size(); i++) {
+        if (!absent.get(i)) {
+          cells.get(i).put(measure, values.get(i));
+        }
+      }
+    });
+    return cells;
+  }
+}
@@ -0,0 +1,8 @@
+package io.squashql.query.exception;
+
+public class QueryCancelledException extends RuntimeException {
+
+  public QueryCancelledException(String message) {
+    super(message);
+  }
+}
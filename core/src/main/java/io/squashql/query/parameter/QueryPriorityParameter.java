@@ -0,0 +1,41 @@
+package io.squashql.query.parameter;
+
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Hint given to the {@link io.squashql.query.QueryScheduler} when the database is busy. The queries of higher priority
+ * are admitted first and get a larger share of the database.
+ */
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor // For Jackson
+public class QueryPriorityParameter implements Parameter {
+
+  public static final String KEY = "priority";
+
+  public QueryPriorityParameter(Priority priority) {
+    this.priority = priority;
+  }
+
+  public enum Priority {
+    LOW(1), NORMAL(2), HIGH(4);
+
+    /**
+     * The share of the database given to a query of this priority relatively to the others.
+     */
+    public final int weight;
+
+    Priority(int weight) {
+      this.weight = weight;
+    }
+  }
+
+  public Priority priority;
+
+  @Override
+  public String key() {
+    return KEY;
+  }
+}
@@ -0,0 +1,37 @@
+package io.squashql.query.parameter;
+
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Executes the query approximately, on a random sample of the given percentage of the rows of the table. The sums and
+ * counts are scaled to estimate the values on the whole table, and the error bound of the estimates is returned in
+ * {@link io.squashql.query.dto.ApproximationDto}. The query is executed exactly if the database does not support
+ * repeatable row-level sampling (see {@link io.squashql.query.database.QueryRewriter#tableSample(double, int)}), e.g.
+ * BigQuery, or if it is read from a sub-query.
+ * <p>
+ * All the measures of the query, whatever their scope, are computed from the same sample of rows so that the measures
+ * comparing the values of different scopes (parent, grand total...) are consistent.
+ */
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor // For Jackson
+public class QuerySamplingParameter implements Parameter {
+
+  public static final String KEY = "sampling";
+
+  /**
+   * Percentage of the rows to read, between 0 (exclusive) and 100 (inclusive).
+   */
+  public double percentage;
+
+  public QuerySamplingParameter(double percentage) {
+    this.percentage = percentage;
+  }
+
+  @Override
+  public String key() {
+    return KEY;
+  }
+}
@@ -0,0 +1,28 @@
+package io.squashql.query.parameter;
+
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Duration in seconds after which the query is cancelled, overriding the default timeout (see
+ * {@link io.squashql.query.database.CancellationToken}).
+ */
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor // For Jackson
+public class QueryTimeoutParameter implements Parameter {
+
+  public static final String KEY = "timeout";
+
+  public long seconds;
+
+  public QueryTimeoutParameter(long seconds) {
+    this.seconds = seconds;
+  }
+
+  @Override
+  public String key() {
+    return KEY;
+  }
+}
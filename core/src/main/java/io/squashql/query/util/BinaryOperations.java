@@ -1,8 +1,13 @@
 package io.squashql.query.util;
 
+import io.squashql.list.PrimitiveLists;
+import io.squashql.list.PrimitiveLists.DoubleColumn;
+import io.squashql.list.PrimitiveLists.LongColumn;
 import io.squashql.query.BinaryOperator;
 import io.squashql.query.ComparisonMethod;
 
+import java.util.BitSet;
+import java.util.List;
 import java.util.function.BiFunction;
 import java.util.stream.Stream;
 
@@ -50,6 +55,101 @@ public class BinaryOperations {
     };
   }
 
+  /**
+   * Applies the operator to every pair of values of the two columns. Same as applying the function returned by
+   * {@link #createBiFunction(BinaryOperator, Class, Class)} row by row, but the computation runs over primitive arrays
+   * and the result is a column backed by a primitive array (see {@link io.squashql.list.PrimitiveLists}). When an
+   * operand is itself such a column (e.g. the result of another binary operation), its array is used directly.
+   */
+  public static List<Object> apply(BinaryOperator binaryOperator,
+                                   List<Object> left,
+                                   Class<?> leftDataType,
+                                   List<Object> right,
+                                   Class<?> rightDataType) {
+    Class<? extends Number> outputDataType = getOutputType(binaryOperator, leftDataType, rightDataType);
+    boolean isLong = outputDataType.equals(long.class) || outputDataType.equals(Long.class);
+    BitSet leftNulls = new BitSet(left.size());
+    BitSet rightNulls = new BitSet(right.size());
+    if (isLong && binaryOperator != BinaryOperator.DIVIDE && binaryOperator != BinaryOperator.RELATIVE_DIFFERENCE) {
+      long[] a = PrimitiveLists.toLongArray(left, leftNulls);
+      long[] b = PrimitiveLists.toLongArray(right, rightNulls);
+      long[] r = new long[a.length];
+      switch (binaryOperator) {
+        case PLUS -> {
+          for (int i = 0; i < r.length; i++) {
+            r[i] = a[i] + b[i];
+          }
+        }
+        case MINUS -> {
+          for (int i = 0; i < r.length; i++) {
+            r[i] = a[i] - b[i];
+          }
+          // null - b = b, see minusAsLong
+          for (int i = leftNulls.nextSetBit(0); i >= 0; i = leftNulls.nextSetBit(i + 1)) {
+            r[i] = b[i];
+          }
+        }
+        case MULTIPLY -> {
+          for (int i = 0; i < r.length; i++) {
+            r[i] = a[i] * b[i];
+          }
+        }
+        default -> throw new IllegalStateException("Unexpected operator " + binaryOperator);
+      }
+      return new LongColumn(r, resultNulls(binaryOperator, leftNulls, rightNulls));
+    } else {
+      double[] a = PrimitiveLists.toDoubleArray(left, leftNulls);
+      double[] b = PrimitiveLists.toDoubleArray(right, rightNulls);
+      double[] r = new double[a.length];
+      switch (binaryOperator) {
+        case PLUS -> {
+          for (int i = 0; i < r.length; i++) {
+            r[i] = a[i] + b[i];
+          }
+        }
+        case MINUS -> {
+          for (int i = 0; i < r.length; i++) {
+            r[i] = a[i] - b[i];
+          }
+          // null - b = b, see minusAsDouble
+          for (int i = leftNulls.nextSetBit(0); i >= 0; i = leftNulls.nextSetBit(i + 1)) {
+            r[i] = b[i];
+          }
+        }
+        case MULTIPLY -> {
+          for (int i = 0; i < r.length; i++) {
+            r[i] = a[i] * b[i];
+          }
+        }
+        case DIVIDE -> {
+          for (int i = 0; i < r.length; i++) {
+            r[i] = a[i] / b[i];
+          }
+        }
+        case RELATIVE_DIFFERENCE -> {
+          for (int i = 0; i < r.length; i++) {
+            r[i] = (a[i] - b[i]) / b[i];
+          }
+        }
+      }
+      return new DoubleColumn(r, resultNulls(binaryOperator, leftNulls, rightNulls));
+    }
+  }
+
+  /**
+   * Plus and minus treat null as 0 unless both operands are null. The other operators return null as soon as one of
+   * the operands is null.
+   */
+  private static BitSet resultNulls(BinaryOperator binaryOperator, BitSet leftNulls, BitSet rightNulls) {
+    BitSet nulls = (BitSet) leftNulls.clone();
+    if (binaryOperator == BinaryOperator.PLUS || binaryOperator == BinaryOperator.MINUS) {
+      nulls.and(rightNulls);
+    } else {
+      nulls.or(rightNulls);
+    }
+    return nulls;
+  }
+
   public static Class<? extends Number> getOutputType(BinaryOperator binaryOperator, Class<?> leftDataType, Class<?> rightDataType) {
     Class<? extends Number> outputDataType = Stream.of(
                     double.class, Double.class,
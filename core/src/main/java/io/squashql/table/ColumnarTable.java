@@ -7,6 +7,7 @@ import io.squashql.query.dictionary.ObjectArrayDictionary;
 import io.squashql.util.ListUtils;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 public class ColumnarTable implements Table {
@@ -31,13 +32,17 @@ public class ColumnarTable implements Table {
   public static ObjectArrayDictionary createPointDictionary(Table table) {
     int pointLength = (int) table.headers().stream().filter(header -> !header.isMeasure()).count();
     ObjectArrayDictionary dictionary = new ObjectArrayDictionary(pointLength);
-    table.forEach(row -> {
+    int[] pointIndices = new int[pointLength];
+    int i = 0;
+    for (int index = 0; index < table.headers().size(); index++) {
+      if (!table.headers().get(index).isMeasure()) {
+        pointIndices[i++] = index;
+      }
+    }
+    table.forEachRow(row -> {
       Object[] columnValues = new Object[pointLength];
-      int i = 0;
-      for (int index = 0; index < table.headers().size(); index++) {
-        if (!table.headers().get(index).isMeasure()) {
-          columnValues[i++] = row.get(index);
-        }
+      for (int j = 0; j < pointLength; j++) {
+        columnValues[j] = row.get(pointIndices[j]);
       }
       dictionary.map(columnValues);
     });
@@ -85,6 +90,14 @@ public class ColumnarTable implements Table {
     return this.values.get(columnIndex);
   }
 
+  @Override
+  public void forEachRow(Consumer<RowCursor> action) {
+    ColumnarRowCursor cursor = new ColumnarRowCursor();
+    for (int size = count(); cursor.row < size; cursor.row++) {
+      action.accept(cursor);
+    }
+  }
+
   public List<List<Object>> getColumns() {
     return this.values;
   }
@@ -127,6 +140,27 @@ public class ColumnarTable implements Table {
     return new ColumnarTable(this.headers, this.measures, newValues);
   }
 
+  private class ColumnarRowCursor implements RowCursor {
+
+    final List<Object>[] columns = ColumnarTable.this.values.toArray(new List[0]);
+    int row = 0;
+
+    @Override
+    public int index() {
+      return this.row;
+    }
+
+    @Override
+    public int size() {
+      return this.columns.length;
+    }
+
+    @Override
+    public Object get(int columnIndex) {
+      return this.columns[columnIndex].get(this.row);
+    }
+  }
+
   private class ColumnarTableIterator implements Iterator<List<Object>> {
 
     int current = 0;
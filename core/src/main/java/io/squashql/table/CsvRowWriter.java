@@ -0,0 +1,68 @@
+package io.squashql.table;
+
+import io.squashql.query.Header;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes the rows in the CSV format (RFC 4180): the values containing the delimiter, a double quote or a line break are
+ * enclosed in double quotes and null values are written as empty values. The writer is not flushed.
+ */
+public class CsvRowWriter implements RowWriter {
+
+  private final Writer writer;
+  private final char delimiter;
+
+  public CsvRowWriter(Writer writer) {
+    this(writer, ',');
+  }
+
+  public CsvRowWriter(Writer writer, char delimiter) {
+    this.writer = writer;
+    this.delimiter = delimiter;
+  }
+
+  @Override
+  public void writeHeaders(List<Header> headers) {
+    try {
+      for (int i = 0; i < headers.size(); i++) {
+        writeValue(i, headers.get(i).name());
+      }
+      this.writer.write("\r\n");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void writeRow(RowCursor row) {
+    try {
+      for (int i = 0; i < row.size(); i++) {
+        writeValue(i, row.get(i));
+      }
+      this.writer.write("\r\n");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void writeValue(int index, Object value) throws IOException {
+    if (index > 0) {
+      this.writer.write(this.delimiter);
+    }
+    if (value == null) {
+      return;
+    }
+    String s = value.toString();
+    if (s.indexOf(this.delimiter) >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0) {
+      this.writer.write('"');
+      this.writer.write(s.replace("\"", "\"\""));
+      this.writer.write('"');
+    } else {
+      this.writer.write(s);
+    }
+  }
+}
@@ -15,10 +15,16 @@ import org.eclipse.collections.impl.set.mutable.primitive.IntHashSet;
 import org.eclipse.collections.impl.set.mutable.primitive.MutableIntSetFactoryImpl;
 
 import java.util.*;
+import java.util.function.IntConsumer;
 import java.util.stream.IntStream;
 
 public class MergeTables {
 
+  /**
+   * Number of rows from which the probe phase of the merge is executed in parallel.
+   */
+  static final int PARALLELISM_THRESHOLD = 1 << 14;
+
   private MergeTables() {
   }
 
@@ -100,105 +106,141 @@ public class MergeTables {
   }
 
   private static List<List<Object>> mergeValues(Holder holder, Table leftTable, Table rightTable, JoinType joinType) {
-    List<Header> mergedTableHeaders = holder.headers;
-    Object[] mergedBuffer = new Object[(int) mergedTableHeaders.stream().filter(h -> !h.isMeasure()).count()];
-    Object[] rightBuffer = new Object[(int) rightTable.headers().stream().filter(h -> !h.isMeasure()).count()];
-
+    int pointLength = (int) holder.headers.stream().filter(h -> !h.isMeasure()).count();
     int[] leftMapping = holder.leftMapping;
     int[] rightMapping = holder.rightMapping;
-
-    long leftCountMeasure = leftTable.headers().stream().filter(Header::isMeasure).count();
-    long rightCountMeasure = rightTable.headers().stream().filter(Header::isMeasure).count();
-    List<ArrayList<Object>> measureValues = IntStream.range(0, (int) (leftCountMeasure + rightCountMeasure))
-            .mapToObj(i -> new ArrayList<>()).toList();
-    List<ArrayList<Object>> pointValues = IntStream.range(0, mergedBuffer.length)
-            .mapToObj(i -> new ArrayList<>()).toList();
-
-    BitSet alreadyVisited = new BitSet();
-
-    List<CompiledMeasure> leftMeasures = getMeasures((ColumnarTable) leftTable);
-    List<CompiledMeasure> rightMeasures = getMeasures((ColumnarTable) rightTable);
-    final int[] position = {-1};
-
-    leftTable.pointDictionary().forEach((point, row) -> {
-      Arrays.fill(mergedBuffer, SqlTranslator.TOTAL_CELL);
-      for (int i = 0; i < point.length; i++) {
-        mergedBuffer[leftMapping[i]] = point[i];
-      }
-
-      if (joinType == JoinType.INNER && !holder.doesGlobalPointExistInRightTable(mergedBuffer)) {
+    int[] complement = complement(leftMapping, rightMapping);
+
+    // Build every index once so that they can be probed concurrently.
+    ObjectArrayDictionary rightDictionary = rightTable.pointDictionary();
+    Object[][] leftPoints = toPoints(leftTable.pointDictionary());
+    Object[][] rightPoints = toPoints(rightDictionary);
+    holder.buildCommonPointDictionaries(joinType == JoinType.LEFT || joinType == JoinType.INNER, joinType == JoinType.INNER);
+
+    // Probe the right table with the points of the left table.
+    Object[][] leftMergedPoints = new Object[leftPoints.length][]; // null if the point is not part of the result
+    int[] rightPositions = new int[leftPoints.length];
+    forEachPosition(leftPoints.length, row -> {
+      Object[] mergedPoint = toMergedPoint(leftPoints[row], leftMapping, pointLength);
+      if (joinType == JoinType.INNER && !holder.doesGlobalPointExistInRightTable(mergedPoint)) {
         return; // abort
       }
+      leftMergedPoints[row] = mergedPoint;
 
-      for (int i = 0; i < rightMapping.length; i++) {
-        rightBuffer[i] = mergedBuffer[rightMapping[i]];
-      }
-
-      for (int i = 0; i < mergedBuffer.length; i++) {
-        pointValues.get(i).add(mergedBuffer[i]);
-      }
-
-      for (int i = 0; i < leftCountMeasure; i++) {
-        measureValues.get(i).add(leftTable.getAggregateValues(leftMeasures.get(i)).get(row));
-      }
-
-      int[] complement = complement(holder.leftMapping, holder.rightMapping);
       boolean missingColumnsAreTotal = true;
       for (int c : complement) {
-        missingColumnsAreTotal &= SqlTranslator.TOTAL_CELL.equals(mergedBuffer[c]);
+        missingColumnsAreTotal &= SqlTranslator.TOTAL_CELL.equals(mergedPoint[c]);
       }
-
-      boolean pointExistInRightTable = (position[0] = rightTable.pointDictionary().getPosition(rightBuffer)) >= 0;
-      boolean condition = (holder.leftIsIncludeInRight || missingColumnsAreTotal) && pointExistInRightTable;
-      for (int i = 0; i < rightCountMeasure; i++) {
-        Object value = null;
-        if (condition) {
-          value = rightTable.getAggregateValues(rightMeasures.get(i)).get(position[0]);
+      int position = -1;
+      if (holder.leftIsIncludeInRight || missingColumnsAreTotal) {
+        Object[] rightPoint = new Object[rightMapping.length];
+        for (int i = 0; i < rightMapping.length; i++) {
+          rightPoint[i] = mergedPoint[rightMapping[i]];
         }
-        measureValues.get((int) (i + leftCountMeasure)).add(value);
+        position = rightDictionary.getPosition(rightPoint);
       }
+      rightPositions[row] = position;
+    });
 
-      if (condition) {
-        alreadyVisited.set(position[0]);
+    BitSet alreadyVisited = new BitSet(rightPoints.length);
+    for (int row = 0; row < leftPoints.length; row++) {
+      if (leftMergedPoints[row] != null && rightPositions[row] >= 0) {
+        alreadyVisited.set(rightPositions[row]);
       }
-    });
+    }
 
-    rightTable.pointDictionary().forEach((point, row) -> {
+    // Then add the points of the right table that have not been matched.
+    Object[][] rightMergedPoints = new Object[rightPoints.length][]; // null if the point is not part of the result
+    forEachPosition(rightPoints.length, row -> {
       if (alreadyVisited.get(row)) {
         return;
       }
-      Arrays.fill(mergedBuffer, SqlTranslator.TOTAL_CELL);
-      for (int i = 0; i < point.length; i++) {
-        mergedBuffer[rightMapping[i]] = point[i];
-      }
-
-      if ((joinType == JoinType.LEFT || joinType == JoinType.INNER) && !holder.doesGlobalPointExistInLeftTable(mergedBuffer)) {
+      Object[] mergedPoint = toMergedPoint(rightPoints[row], rightMapping, pointLength);
+      if ((joinType == JoinType.LEFT || joinType == JoinType.INNER) && !holder.doesGlobalPointExistInLeftTable(mergedPoint)) {
         return; // abort
       }
+      rightMergedPoints[row] = mergedPoint;
+    });
 
-      for (int i = 0; i < mergedBuffer.length; i++) {
-        pointValues.get(i).add(mergedBuffer[i]);
-      }
+    int[] leftRows = keptRows(leftMergedPoints);
+    int[] rightRows = keptRows(rightMergedPoints);
+    int size = leftRows.length + rightRows.length;
 
-      for (int i = 0; i < leftCountMeasure; i++) {
-        measureValues.get(i).add(null);
+    List<List<Object>> result = new ArrayList<>();
+    for (int i = 0; i < pointLength; i++) {
+      List<Object> values = new ArrayList<>(size);
+      for (int row : leftRows) {
+        values.add(leftMergedPoints[row][i]);
+      }
+      for (int row : rightRows) {
+        values.add(rightMergedPoints[row][i]);
       }
+      result.add(values);
+    }
 
-      for (int i = 0; i < rightCountMeasure; i++) {
-        measureValues.get((int) (i + leftCountMeasure)).add(rightTable.getAggregateValues(rightMeasures.get(i)).get(row));
+    for (List<Object> column : getMeasureColumns(leftTable)) {
+      List<Object> values = new ArrayList<>(size);
+      for (int row : leftRows) {
+        values.add(column.get(row));
       }
-    });
+      for (int i = 0; i < rightRows.length; i++) {
+        values.add(null);
+      }
+      result.add(values);
+    }
 
-    List<List<Object>> result = new ArrayList<>(pointValues);
-    result.addAll(measureValues);
+    for (List<Object> column : getMeasureColumns(rightTable)) {
+      List<Object> values = new ArrayList<>(size);
+      for (int row : leftRows) {
+        int position = rightPositions[row];
+        values.add(position >= 0 ? column.get(position) : null);
+      }
+      for (int row : rightRows) {
+        values.add(column.get(row));
+      }
+      result.add(values);
+    }
     return result;
   }
 
-  private static List<CompiledMeasure> getMeasures(ColumnarTable table) {
-    return table.headers().stream()
-            .filter(Header::isMeasure)
-            .map(h -> table.measures().stream().filter(m -> m.alias().equals(h.name())).findFirst().orElseThrow(() -> new IllegalStateException("Cannot find measure with name " + h.name())))
-            .toList();
+  private static void forEachPosition(int size, IntConsumer consumer) {
+    IntStream positions = IntStream.range(0, size);
+    (size >= PARALLELISM_THRESHOLD ? positions.parallel() : positions).forEach(consumer);
+  }
+
+  private static Object[][] toPoints(ObjectArrayDictionary dictionary) {
+    Object[][] points = new Object[dictionary.size()][];
+    dictionary.forEach((point, position) -> points[position] = point);
+    return points;
+  }
+
+  private static Object[] toMergedPoint(Object[] point, int[] mapping, int pointLength) {
+    Object[] mergedPoint = new Object[pointLength];
+    Arrays.fill(mergedPoint, SqlTranslator.TOTAL_CELL);
+    for (int i = 0; i < point.length; i++) {
+      mergedPoint[mapping[i]] = point[i];
+    }
+    return mergedPoint;
+  }
+
+  private static int[] keptRows(Object[][] mergedPoints) {
+    MutableIntList rows = MutableIntListFactoryImpl.INSTANCE.empty();
+    for (int row = 0; row < mergedPoints.length; row++) {
+      if (mergedPoints[row] != null) {
+        rows.add(row);
+      }
+    }
+    return rows.toArray();
+  }
+
+  private static List<List<Object>> getMeasureColumns(Table table) {
+    List<List<Object>> columns = new ArrayList<>();
+    for (int i = 0; i < table.headers().size(); i++) {
+      if (table.headers().get(i).isMeasure()) {
+        columns.add(table.getColumn(i));
+      }
+    }
+    return columns;
   }
 
   static class Holder {
@@ -223,6 +265,19 @@ public class MergeTables {
       this.intersection = intersection(this.leftMapping, this.rightMapping);
     }
 
+    /**
+     * Eagerly builds the dictionaries used by {@link #doesGlobalPointExistInLeftTable(Object[])} and
+     * {@link #doesGlobalPointExistInRightTable(Object[])} so that they can then be read from several threads.
+     */
+    void buildCommonPointDictionaries(boolean left, boolean right) {
+      if (left && this.leftTableCommonPointDic == null) {
+        this.leftTableCommonPointDic = buildIntersectionPointDictionary(this.leftTable, this.leftMapping);
+      }
+      if (right && this.rightTableCommonPointDic == null) {
+        this.rightTableCommonPointDic = buildIntersectionPointDictionary(this.rightTable, this.rightMapping);
+      }
+    }
+
     private ObjectArrayDictionary buildIntersectionPointDictionary(Table table, int[] mapping) {
       ObjectArrayDictionary dictionary = new ObjectArrayDictionary(this.intersection.length);
       int[] interMapping = new int[this.intersection.length];
@@ -230,7 +285,7 @@ public class MergeTables {
         interMapping[i] = indexOf(mapping, this.intersection[i]);
       }
 
-      table.forEach(row -> {
+      table.forEachRow(row -> {
         Object[] columnValues = new Object[this.intersection.length];
         for (int i = 0; i < this.intersection.length; i++) {
           columnValues[i] = row.get(interMapping[i]);
@@ -1,10 +1,18 @@
 package io.squashql.table;
 
+import com.google.common.base.Suppliers;
+
+import java.util.AbstractList;
 import java.util.List;
+import java.util.function.Supplier;
 
 public class PivotTable {
 
   public final Table table;
+  /**
+   * The pivoted cells: the header rows for the columns first, then one row per distinct value of the rows. They are
+   * computed the first time they are read: the cells sent to the client are generated from the table.
+   */
   public final List<List<Object>> pivotTableCells;
   public final List<String> rows;
   public final List<String> columns;
@@ -17,7 +25,18 @@ public class PivotTable {
     this.columns = columns;
     this.values = values;
     this.hiddenTotals = hiddenTotals;
-    this.pivotTableCells = PivotTableUtils.pivot(this);
+    Supplier<List<List<Object>>> cells = Suppliers.memoize(() -> PivotTableUtils.pivot(this));
+    this.pivotTableCells = new AbstractList<>() {
+      @Override
+      public List<Object> get(int index) {
+        return cells.get().get(index);
+      }
+
+      @Override
+      public int size() {
+        return cells.get().size();
+      }
+    };
   }
 
   public void show() {
@@ -3,13 +3,14 @@ package io.squashql.table;
 import io.squashql.query.Field;
 import io.squashql.query.Header;
 import io.squashql.query.database.SqlUtils;
+import io.squashql.query.dictionary.ObjectArrayDictionary;
 import io.squashql.query.dto.QueryDto;
-import io.squashql.util.ListUtils;
+import io.squashql.query.dto.SparseCellsDto;
 import io.squashql.util.NullAndTotalComparator;
 import org.eclipse.collections.impl.list.mutable.primitive.IntArrayList;
+import org.eclipse.collections.impl.map.mutable.primitive.LongIntHashMap;
 
 import java.util.*;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public final class PivotTableUtils {
@@ -23,96 +24,155 @@ public final class PivotTableUtils {
     List<String> columns = pivotTable.columns;
     List<String> values = pivotTable.values;
 
-    Set<ObjectArrayKey> columnHeaderValues = getHeaderValues(table, columns);
-
-    List<List<Object>> headerColumns = new ArrayList<>(); // The header values for the columns
-    int size = columnHeaderValues.size() * values.size();
-    // Prepare the lists
-    columns.forEach(__ -> {
-      headerColumns.add(ListUtils.createListWithNulls(size));
-    });
-
-    // Fill the lists
-    int columnIndex = 0;
-    for (ObjectArrayKey columnHeaderValue : columnHeaderValues) {
-      for (int __ = 0; __ < values.size(); __++) {
-        for (int rowIndex = 0; rowIndex < columnHeaderValue.a.length; rowIndex++) {
-          headerColumns.get(rowIndex).set(columnIndex, columnHeaderValue.a[rowIndex]);
-        }
-        columnIndex++;
-      }
-    }
-
-    Set<ObjectArrayKey> rowHeaderValues = getHeaderValues(table, rows);
-
+    // Dictionary-code the row and column headers. Codes are given by order of appearance in the table.
     int[] rowIndices = getHeaderIndices(table, rows);
     int[] colIndices = getHeaderIndices(table, columns);
-    List<List<Object>> cells = new ArrayList<>(rowHeaderValues.size() * size); // The values of the cells.
-    rowHeaderValues.forEach(rowPoint -> {
-      Object[] buffer = new Object[rows.size() + columns.size()];
-      List<Object> r = new ArrayList<>();
-      cells.add(r);
-      for (int i = 0; i < rowIndices.length; i++) {
-        buffer[rowIndices[i]] = rowPoint.a[i];
-      }
-
-      for (int i = 0; i < columnHeaderValues.size(); i++) {
-        for (int j = 0; j < colIndices.length; j++) {
-          buffer[colIndices[j]] = headerColumns.get(j).get(i * values.size());
-        }
-        int position = table.pointDictionary().getPosition(buffer);
-
-        for (String value : values) {
-          r.add(position >= 0 ? table.getColumnValues(value).get(position) : null);
-        }
-      }
-    });
+    List<Object[]> rowHeaderValues = new ArrayList<>();
+    List<Object[]> columnHeaderValues = new ArrayList<>();
+    int[] rowCodes = encode(table, rowIndices, rowHeaderValues);
+    int[] columnCodes = encode(table, colIndices, columnHeaderValues);
+
+    int columnCount = columnHeaderValues.size();
+    CellIndex cellIndex = CellIndex.create(rowHeaderValues.size(), columnCount, table.count());
+    for (int row = 0; row < rowCodes.length; row++) {
+      cellIndex.putIfAbsent(rowCodes[row], columnCodes[row], row);
+    }
 
-    List<List<Object>> finalRows = new ArrayList<>();
-    Supplier<List<Object>> listSpawner = () -> {
-      finalRows.add(new ArrayList<>(rows.size() + size));
-      return finalRows.get(finalRows.size() - 1);
-    };
+    int size = columnCount * values.size();
+    List<List<Object>> finalRows = new ArrayList<>(columns.size() + 1 + rowHeaderValues.size());
     for (int i = 0; i < columns.size(); i++) {
-      List<Object> r = listSpawner.get();
+      List<Object> r = new ArrayList<>(rows.size() + size);
       for (int j = 0; j < rows.size(); j++) {
         r.add(columns.get(i)); // recopy name of the column
       }
-      r.addAll(headerColumns.get(i));
+      for (Object[] columnHeaderValue : columnHeaderValues) {
+        for (int __ = 0; __ < values.size(); __++) {
+          r.add(columnHeaderValue[i]);
+        }
+      }
+      finalRows.add(r);
     }
 
-    List<Object> r = listSpawner.get();
+    List<Object> r = new ArrayList<>(rows.size() + size);
     r.addAll(rows);
-    for (int i = 0; i < columnHeaderValues.size(); i++) {
+    for (int i = 0; i < columnCount; i++) {
       r.addAll(values); // Recopy measure names
     }
+    finalRows.add(r);
 
-    int[] index = new int[1];
-    rowHeaderValues.forEach(a -> {
-      List<Object> rr = listSpawner.get();
-      rr.addAll(Arrays.asList(a.a));
-      rr.addAll(cells.get(index[0]++));
-    });
+    List<List<Object>> valueColumns = new ArrayList<>(values.size());
+    for (String value : values) {
+      valueColumns.add(table.getColumnValues(value));
+    }
+    for (int rowCode = 0; rowCode < rowHeaderValues.size(); rowCode++) {
+      List<Object> rr = new ArrayList<>(rows.size() + size);
+      rr.addAll(Arrays.asList(rowHeaderValues.get(rowCode)));
+      for (int columnCode = 0; columnCode < columnCount; columnCode++) {
+        int position = cellIndex.get(rowCode, columnCode);
+        for (List<Object> valueColumn : valueColumns) {
+          rr.add(position >= 0 ? valueColumn.get(position) : null);
+        }
+      }
+      finalRows.add(rr);
+    }
 
     return finalRows;
   }
 
   /**
-   * Gets all the possible values in the table for the given headers. The values stored in {@link ObjectArrayKey} are
-   * aligned with the headers and the order in the resulting set is preserved.
+   * Encodes the values of the given columns of each row into a code. The distinct values are added to {@code keys} in
+   * order of appearance i.e. the code of a row is the index of its values in {@code keys}.
    */
-  private static Set<ObjectArrayKey> getHeaderValues(Table table, List<String> headers) {
-    int[] mapping = getHeaderIndices(table, headers);
-
-    LinkedHashSet<ObjectArrayKey> result = new LinkedHashSet<>();
-    table.forEach(row -> {
-      Object[] columnValues = new Object[headers.size()];
-      for (int i = 0; i < headers.size(); i++) {
-        columnValues[i] = row.get(mapping[i]);
+  private static int[] encode(Table table, int[] indices, List<Object[]> keys) {
+    List<List<Object>> columns = new ArrayList<>(indices.length);
+    for (int index : indices) {
+      columns.add(table.getColumn(index));
+    }
+    ObjectArrayDictionary dictionary = new ObjectArrayDictionary(indices.length);
+    int[] codes = new int[table.count()];
+    Object[] buffer = new Object[indices.length];
+    for (int row = 0; row < codes.length; row++) {
+      for (int i = 0; i < indices.length; i++) {
+        buffer[i] = columns.get(i).get(row);
       }
-      result.add(new ObjectArrayKey(columnValues));
-    });
-    return result;
+      int code = dictionary.getPosition(buffer);
+      if (code < 0) {
+        Object[] key = buffer.clone();
+        code = dictionary.map(key);
+        keys.add(key);
+      }
+      codes[row] = code;
+    }
+    return codes;
+  }
+
+  /**
+   * Gives the row of the table for each (row code, column code) cell of the pivot table, or -1 if the cell is empty.
+   */
+  private interface CellIndex {
+
+    /**
+     * Above this ratio between the number of cells and the number of rows, the cells are stored in a hash map.
+     */
+    int MAX_DENSE_RATIO = 4;
+
+    static CellIndex create(int rowCount, int columnCount, int tableRowCount) {
+      long cellCount = (long) rowCount * columnCount;
+      if (cellCount <= Math.max(16, (long) MAX_DENSE_RATIO * tableRowCount)) {
+        return new DenseCellIndex(rowCount, columnCount);
+      } else {
+        return new SparseCellIndex(columnCount);
+      }
+    }
+
+    void putIfAbsent(int rowCode, int columnCode, int position);
+
+    int get(int rowCode, int columnCode);
+  }
+
+  private static final class DenseCellIndex implements CellIndex {
+
+    private final int[] positions;
+    private final int columnCount;
+
+    private DenseCellIndex(int rowCount, int columnCount) {
+      this.positions = new int[rowCount * columnCount];
+      this.columnCount = columnCount;
+      Arrays.fill(this.positions, -1);
+    }
+
+    @Override
+    public void putIfAbsent(int rowCode, int columnCode, int position) {
+      int cell = rowCode * this.columnCount + columnCode;
+      if (this.positions[cell] < 0) {
+        this.positions[cell] = position;
+      }
+    }
+
+    @Override
+    public int get(int rowCode, int columnCode) {
+      return this.positions[rowCode * this.columnCount + columnCode];
+    }
+  }
+
+  private static final class SparseCellIndex implements CellIndex {
+
+    private final LongIntHashMap positions = new LongIntHashMap();
+    private final int columnCount;
+
+    private SparseCellIndex(int columnCount) {
+      this.columnCount = columnCount;
+    }
+
+    @Override
+    public void putIfAbsent(int rowCode, int columnCode, int position) {
+      this.positions.getIfAbsentPut((long) rowCode * this.columnCount + columnCode, position);
+    }
+
+    @Override
+    public int get(int rowCode, int columnCode) {
+      return this.positions.getIfAbsent((long) rowCode * this.columnCount + columnCode, -1);
+    }
   }
 
   /**
@@ -135,10 +195,9 @@ public final class PivotTableUtils {
   private static Map<String, BitSet> findNullValuesOnEntireColumn(PivotTable pivotTable) {
     int[] rowIndices = getHeaderIndices(pivotTable.table, pivotTable.columns);
     int[] measureIndices = getHeaderIndices(pivotTable.table, pivotTable.values);
-    int[] line = new int[1];
     Map<ObjectArrayKey, Set<Object>[]> distinctValuesByKey = new HashMap<>();
     Map<ObjectArrayKey, IntArrayList> lineByKey = new HashMap<>();
-    pivotTable.table.forEach(row -> {
+    pivotTable.table.forEachRow(row -> {
       Object[] coord = new Object[rowIndices.length];
       for (int i = 0; i < rowIndices.length; i++) {
         coord[i] = row.get(rowIndices[i]);
@@ -156,13 +215,12 @@ public final class PivotTableUtils {
       for (int i = 0; i < measureIndices.length; i++) {
         distinctValues[i].add(row.get(measureIndices[i]));
       }
-      lineByKey.computeIfAbsent(key, k -> new IntArrayList()).add(line[0]);
-      line[0]++;
+      lineByKey.computeIfAbsent(key, k -> new IntArrayList()).add(row.index());
     });
 
     BitSet[] bitSets = new BitSet[measureIndices.length];
     for (int i = 0; i < measureIndices.length; i++) {
-      bitSets[i] = new BitSet(line[0]);
+      bitSets[i] = new BitSet(pivotTable.table.count());
     }
     for (Map.Entry<ObjectArrayKey, Set<Object>[]> entry : distinctValuesByKey.entrySet()) {
       Set<Object>[] distinctValues = entry.getValue();
@@ -212,23 +270,96 @@ public final class PivotTableUtils {
 
     List<Map<String, Object>> cells = new ArrayList<>(pivotTable.table.count());
     List<String> headerNames = pivotTable.table.headers().stream().map(Header::name).toList();
-    int[] line = new int[1];
-    pivotTable.table.forEach(row -> {
+    pivotTable.table.forEachRow(row -> {
       Map<String, Object> cell = new HashMap<>();
       for (int i = 0; i < row.size(); i++) {
         Object value = row.get(i);
 
         BitSet bitSet = bitSetByValue.get(headerNames.get(i));
-        if ((bitSet == null && !NullAndTotalComparator.isTotal(value)) || (bitSet != null && !bitSet.get(line[0]))) {
+        if ((bitSet == null && !NullAndTotalComparator.isTotal(value)) || (bitSet != null && !bitSet.get(row.index()))) {
           cell.put(headerNames.get(i), value);
         }
       }
-      line[0]++;
       cells.add(cell);
     });
     return cells;
   }
 
+  /**
+   * Same as {@link #generateCells(PivotTable, Boolean)} but only the non-empty cells, i.e. with at least one measure
+   * value, are kept and they are encoded column by column: the values of the columns on rows and columns are
+   * dictionary-encoded and the values of the measures are stored in arrays. See {@link SparseCellsDto}.
+   */
+  public static SparseCellsDto generateSparseCells(PivotTable pivotTable, Boolean minify) {
+    Map<String, BitSet> bitSetByValue = minify == null || minify
+            ? PivotTableUtils.findNullValuesOnEntireColumn(pivotTable)
+            : Collections.emptyMap();
+
+    Table table = pivotTable.table;
+    List<Header> headers = table.headers();
+    // A measure value is absent from a cell if it is hidden by minify or if it is a total
+    BitSet[] absentByColumn = new BitSet[headers.size()];
+    BitSet nonEmpty = new BitSet(table.count());
+    for (int i = 0; i < headers.size(); i++) {
+      if (headers.get(i).isMeasure()) {
+        List<Object> column = table.getColumn(i);
+        BitSet bitSet = bitSetByValue.get(headers.get(i).name());
+        BitSet absent = new BitSet(table.count());
+        for (int row = 0; row < table.count(); row++) {
+          Object value = column.get(row);
+          if (bitSet == null ? NullAndTotalComparator.isTotal(value) : bitSet.get(row)) {
+            absent.set(row);
+          } else if (value != null) {
+            nonEmpty.set(row);
+          }
+        }
+        absentByColumn[i] = absent;
+      }
+    }
+
+    int[] rows = nonEmpty.stream().toArray();
+    Map<String, List<Object>> dictionaries = new LinkedHashMap<>();
+    Map<String, int[]> coordinates = new LinkedHashMap<>();
+    Map<String, List<Object>> measureValues = new LinkedHashMap<>();
+    Map<String, int[]> absentMeasureCells = new LinkedHashMap<>();
+    for (int i = 0; i < headers.size(); i++) {
+      Header header = headers.get(i);
+      List<Object> column = table.getColumn(i);
+      if (header.isMeasure()) {
+        List<Object> values = new ArrayList<>(rows.length);
+        IntArrayList absent = new IntArrayList();
+        for (int cell = 0; cell < rows.length; cell++) {
+          values.add(column.get(rows[cell]));
+          if (absentByColumn[i].get(rows[cell])) {
+            absent.add(cell);
+          }
+        }
+        measureValues.put(header.name(), values);
+        if (!absent.isEmpty()) {
+          absentMeasureCells.put(header.name(), absent.toArray());
+        }
+      } else {
+        Map<Object, Integer> codeByValue = new HashMap<>();
+        List<Object> dictionary = new ArrayList<>();
+        int[] codes = new int[rows.length];
+        for (int cell = 0; cell < rows.length; cell++) {
+          Object value = column.get(rows[cell]);
+          if (NullAndTotalComparator.isTotal(value)) {
+            codes[cell] = -1;
+          } else {
+            codes[cell] = codeByValue.computeIfAbsent(value, v -> {
+              dictionary.add(v);
+              return dictionary.size() - 1;
+            });
+          }
+        }
+        dictionaries.put(header.name(), dictionary);
+        coordinates.put(header.name(), codes);
+      }
+    }
+    return new SparseCellsDto(rows.length, dictionaries, coordinates, measureValues, absentMeasureCells);
+  }
+
   public static QueryDto prepareQuery(QueryDto query, PivotTableContext context) {
     Set<String> rowExpressions = context.rows.stream().map(SqlUtils::squashqlExpression).collect(Collectors.toSet());
     Set<String> columnExpressions = context.columns.stream().map(SqlUtils::squashqlExpression).collect(Collectors.toSet());
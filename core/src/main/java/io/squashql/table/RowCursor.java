@@ -0,0 +1,31 @@
+package io.squashql.table;
+
+/**
+ * A view on the current row of a {@link Table} when iterating with {@link Table#forEachRow(java.util.function.Consumer)}.
+ * The same instance is moved from one row to the next so it must not be kept once the callback returns.
+ */
+public interface RowCursor {
+
+  /**
+   * Returns the index of the current row.
+   */
+  int index();
+
+  /**
+   * Returns the number of columns of the row.
+   */
+  int size();
+
+  /**
+   * Returns the value of the current row in the column at the given index.
+   */
+  Object get(int columnIndex);
+
+  default long getLong(int columnIndex) {
+    return ((Number) get(columnIndex)).longValue();
+  }
+
+  default double getDouble(int columnIndex) {
+    return ((Number) get(columnIndex)).doubleValue();
+  }
+}
@@ -0,0 +1,22 @@
+package io.squashql.table;
+
+import io.squashql.query.Header;
+
+import java.util.List;
+
+/**
+ * Receives the rows of a result one by one as they are read, so that results of any size can be exported without
+ * holding them in memory. See {@link io.squashql.query.QueryExecutor#exportQuery}.
+ */
+public interface RowWriter {
+
+  /**
+   * Called once, before the rows.
+   */
+  void writeHeaders(List<Header> headers);
+
+  /**
+   * Called for each row. The cursor must not be kept once the method returns.
+   */
+  void writeRow(RowCursor row);
+}
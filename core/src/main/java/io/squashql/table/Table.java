@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import static io.squashql.query.compiled.CompiledExpressionMeasure.COMPILED_TOTAL_COUNT;
 
@@ -30,13 +31,41 @@ public interface Table extends Iterable<List<Object>> {
   void transferAggregates(Table from, CompiledMeasure measure);
 
   default List<Object> getColumn(int columnIndex) {
-    List<Object> elements = new ArrayList<>();
-    for (List<Object> objects : this) {
-      elements.add(objects.get(columnIndex));
-    }
+    List<Object> elements = new ArrayList<>(count());
+    forEachRow(row -> elements.add(row.get(columnIndex)));
     return elements;
   }
 
+  /**
+   * Iterates over the rows of the table without materializing them. The cursor given to the action is reused from one
+   * row to the next.
+   */
+  default void forEachRow(Consumer<RowCursor> action) {
+    int[] index = new int[1];
+    List<?>[] current = new List<?>[1];
+    RowCursor cursor = new RowCursor() {
+      @Override
+      public int index() {
+        return index[0];
+      }
+
+      @Override
+      public int size() {
+        return current[0].size();
+      }
+
+      @Override
+      public Object get(int columnIndex) {
+        return current[0].get(columnIndex);
+      }
+    };
+    for (List<Object> row : this) {
+      current[0] = row;
+      action.accept(cursor);
+      index[0]++;
+    }
+  }
+
   default List<Object> getColumnValues(String column) {
     return getColumn(columnIndex(column));
   }
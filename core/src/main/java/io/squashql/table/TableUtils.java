@@ -1,6 +1,5 @@
 package io.squashql.table;
 
-import com.google.common.base.Suppliers;
 import io.squashql.query.ColumnSet;
 import io.squashql.query.Header;
 import io.squashql.query.Measure;
@@ -17,10 +16,8 @@ import io.squashql.util.MultipleColumnsSorter;
 import io.squashql.util.NullAndTotalComparator;
 
 import java.util.*;
-import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -180,6 +177,18 @@ public class TableUtils {
   public static Table orderRows(ColumnarTable table,
                                 Map<String, Comparator<?>> comparatorByColumnName,
                                 Collection<ColumnSet> columnSets) {
+    return orderRows(table, comparatorByColumnName, columnSets, -1);
+  }
+
+  /**
+   * Orders the rows of the table and keeps only the first {@code limit} rows. If limit is negative, all rows are kept.
+   * When the limit is smaller than the number of rows, only the top rows are selected (no full sort) and only those
+   * are copied into the new table.
+   */
+  public static Table orderRows(ColumnarTable table,
+                                Map<String, Comparator<?>> comparatorByColumnName,
+                                Collection<ColumnSet> columnSets,
+                                int limit) {
     List<List<?>> args = new ArrayList<>();
     List<Comparator<?>> comparators = new ArrayList<>();
 
@@ -217,7 +226,7 @@ public class TableUtils {
       contextIndices[index] = namesForOrdering.indexOf(SqlUtils.squashqlExpression(cs.newField));
     }
 
-    int[] finalIndices = MultipleColumnsSorter.sort(args, comparators, contextIndices);
+    int[] finalIndices = MultipleColumnsSorter.sort(args, comparators, contextIndices, limit);
 
     List<List<Object>> values = new ArrayList<>();
     for (List<Object> value : table.getColumns()) {
@@ -239,57 +248,71 @@ public class TableUtils {
    * Same as {@link #replaceTotalCellValues(ColumnarTable, boolean)} but adapted to pivot table.
    */
   public static Table replaceTotalCellValues(ColumnarTable table, List<String> rows, List<String> columns) {
-    // To lazily copy the table when needed.
-    boolean[] lazilyCreated = new boolean[1];
-    Supplier<Table> finalTable = Suppliers.memoize(() -> {
-      lazilyCreated[0] = true;
-      return table.copy();
-    });
-
-    for (int rowIndex = 0; rowIndex < table.count(); rowIndex++) {
-      boolean grandTotalRow = true;
-      boolean grandTotalCol = true;
-      String total = QueryEngine.TOTAL;
-      for (int i = 0; i < table.headers().size(); i++) {
-        Header header = table.headers().get(i);
-        if (!header.isMeasure()) {
-          boolean isTotalCell = SqlTranslator.TOTAL_CELL.equals(table.getColumn(i).get(rowIndex));
-          if (isTotalCell) {
-            finalTable.get().getColumn(i).set(rowIndex, total);
-          }
-
-          if (rows.contains(header.name())) {
-            grandTotalRow &= isTotalCell;
+    List<Header> headers = table.headers();
+    Set<String> rowSet = new HashSet<>(rows);
+    Set<String> columnSet = new HashSet<>(columns);
+    int count = table.count();
+    // Number of total cells of each row along each axis. A row is a grand total along an axis when all the cells of
+    // the axis are totals.
+    int[] rowAxisTotals = new int[count];
+    int[] columnAxisTotals = new int[count];
+    int rowAxisSize = 0;
+    int columnAxisSize = 0;
+    boolean[] hasTotalCells = new boolean[headers.size()];
+    boolean hasTotal = false;
+    for (int i = 0; i < headers.size(); i++) {
+      Header header = headers.get(i);
+      if (header.isMeasure()) {
+        continue;
+      }
+      boolean onRows = rowSet.contains(header.name());
+      boolean onColumns = columnSet.contains(header.name());
+      rowAxisSize += onRows ? 1 : 0;
+      columnAxisSize += onColumns ? 1 : 0;
+      List<Object> values = table.getColumn(i);
+      for (int rowIndex = 0; rowIndex < count; rowIndex++) {
+        if (SqlTranslator.TOTAL_CELL.equals(values.get(rowIndex))) {
+          hasTotalCells[i] = true;
+          if (onRows) {
+            rowAxisTotals[rowIndex]++;
           }
-
-          if (columns.contains(header.name())) {
-            grandTotalCol &= isTotalCell;
+          if (onColumns) {
+            columnAxisTotals[rowIndex]++;
           }
         }
       }
+      hasTotal |= hasTotalCells[i];
+    }
 
-      int finalRowIndex = rowIndex;
-      BiConsumer<Boolean, List<String>> consumer = (grandTotal, axis) -> {
-        if (grandTotal) {
-          for (int i = 0; i < table.headers().size(); i++) {
-            Header header = table.headers().get(i);
-            if (!header.isMeasure() && axis.contains(header.name())) {
-              finalTable.get().getColumn(i).set(finalRowIndex, QueryEngine.GRAND_TOTAL);
-            }
-          }
-        }
-      };
-      consumer.accept(grandTotalRow, rows);
-      consumer.accept(grandTotalCol, columns);
+    if (!hasTotal) {
+      return table;
     }
 
-    return lazilyCreated[0] ? finalTable.get() : table;
+    // Only the columns containing total cells are copied, the others are shared with the input table.
+    List<List<Object>> newValues = new ArrayList<>(table.getColumns());
+    for (int i = 0; i < headers.size(); i++) {
+      if (!hasTotalCells[i]) {
+        continue;
+      }
+      boolean onRows = rowSet.contains(headers.get(i).name());
+      boolean onColumns = columnSet.contains(headers.get(i).name());
+      List<Object> values = new ArrayList<>(table.getColumn(i));
+      for (int rowIndex = 0; rowIndex < count; rowIndex++) {
+        if (SqlTranslator.TOTAL_CELL.equals(values.get(rowIndex))) {
+          boolean grandTotal = (onRows && rowAxisTotals[rowIndex] == rowAxisSize)
+                  || (onColumns && columnAxisTotals[rowIndex] == columnAxisSize);
+          values.set(rowIndex, grandTotal ? QueryEngine.GRAND_TOTAL : QueryEngine.TOTAL);
+        }
+      }
+      newValues.set(i, values);
+    }
+    return new ColumnarTable(headers, table.measures(), newValues);
   }
 
   /**
    * Changes the content of the input table to remove columns corresponding to grouping() (columns that help to identify
    * rows containing totals) and write {@link SqlTranslator#TOTAL_CELL} in the corresponding cells. The input table is
-   * <b>NOT</b> modified, a copy is created instead.
+   * <b>NOT</b> modified, a new table is created instead in which only the columns containing totals are copied.
    * <pre>
    *   Input:
    *   +----------+----------+---------------------------+---------------------------+------+----------------------+----+
@@ -316,30 +339,33 @@ public class TableUtils {
   public static Table replaceNullCellsByTotal(Table input, QueryScope scope) {
     Map<String, String> groupingHeaders = findGroupingHeaderNamesByBaseName(input.headers(), scope);
     if (!groupingHeaders.isEmpty()) {
-      List<List<Object>> newValues = new ArrayList<>();
+      List<List<Object>> newValues = new ArrayList<>(input.headers().size());
       for (int i = 0; i < input.headers().size(); i++) {
-        newValues.add(new ArrayList<>(input.getColumn(i)));
+        newValues.add(input.getColumn(i));
       }
-      ColumnarTable copy = new ColumnarTable(input.headers(), input.measures(), newValues);
-
-      Set<String> groupingNames = groupingHeaders.keySet();
-      for (int i = 0; i < copy.headers().size(); i++) {
-        Header header = copy.headers().get(i);
-        List<Object> columnValues = copy.getColumn(i);
-        if (groupingNames.contains(header.name())) {
-          String baseName = groupingHeaders.get(header.name());
-          List<Object> baseColumnValues = copy.getColumnValues(baseName);
-          for (int rowIndex = 0; rowIndex < columnValues.size(); rowIndex++) {
-            Object o = columnValues.get(rowIndex);
-            if (o != null && ((Number) o).longValue() == 1) {
-              // It is a total if == 1. It is cast as Number because the type is Byte with Spark, Long with
-              // ClickHouse...
-              baseColumnValues.set(rowIndex, SqlTranslator.TOTAL_CELL);
+
+      for (int i = 0; i < input.headers().size(); i++) {
+        String baseName = groupingHeaders.get(input.headers().get(i).name());
+        if (baseName == null) {
+          continue;
+        }
+        int baseIndex = input.columnIndex(baseName);
+        List<Object> columnValues = newValues.get(i);
+        List<Object> baseColumnValues = null; // copied on first write
+        for (int rowIndex = 0; rowIndex < columnValues.size(); rowIndex++) {
+          Object o = columnValues.get(rowIndex);
+          if (o != null && ((Number) o).longValue() == 1) {
+            // It is a total if == 1. It is cast as Number because the type is Byte with Spark, Long with
+            // ClickHouse...
+            if (baseColumnValues == null) {
+              baseColumnValues = new ArrayList<>(newValues.get(baseIndex));
+              newValues.set(baseIndex, baseColumnValues);
             }
+            baseColumnValues.set(rowIndex, SqlTranslator.TOTAL_CELL);
           }
         }
       }
-      return copy;
+      return new ColumnarTable(input.headers(), input.measures(), newValues);
     }
     return input;
   }
@@ -400,7 +426,7 @@ public class TableUtils {
     List<Map<String, Object>> cells = new ArrayList<>((int) table.count());
     List<String> headerNames = table.headers().stream().map(Header::name).toList();
     int[] sizeOfCell = new int[]{-1};
-    table.forEach(row -> {
+    table.forEachRow(row -> {
       if (sizeOfCell[0] == -1) {
         sizeOfCell[0] = row.size() - measuresWithNullValuesOnEntireColumn.size();
       }
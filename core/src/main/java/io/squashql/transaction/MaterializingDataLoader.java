@@ -0,0 +1,40 @@
+package io.squashql.transaction;
+
+import io.squashql.query.QueryExecutor;
+import io.squashql.query.cache.MaterializedAggregates;
+
+import java.util.List;
+
+/**
+ * A {@link DataLoader} keeping up to date the {@link MaterializedAggregates} of a {@link QueryExecutor}: the loaded rows
+ * are added to the aggregates of the table, and the results of the table held by the query cache are invalidated, as
+ * well as the aggregate tables of its {@link io.squashql.query.AggregateAdvisor}.
+ */
+public class MaterializingDataLoader implements DataLoader {
+
+  private final DataLoader delegate;
+  private final QueryExecutor queryExecutor;
+
+  public MaterializingDataLoader(DataLoader delegate, QueryExecutor queryExecutor) {
+    this.delegate = delegate;
+    this.queryExecutor = queryExecutor;
+  }
+
+  @Override
+  public void load(String table, List<Object[]> tuples) {
+    // The aggregate tables are not routed to from now on, and the cache is invalidated once the rows are visible so
+    // that it does not keep results computed in between.
+    this.queryExecutor.aggregateAdvisor.invalidate(table);
+    this.queryExecutor.materializedAggregates.load(this.delegate, table, tuples);
+    this.queryExecutor.queryCache.invalidate(table);
+  }
+
+  @Override
+  public void loadCsv(String table, String path, String delimiter, boolean header) {
+    this.queryExecutor.aggregateAdvisor.invalidate(table);
+    this.delegate.loadCsv(table, path, delimiter, header);
+    // The rows are not known, the aggregates are recomputed.
+    this.queryExecutor.materializedAggregates.refresh(table);
+    this.queryExecutor.queryCache.invalidate(table);
+  }
+}
@@ -0,0 +1,101 @@
+package io.squashql.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link Executor} running at most {@link #maxConcurrency} tasks at the same time, the other tasks being queued. The
+ * tasks are run either by platform threads or, if {@link #VIRTUAL_THREADS} is set and the runtime supports them (Java
+ * 21+), by virtual threads. With virtual threads, a task blocked on I/O (a JDBC call for instance) does not hold a
+ * platform thread.
+ * <p>
+ * The executor used by default to execute the queries is {@link #DEFAULT}. It is dedicated to SquashQL so that the
+ * queries do not compete with other tasks of the {@link ForkJoinPool#commonPool()}.
+ */
+@Slf4j
+public class BoundedExecutor implements Executor {
+
+  public static final boolean VIRTUAL_THREADS = Boolean.parseBoolean(System.getProperty("io.squashql.executor.virtual-threads", "false"));
+  public static final int MAX_CONCURRENCY = Integer.parseInt(System.getProperty("io.squashql.executor.max-concurrency",
+          Integer.toString(4 * Runtime.getRuntime().availableProcessors())));
+  public static final BoundedExecutor DEFAULT = new BoundedExecutor(MAX_CONCURRENCY, VIRTUAL_THREADS);
+
+  public final int maxConcurrency;
+  public final boolean virtual;
+  private final ExecutorService delegate;
+  private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger running = new AtomicInteger();
+
+  public BoundedExecutor(int maxConcurrency, boolean virtualThreads) {
+    if (maxConcurrency <= 0) {
+      throw new IllegalArgumentException("maxConcurrency must be positive but was " + maxConcurrency);
+    }
+    this.maxConcurrency = maxConcurrency;
+    ExecutorService virtualExecutor = virtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+    this.virtual = virtualExecutor != null;
+    this.delegate = this.virtual ? virtualExecutor : Executors.newCachedThreadPool(r -> {
+      Thread thread = new Thread(r, "squashql-query-" + r.hashCode());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Returns an executor creating a virtual thread per task, or null if virtual threads are not supported by the
+   * runtime. Reflection is used because SquashQL is compiled for Java 17.
+   */
+  public static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      log.warn("Virtual threads are not supported by this runtime (Java " + Runtime.version().feature() + "), platform threads are used instead");
+      return null;
+    }
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    this.queue.add(task);
+    drain();
+  }
+
+  /**
+   * Returns the number of tasks waiting for a running task to complete.
+   */
+  public int queued() {
+    return this.queue.size();
+  }
+
+  private void drain() {
+    while (!this.queue.isEmpty()) {
+      int r = this.running.get();
+      if (r >= this.maxConcurrency) {
+        return; // the next task to complete will drain the queue
+      }
+      if (!this.running.compareAndSet(r, r + 1)) {
+        continue;
+      }
+      Runnable task = this.queue.poll();
+      if (task == null) {
+        this.running.decrementAndGet();
+        continue;
+      }
+      try {
+        this.delegate.execute(() -> {
+          try {
+            task.run();
+          } finally {
+            this.running.decrementAndGet();
+            drain();
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        this.running.decrementAndGet();
+        throw e;
+      }
+    }
+  }
+}
@@ -8,10 +8,14 @@ public final class ListUtils {
   private ListUtils() {
   }
 
+  /**
+   * Creates a new list containing the elements of the given list at the positions given by {@code order}. The size of
+   * the returned list is the length of {@code order} that can be smaller than the size of the list.
+   */
   public static <T> List<T> reorder(List<T> list, int[] order) {
-    List<T> ordered = new ArrayList<>(list);
-    for (int i = 0; i < list.size(); i++) {
-      ordered.set(i, list.get(order[i]));
+    List<T> ordered = new ArrayList<>(order.length);
+    for (int index : order) {
+      ordered.add(list.get(index));
     }
     return ordered;
   }
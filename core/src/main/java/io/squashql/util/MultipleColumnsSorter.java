@@ -3,6 +3,7 @@ package io.squashql.util;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 
 public class MultipleColumnsSorter {
 
@@ -17,6 +18,39 @@ public class MultipleColumnsSorter {
     return Arrays.stream(originalIndex).mapToInt(Integer::intValue).toArray();
   }
 
+  /**
+   * Same as {@link #sort(List, List, int[])} but only returns the indices of the first {@code limit} rows. When the limit
+   * is smaller than the number of rows, a bounded heap is used instead of sorting every row. Ties are broken by the
+   * original index so that the result is the same prefix as the one returned by a full sort.
+   */
+  public static int[] sort(List<List<?>> args,
+                           List<Comparator<?>> comparators,
+                           int[] contextIndexReaders,
+                           int limit) {
+    int size = args.get(0).size();
+    if (limit < 0 || limit >= size) {
+      return sort(args, comparators, contextIndexReaders);
+    }
+
+    Comparator<Integer> comparator = new IndexComparator(args, comparators, contextIndexReaders).thenComparingInt(i -> i);
+    // Max-heap: the head is the "worst" row among the ones kept so far.
+    PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(1, limit), comparator.reversed());
+    for (int i = 0; i < size && limit > 0; i++) {
+      if (heap.size() < limit) {
+        heap.add(i);
+      } else if (comparator.compare(i, heap.peek()) < 0) {
+        heap.poll();
+        heap.add(i);
+      }
+    }
+
+    int[] result = new int[heap.size()];
+    for (int i = result.length - 1; i >= 0; i--) {
+      result[i] = heap.poll();
+    }
+    return result;
+  }
+
   private static class IndexComparator implements Comparator<Integer> {
     List<List<?>> argsList;
     List<Comparator<?>> comparators;
@@ -0,0 +1,129 @@
+package io.squashql.jdbc;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class TestConnectionPool {
+
+  private final List<FakeConnection> created = new ArrayList<>();
+
+  private ConnectionPool createPool(int maxSize, Duration idleTimeout) {
+    return new ConnectionPool(() -> {
+      FakeConnection fake = new FakeConnection();
+      this.created.add(fake);
+      return fake.connection;
+    }, maxSize, idleTimeout, Duration.ofSeconds(1));
+  }
+
+  @Test
+  void testReuse() throws SQLException {
+    ConnectionPool pool = createPool(2, Duration.ofMinutes(1));
+    Connection c1 = pool.getConnection();
+    c1.close();
+    Assertions.assertThat(c1.isClosed()).isTrue();
+    Assertions.assertThatThrownBy(() -> c1.createStatement().close()).isInstanceOf(SQLException.class);
+    Assertions.assertThat(pool.idle()).isEqualTo(1);
+
+    Connection c2 = pool.getConnection();
+    Assertions.assertThat(this.created).hasSize(1);
+    Assertions.assertThat(this.created.get(0).closed).isFalse();
+    c2.close();
+    c2.close(); // no effect the second time
+    Assertions.assertThat(pool.size()).isEqualTo(1);
+    Assertions.assertThat(pool.idle()).isEqualTo(1);
+
+    pool.close();
+    Assertions.assertThat(this.created.get(0).closed).isTrue();
+    Assertions.assertThat(pool.size()).isZero();
+    Assertions.assertThatThrownBy(() -> pool.getConnection().close()).isInstanceOf(SQLException.class);
+  }
+
+  @Test
+  void testMaxSize() throws SQLException {
+    ConnectionPool pool = createPool(2, Duration.ofMinutes(1));
+    Connection c1 = pool.getConnection();
+    Connection c2 = pool.getConnection();
+    Assertions.assertThatThrownBy(() -> pool.getConnection().close()).isInstanceOf(SQLTimeoutException.class);
+
+    CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+      try {
+        return pool.getConnection();
+      } catch (SQLException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    c1.close();
+    Connection c3 = waiting.join();
+    Assertions.assertThat(this.created).hasSize(2);
+    c2.close();
+    c3.close();
+    Assertions.assertThat(pool.size()).isEqualTo(2);
+  }
+
+  @Test
+  void testInvalidAndBrokenConnectionsAreDiscarded() throws Exception {
+    ConnectionPool pool = createPool(2, Duration.ofMinutes(1));
+    Connection c1 = pool.getConnection();
+    c1.setAutoCommit(false);
+    c1.close();
+    Assertions.assertThat(this.created.get(0).autoCommit).isTrue(); // reset before going back to the pool
+    Assertions.assertThat(this.created.get(0).rolledBack).isTrue();
+
+    this.created.get(0).valid = false;
+    Thread.sleep(600); // so that the connection is validated
+    Connection c2 = pool.getConnection();
+    Assertions.assertThat(this.created).hasSize(2);
+    Assertions.assertThat(this.created.get(0).closed).isTrue();
+
+    this.created.get(1).closed = true; // closed by the database for instance
+    c2.close();
+    Assertions.assertThat(pool.size()).isZero();
+  }
+
+  @Test
+  void testIdleTimeout() throws Exception {
+    ConnectionPool pool = createPool(2, Duration.ofMillis(50));
+    Connection c1 = pool.getConnection();
+    Connection c2 = pool.getConnection();
+    c1.close();
+    c2.close();
+    Thread.sleep(200);
+    Assertions.assertThat(pool.size()).isZero();
+    Assertions.assertThat(this.created).allMatch(c -> c.closed);
+  }
+
+  private static class FakeConnection {
+
+    private volatile boolean closed;
+    private volatile boolean valid = true;
+    private boolean autoCommit = true;
+    private boolean rolledBack;
+    private final Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+      case "close" -> {
+        this.closed = true;
+        yield null;
+      }
+      case "isClosed" -> this.closed;
+      case "isValid" -> this.valid;
+      case "getAutoCommit" -> this.autoCommit;
+      case "setAutoCommit" -> {
+        this.autoCommit = (boolean) args[0];
+        yield null;
+      }
+      case "rollback" -> {
+        this.rolledBack = true;
+        yield null;
+      }
+      default -> null;
+    });
+  }
+}
@@ -0,0 +1,162 @@
+package io.squashql.query;
+
+import io.squashql.TestClass;
+import io.squashql.query.builder.Query;
+import io.squashql.query.dto.QueryDto;
+import io.squashql.query.parameter.QueryCacheParameter;
+import io.squashql.table.Table;
+import io.squashql.type.TableTypedField;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static io.squashql.query.Functions.*;
+import static io.squashql.query.TableField.tableField;
+import static io.squashql.query.TableField.tableFields;
+import static io.squashql.query.database.QueryEngine.GRAND_TOTAL;
+import static io.squashql.query.database.QueryEngine.TOTAL;
+import static io.squashql.transaction.DataLoader.MAIN_SCENARIO_NAME;
+import static io.squashql.transaction.DataLoader.SCENARIO_FIELD_NAME;
+
+@TestClass(ignore = {TestClass.Type.BIGQUERY, TestClass.Type.SNOWFLAKE, TestClass.Type.CLICKHOUSE, TestClass.Type.SPARK, TestClass.Type.POSTGRESQL})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public abstract class ATestAggregateAdvisor extends ABaseTestQuery {
+
+  protected String storeName = "store" + getClass().getSimpleName().toLowerCase();
+
+  @Override
+  protected Map<String, List<TableTypedField>> getFieldsByStore() {
+    TableTypedField scenario = new TableTypedField(this.storeName, "scenario", String.class);
+    TableTypedField ean = new TableTypedField(this.storeName, "ean", String.class);
+    TableTypedField category = new TableTypedField(this.storeName, "category", String.class);
+    TableTypedField price = new TableTypedField(this.storeName, "price", double.class);
+    TableTypedField qty = new TableTypedField(this.storeName, "quantity", int.class);
+    return Map.of(this.storeName, List.of(scenario, ean, category, price, qty));
+  }
+
+  @Override
+  protected void loadData() {
+    this.tm.load(this.storeName, List.of(
+            new Object[]{"base", "bottle", "drink", 2d, 10},
+            new Object[]{"base", "cookie", "food", 3d, 20},
+            new Object[]{"base", "shirt", "cloth", 10d, 3}
+    ));
+  }
+
+  @BeforeEach
+  void beforeEach() {
+    this.executor.aggregateAdvisor.clearStatistics();
+    List.copyOf(this.executor.aggregateAdvisor.aggregateTables()).forEach(this.executor.aggregateAdvisor::drop);
+    createTables();
+    loadData();
+  }
+
+  private Table execute(QueryDto query) {
+    return this.executor.executeQuery(query.withParameter(QueryCacheParameter.KEY, new QueryCacheParameter(QueryCacheParameter.Action.NOT_USE)));
+  }
+
+  @Test
+  void testRecommendAndRoute() {
+    QueryDto byScenario = Query
+            .from(this.storeName)
+            .select(tableFields(List.of(SCENARIO_FIELD_NAME)), List.of(sum("ps", "price")))
+            .build();
+    QueryDto byCategory = Query
+            .from(this.storeName)
+            .where(tableField(SCENARIO_FIELD_NAME), eq(MAIN_SCENARIO_NAME))
+            .select(tableFields(List.of("category")), List.of(sum("qs", "quantity"), max("max", "price")))
+            .build();
+    QueryDto withRollup = Query
+            .from(this.storeName)
+            .select(tableFields(List.of(SCENARIO_FIELD_NAME, "category")), List.of(sum("ps", "price"), sum("qs", "quantity")))
+            .rollup(tableFields(List.of(SCENARIO_FIELD_NAME, "category")))
+            .build();
+    QueryDto notRoutable = Query
+            .from(this.storeName)
+            .select(tableFields(List.of(SCENARIO_FIELD_NAME)), List.of(avg("avg", "price")))
+            .build();
+    Table expectedByScenario = execute(byScenario);
+    Table expectedByCategory = execute(byCategory);
+    Table expectedWithRollup = execute(withRollup);
+    execute(notRoutable);
+
+    List<AggregateAdvisor.Recommendation> recommendations = this.executor.aggregateAdvisor.recommend(5);
+    Assertions.assertThat(recommendations).hasSize(1);
+    AggregateAdvisor.Recommendation recommendation = recommendations.get(0);
+    Assertions.assertThat(recommendation.aggregateTable().columns).containsExactlyInAnyOrder(SCENARIO_FIELD_NAME, "category");
+    Assertions.assertThat(recommendation.aggregateTable().measures).containsExactlyInAnyOrder(
+            new AggregateAdvisor.MeasureKey("count", "*"),
+            new AggregateAdvisor.MeasureKey("sum", "price"),
+            new AggregateAdvisor.MeasureKey("sum", "quantity"),
+            new AggregateAdvisor.MeasureKey("max", "price"));
+    Assertions.assertThat(recommendation.queryCount()).isEqualTo(3);
+
+    this.executor.aggregateAdvisor.create(recommendation);
+    // Bypass the aggregate table to check it is used
+    this.tm.load(this.storeName, List.<Object[]>of(new Object[]{"base", "hat", "cloth", 7d, 1}));
+
+    Assertions.assertThat(execute(byScenario)).containsExactlyInAnyOrderElementsOf(expectedByScenario);
+    Assertions.assertThat(execute(byCategory)).containsExactlyInAnyOrderElementsOf(expectedByCategory);
+    Assertions.assertThat(execute(withRollup)).containsExactlyInAnyOrderElementsOf(expectedWithRollup);
+    Assertions.assertThat(execute(notRoutable)).containsExactly(List.of("base", 5.5d));
+    Assertions.assertThat(this.executor.aggregateAdvisor.recommend(5)).isEmpty();
+
+    this.executor.aggregateAdvisor.invalidate(this.storeName);
+    Assertions.assertThat(execute(byScenario)).containsExactly(List.of("base", 22d));
+
+    this.executor.aggregateAdvisor.refresh(this.storeName);
+    Assertions.assertThat(execute(withRollup)).containsExactly(
+            List.of(GRAND_TOTAL, GRAND_TOTAL, 22d, 34L),
+            List.of(MAIN_SCENARIO_NAME, TOTAL, 22d, 34L),
+            List.of(MAIN_SCENARIO_NAME, "cloth", 17d, 4L),
+            List.of(MAIN_SCENARIO_NAME, "drink", 2d, 10L),
+            List.of(MAIN_SCENARIO_NAME, "food", 3d, 20L));
+  }
+
+  @Test
+  void testCountIsSummed() {
+    QueryDto query = Query
+            .from(this.storeName)
+            .select(tableFields(List.of("category")), List.of(CountMeasure.INSTANCE, count("ean_count", "ean")))
+            .rollup(tableFields(List.of("category")))
+            .build();
+    Table expected = execute(query);
+    this.executor.aggregateAdvisor.createRecommended(1);
+    this.tm.load(this.storeName, List.<Object[]>of(new Object[]{"base", "cookie", "food", 3d, 20}));
+
+    Table routed = execute(query);
+    Assertions.assertThat(routed.headers()).isEqualTo(expected.headers());
+    Assertions.assertThat(routed).containsExactlyInAnyOrderElementsOf(expected);
+    Assertions.assertThat(routed).containsExactlyInAnyOrder(
+            List.of(GRAND_TOTAL, 3L, 3L),
+            List.of("cloth", 1L, 1L),
+            List.of("drink", 1L, 1L),
+            List.of("food", 1L, 1L));
+  }
+
+  @Test
+  void testOneRecommendationPerColumnSet() {
+    QueryDto byEan = Query
+            .from(this.storeName)
+            .select(tableFields(List.of("ean")), List.of(sum("ps", "price")))
+            .build();
+    QueryDto byCategory = Query
+            .from(this.storeName)
+            .select(tableFields(List.of("category")), List.of(sum("ps", "price")))
+            .build();
+    for (int i = 0; i < 3; i++) {
+      execute(byEan);
+    }
+    execute(byCategory);
+
+    Assertions.assertThat(this.executor.aggregateAdvisor.recommend(1)).hasSize(1);
+    Assertions.assertThat(this.executor.aggregateAdvisor.recommend(5))
+            .extracting(r -> r.aggregateTable().columns)
+            .containsExactlyInAnyOrder(Set.of("ean"), Set.of("category"));
+  }
+}
@@ -0,0 +1,144 @@
+package io.squashql.query;
+
+import io.squashql.TestClass;
+import io.squashql.query.builder.Query;
+import io.squashql.query.database.CancellationToken;
+import io.squashql.query.dto.ApproximationDto;
+import io.squashql.query.dto.QueryDto;
+import io.squashql.query.parameter.QuerySamplingParameter;
+import io.squashql.table.Table;
+import io.squashql.type.TableTypedField;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static io.squashql.query.Functions.*;
+import static io.squashql.query.TableField.tableField;
+import static io.squashql.query.TableField.tableFields;
+
+@TestClass(ignore = {TestClass.Type.BIGQUERY, TestClass.Type.SNOWFLAKE, TestClass.Type.CLICKHOUSE, TestClass.Type.SPARK, TestClass.Type.POSTGRESQL})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public abstract class ATestApproximateQuery extends ABaseTestQuery {
+
+  private static final int ROWS_PER_CATEGORY = 1000;
+
+  protected String storeName = "store" + getClass().getSimpleName().toLowerCase();
+
+  @Override
+  protected Map<String, List<TableTypedField>> getFieldsByStore() {
+    TableTypedField category = new TableTypedField(this.storeName, "category", String.class);
+    TableTypedField price = new TableTypedField(this.storeName, "price", double.class);
+    TableTypedField qty = new TableTypedField(this.storeName, "quantity", int.class);
+    return Map.of(this.storeName, List.of(category, price, qty));
+  }
+
+  @Override
+  protected void loadData() {
+    List<Object[]> tuples = new ArrayList<>();
+    for (int i = 0; i < ROWS_PER_CATEGORY; i++) {
+      tuples.add(new Object[]{"a", 1d, 2});
+      tuples.add(new Object[]{"b", 3d, 2});
+    }
+    this.tm.load(this.storeName, tuples);
+  }
+
+  private QueryDto query(double samplingPercentage) {
+    return Query
+            .from(this.storeName)
+            .select(tableFields(List.of("category")), List.of(CountMeasure.INSTANCE, sum("ps", "price"), sum("qs", "quantity"), max("max", "price")))
+            .build()
+            .withParameter(QuerySamplingParameter.KEY, new QuerySamplingParameter(samplingPercentage));
+  }
+
+  private Table execute(QueryDto query, QueryExecutionContext context) {
+    return this.executor.executeQueryAsync(query, context, true, null, QueryExecutor.createPivotTableContext(query)).join();
+  }
+
+  private static QueryExecutionContext context() {
+    return new QueryExecutionContext(null, new CancellationToken());
+  }
+
+  @Test
+  void testFullSample() {
+    QueryExecutionContext context = context();
+    Table result = execute(query(100), context);
+    Assertions.assertThat(result).containsExactly(
+            List.of("a", 1000L, 1000d, 2000L, 1d),
+            List.of("b", 1000L, 3000d, 2000L, 3d));
+
+    ApproximationDto approximation = context.approximation.build();
+    Assertions.assertThat(approximation.samplingPercentage).isEqualTo(100);
+    Assertions.assertThat(approximation.relativeError).isZero();
+    Assertions.assertThat(approximation.estimatedMeasures).containsExactly(CountMeasure.ALIAS, "ps", "qs");
+  }
+
+  @Test
+  void testSample() {
+    QueryExecutionContext context = context();
+    Table result = execute(query(50), context);
+    ApproximationDto approximation = context.approximation.build();
+    Assertions.assertThat(approximation.confidenceLevel).isEqualTo(ApproximationDto.CONFIDENCE_LEVEL);
+    // About 500 sampled rows per category
+    Assertions.assertThat(approximation.relativeError).isBetween(0.04, 0.1);
+
+    Assertions.assertThat(result.count()).isEqualTo(2);
+    result.forEach(row -> {
+      long count = (long) row.get(1);
+      double price = "a".equals(row.get(0)) ? 1d : 3d;
+      // Far beyond the bound to not fail randomly
+      Assertions.assertThat(count).isBetween(
+              (long) (ROWS_PER_CATEGORY * (1 - 3 * approximation.relativeError)),
+              (long) (ROWS_PER_CATEGORY * (1 + 3 * approximation.relativeError)));
+      Assertions.assertThat((double) row.get(2)).isEqualTo(count * price);
+      Assertions.assertThat(row.get(3)).isEqualTo(2 * count);
+      Assertions.assertThat(row.get(4)).isEqualTo(price); // not scaled
+    });
+  }
+
+  @Test
+  void testScopesAreSampledConsistently() {
+    // The grand total ignores the condition so it is computed by another query than the one grouped by category, from
+    // the same sample. The condition selects all the rows so the percentages sum to 1.
+    Measure ps = sum("ps", "price");
+    ComparisonMeasureGrandTotal percentOfGT = new ComparisonMeasureGrandTotal("percentOfGT", ComparisonMethod.DIVIDE, ps);
+    QueryDto query = Query
+            .from(this.storeName)
+            .where(criterion(tableField("category"), in("a", "b")))
+            .select(tableFields(List.of("category")), List.of(ps, percentOfGT))
+            .build()
+            .withParameter(QuerySamplingParameter.KEY, new QuerySamplingParameter(50));
+    for (int i = 0; i < 5; i++) {
+      Table result = execute(query, context());
+      double sum = 0;
+      for (List<Object> row : result) {
+        sum += (double) row.get(2);
+      }
+      Assertions.assertThat(sum).isCloseTo(1d, Assertions.within(1e-9));
+    }
+  }
+
+  @Test
+  void testEstimatesAreNotCached() {
+    execute(query(50), context());
+
+    QueryDto exact = query(50);
+    exact.parameters.remove(QuerySamplingParameter.KEY);
+    QueryExecutionContext context = context();
+    Assertions.assertThat(execute(exact, context)).containsExactly(
+            List.of("a", 1000L, 1000d, 2000L, 1d),
+            List.of("b", 1000L, 3000d, 2000L, 3d));
+    Assertions.assertThat(context.approximation.build()).isNull();
+  }
+
+  @Test
+  void testInvalidPercentage() {
+    Assertions.assertThatThrownBy(() -> this.executor.executeQuery(query(0)))
+            .isInstanceOf(IllegalArgumentException.class);
+    Assertions.assertThatThrownBy(() -> this.executor.executeQuery(query(150)))
+            .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -133,6 +133,27 @@ public abstract class ATestGroupComparison extends ABaseTestQuery {
             List.of("group3", "s1", 4d));
   }
 
+  @Test
+  void testLimitDoesNotTruncateGroups() {
+    AggregatedMeasure price = new AggregatedMeasure("p", "price", "sum");
+    // The limit applies to the rows read from the database, not to the rows expanded by the group column set
+    var query = Query
+            .from(this.storeName)
+            .select_(List.of(this.groupCS), List.of(price))
+            .limit(3)
+            .build();
+
+    Table dataset = this.executor.executeQuery(query);
+    Assertions.assertThat(dataset).containsExactly(
+            List.of("group1", MAIN_SCENARIO_NAME, 15d),
+            List.of("group1", "s1", 19d),
+            List.of("group2", MAIN_SCENARIO_NAME, 15d),
+            List.of("group2", "s2", 13d),
+            List.of("group3", MAIN_SCENARIO_NAME, 15d),
+            List.of("group3", "s1", 19d),
+            List.of("group3", "s2", 13d));
+  }
+
   @Test
   void testAbsoluteDifferenceWithPrevious() {
     AggregatedMeasure price = new AggregatedMeasure("p", "price", "sum");
@@ -0,0 +1,183 @@
+package io.squashql.query;
+
+import io.squashql.TestClass;
+import io.squashql.query.builder.Query;
+import io.squashql.query.dto.QueryDto;
+import io.squashql.table.Table;
+import io.squashql.transaction.DataLoader;
+import io.squashql.transaction.MaterializingDataLoader;
+import io.squashql.type.TableTypedField;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.List;
+import java.util.Map;
+
+import static io.squashql.query.Functions.*;
+import static io.squashql.query.TableField.tableField;
+import static io.squashql.query.TableField.tableFields;
+import static io.squashql.transaction.DataLoader.SCENARIO_FIELD_NAME;
+
+@TestClass(ignore = {TestClass.Type.BIGQUERY, TestClass.Type.SNOWFLAKE, TestClass.Type.CLICKHOUSE, TestClass.Type.SPARK, TestClass.Type.POSTGRESQL})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public abstract class ATestMaterializedAggregates extends ABaseTestQuery {
+
+  protected String storeName = "store" + getClass().getSimpleName().toLowerCase();
+  protected DataLoader materializingLoader;
+
+  @Override
+  protected void afterSetup() {
+    this.materializingLoader = new MaterializingDataLoader(this.tm, this.executor);
+  }
+
+  @Override
+  protected Map<String, List<TableTypedField>> getFieldsByStore() {
+    TableTypedField scenario = new TableTypedField(this.storeName, "scenario", String.class);
+    TableTypedField ean = new TableTypedField(this.storeName, "ean", String.class);
+    TableTypedField category = new TableTypedField(this.storeName, "category", String.class);
+    TableTypedField price = new TableTypedField(this.storeName, "price", double.class);
+    TableTypedField qty = new TableTypedField(this.storeName, "quantity", int.class);
+    return Map.of(this.storeName, List.of(scenario, ean, category, price, qty));
+  }
+
+  @Override
+  protected void loadData() {
+    this.tm.load(this.storeName, List.of(
+            new Object[]{"base", "bottle", "drink", 2d, 10},
+            new Object[]{"base", "cookie", "food", 3d, 20},
+            new Object[]{"base", "shirt", "cloth", 10d, 3}
+    ));
+  }
+
+  @BeforeEach
+  void beforeEach() {
+    this.executor.materializedAggregates.clear();
+    this.executor.queryCache.clear();
+    createTables();
+    loadData();
+  }
+
+  private void register() {
+    this.executor.materializedAggregates.register(Query
+            .from(this.storeName)
+            .select(tableFields(List.of(SCENARIO_FIELD_NAME, "category")), List.of(
+                    sum("ps", "price"),
+                    sum("qs", "quantity"),
+                    min("min", "price"),
+                    max("max", "price"),
+                    CountMeasure.INSTANCE))
+            .build());
+  }
+
+  /**
+   * Executes the query from the aggregates then from the database, and checks both results are the same.
+   */
+  private Table executeAndCompare(QueryDto query) {
+    Table fromAggregates = this.executor.executeQuery(query);
+    this.executor.materializedAggregates.clear();
+    this.executor.queryCache.clear();
+    Table fromDatabase = this.executor.executeQuery(query);
+    Assertions.assertThat(fromAggregates.headers()).isEqualTo(fromDatabase.headers());
+    Assertions.assertThat(fromAggregates).containsExactlyInAnyOrderElementsOf(fromDatabase);
+    return fromAggregates;
+  }
+
+  @Test
+  void testIncrementalLoad() {
+    register();
+    this.materializingLoader.load(this.storeName, List.of(
+            new Object[]{"s1", "bottle", "drink", 4d, 5},
+            new Object[]{"s1", "cookie", "food", 1d, 2},
+            new Object[]{"base", "hat", "cloth", 7d, 1}
+    ));
+
+    QueryDto query = Query
+            .from(this.storeName)
+            .select(tableFields(List.of(SCENARIO_FIELD_NAME)), List.of(sum("qs", "quantity"), CountMeasure.INSTANCE, sum("price_sum", "price")))
+            .build();
+    Table result = executeAndCompare(query);
+    Assertions.assertThat(result).containsExactlyInAnyOrder(
+            List.of("base", 34L, 4L, 22d),
+            List.of("s1", 7L, 2L, 5d));
+
+    register();
+    query = Query
+            .from(this.storeName)
+            .select(tableFields(List.of("category")), List.of(min("min", "price"), max("max", "price")))
+            .build();
+    result = executeAndCompare(query);
+    Assertions.assertThat(result).containsExactlyInAnyOrder(
+            List.of("cloth", 7d, 10d),
+            List.of("drink", 2d, 4d),
+            List.of("food", 1d, 3d));
+  }
+
+  @Test
+  void testQueriesAreAnsweredFromAggregates() {
+    register();
+    // Bypass the aggregates
+    this.tm.load(this.storeName, List.<Object[]>of(new Object[]{"base", "hat", "cloth", 7d, 1}));
+
+    QueryDto query = Query
+            .from(this.storeName)
+            .select(tableFields(List.of(SCENARIO_FIELD_NAME)), List.of(sum("ps", "price")))
+            .build();
+    Assertions.assertThat(this.executor.executeQuery(query)).containsExactly(List.of("base", 15d));
+
+    this.executor.materializedAggregates.refresh(this.storeName);
+    Assertions.assertThat(this.executor.executeQuery(query)).containsExactly(List.of("base", 22d));
+  }
+
+  @Test
+  void testScopeNotCovered() {
+    register();
+    this.tm.load(this.storeName, List.<Object[]>of(new Object[]{"base", "hat", "cloth", 7d, 1}));
+
+    // Condition
+    QueryDto query = Query
+            .from(this.storeName)
+            .where(tableField("category"), eq("cloth"))
+            .select(tableFields(List.of(SCENARIO_FIELD_NAME)), List.of(sum("ps", "price")))
+            .build();
+    Assertions.assertThat(this.executor.executeQuery(query)).containsExactly(List.of("base", 17d));
+
+    // Column not materialized
+    query = Query
+            .from(this.storeName)
+            .select(tableFields(List.of("ean")), List.of(sum("ps", "price")))
+            .build();
+    Assertions.assertThat(this.executor.executeQuery(query)).hasSize(4);
+
+    // Measure not materialized
+    query = Query
+            .from(this.storeName)
+            .select(tableFields(List.of(SCENARIO_FIELD_NAME)), List.of(avg("avg", "price")))
+            .build();
+    Assertions.assertThat(this.executor.executeQuery(query)).containsExactly(List.of("base", 5.5d));
+  }
+
+  @Test
+  void testLoadInvalidatesTheCache() {
+    QueryDto query = Query
+            .from(this.storeName)
+            .select(tableFields(List.of(SCENARIO_FIELD_NAME)), List.of(sum("ps", "price")))
+            .build();
+    Assertions.assertThat(this.executor.executeQuery(query)).containsExactly(List.of("base", 15d));
+    Assertions.assertThat(this.executor.executeQuery(query)).containsExactly(List.of("base", 15d)); // from the cache
+
+    this.materializingLoader.load(this.storeName, List.<Object[]>of(new Object[]{"base", "hat", "cloth", 7d, 1}));
+    Assertions.assertThat(this.executor.executeQuery(query)).containsExactly(List.of("base", 22d));
+  }
+
+  @Test
+  void testQueryCannotBeMaterialized() {
+    QueryDto query = Query
+            .from(this.storeName)
+            .select(tableFields(List.of(SCENARIO_FIELD_NAME)), List.of(avg("avg", "price")))
+            .build();
+    Assertions.assertThatThrownBy(() -> this.executor.materializedAggregates.register(query))
+            .isInstanceOf(IllegalArgumentException.class);
+  }
+}
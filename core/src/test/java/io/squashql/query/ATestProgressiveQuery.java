@@ -0,0 +1,111 @@
+package io.squashql.query;
+
+import io.squashql.TestClass;
+import io.squashql.query.builder.Query;
+import io.squashql.query.cache.EmptyQueryCache;
+import io.squashql.query.dto.QueryDto;
+import io.squashql.table.Table;
+import io.squashql.type.TableTypedField;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static io.squashql.query.ComparisonMethod.DIVIDE;
+
+@TestClass(ignore = {TestClass.Type.BIGQUERY, TestClass.Type.SNOWFLAKE, TestClass.Type.CLICKHOUSE, TestClass.Type.SPARK, TestClass.Type.POSTGRESQL})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public abstract class ATestProgressiveQuery extends ABaseTestQuery {
+
+  private final String storeName = "store" + getClass().getSimpleName().toLowerCase();
+  private final TableField city = new TableField(this.storeName, "city");
+  private final TableField country = new TableField(this.storeName, "country");
+  private final TableField continent = new TableField(this.storeName, "continent");
+  private final TableField population = new TableField(this.storeName, "population");
+
+  @Override
+  protected Map<String, List<TableTypedField>> getFieldsByStore() {
+    TableTypedField city = new TableTypedField(this.storeName, "city", String.class);
+    TableTypedField country = new TableTypedField(this.storeName, "country", String.class);
+    TableTypedField continent = new TableTypedField(this.storeName, "continent", String.class);
+    TableTypedField population = new TableTypedField(this.storeName, "population", double.class);
+    return Map.of(this.storeName, List.of(city, country, continent, population));
+  }
+
+  @Override
+  protected void loadData() {
+    this.tm.load(this.storeName, List.of(
+            new Object[]{"paris", "france", "eu", 2d},
+            new Object[]{"lyon", "france", "eu", 1d},
+            new Object[]{"london", "uk", "eu", 8d},
+            new Object[]{"nyc", "usa", "am", 8d},
+            new Object[]{"chicago", "usa", "am", 4d}
+    ));
+  }
+
+  /**
+   * Executes the query with an executor running the queries sent to the database only when asked to, in the given
+   * order, and returns the partial results followed by the final result.
+   */
+  private List<Table> executeProgressively(QueryDto query, boolean reverseOrder) {
+    Deque<Runnable> databaseQueries = new ArrayDeque<>();
+    QueryExecutor executor = new QueryExecutor(this.queryEngine, EmptyQueryCache.INSTANCE, databaseQueries::add);
+    List<Table> results = new ArrayList<>();
+    CompletableFuture<Table> future = executor.executeQueryProgressivelyAsync(query,
+            new QueryExecutionContext(null, QueryExecutor.createCancellationToken(List.of(query))),
+            results::add);
+    while (!databaseQueries.isEmpty()) {
+      (reverseOrder ? databaseQueries.pollLast() : databaseQueries.pollFirst()).run();
+    }
+    results.add(future.join());
+    return results;
+  }
+
+  @Test
+  void testPrimitivesFirst() {
+    Measure pop = Functions.sum("population", this.population);
+    Measure square = Functions.multiply("square", pop, pop);
+    List<Field> fields = List.of(this.continent, this.country, this.city);
+    Measure percentOfParent = new ComparisonMeasureReferencePosition("percentOfParent", DIVIDE, pop, fields);
+    QueryDto query = Query
+            .from(this.storeName)
+            .select(fields, List.of(pop, square, percentOfParent))
+            .build();
+    Table expected = this.executor.executeQuery(query);
+
+    // The query of the parent scope is sent to the database with the one of the query, the partial result is only
+    // notified when the scope of the query is received first.
+    List<Table> inOrder = executeProgressively(query, false);
+    List<Table> inReverseOrder = executeProgressively(query, true);
+    Assertions.assertThat(inOrder.get(inOrder.size() - 1)).containsExactlyElementsOf(expected);
+    Assertions.assertThat(inReverseOrder.get(inReverseOrder.size() - 1)).containsExactlyElementsOf(expected);
+    Assertions.assertThat(inOrder.size() + inReverseOrder.size()).isEqualTo(3);
+
+    Table partial = (inOrder.size() == 2 ? inOrder : inReverseOrder).get(0);
+    Assertions.assertThat(partial.headers().stream().map(Header::name))
+            .containsExactly(this.storeName + ".continent", this.storeName + ".country", this.storeName + ".city", "population", "square");
+    Assertions.assertThat(partial).containsExactly(
+            List.of("am", "usa", "chicago", 4d, 16d),
+            List.of("am", "usa", "nyc", 8d, 64d),
+            List.of("eu", "france", "lyon", 1d, 1d),
+            List.of("eu", "france", "paris", 2d, 4d),
+            List.of("eu", "uk", "london", 8d, 64d));
+  }
+
+  @Test
+  void testSingleScope() {
+    Measure pop = Functions.sum("population", this.population);
+    QueryDto query = Query
+            .from(this.storeName)
+            .select(List.of(this.continent), List.of(pop, Functions.multiply("square", pop, pop)))
+            .build();
+    // Everything is available at once, only the final result is returned
+    List<Table> results = executeProgressively(query, false);
+    Assertions.assertThat(results).hasSize(1);
+    Assertions.assertThat(results.get(0)).containsExactly(
+            List.of("am", 12d, 144d),
+            List.of("eu", 11d, 121d));
+  }
+}
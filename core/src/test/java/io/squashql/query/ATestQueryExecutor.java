@@ -3,9 +3,11 @@ package io.squashql.query;
 import io.squashql.TestClass;
 import io.squashql.query.builder.Query;
 import io.squashql.query.compiled.CompiledExpressionMeasure;
+import io.squashql.query.database.CancellationToken;
 import io.squashql.query.database.QueryRewriter;
 import io.squashql.query.database.SqlUtils;
 import io.squashql.query.dto.*;
+import io.squashql.query.exception.QueryCancelledException;
 import io.squashql.table.Table;
 import io.squashql.type.TableTypedField;
 import org.assertj.core.api.Assertions;
@@ -16,6 +18,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static io.squashql.query.Functions.*;
 import static io.squashql.query.TableField.tableField;
@@ -695,6 +698,37 @@ public abstract class ATestQueryExecutor extends ABaseTestQuery {
             List.of("starbuck's coffee", 7.5d));
   }
 
+  @Test
+  void testExecuteQueryAsync() {
+    QueryDto query = Query
+            .from(this.storeName)
+            .select(tableFields(List.of("category")), List.of(sum("p", "price"), sum("q", "quantity")))
+            .rollup(tableFields(List.of("category")))
+            .build();
+    QueryDto otherQuery = Query
+            .from(this.storeName)
+            .select(tableFields(List.of(SCENARIO_FIELD_NAME)), List.of(sum("p", "price")))
+            .build();
+
+    CompletableFuture<Table> future = this.executor.executeQueryAsync(query);
+    CompletableFuture<Table> otherFuture = this.executor.executeQueryAsync(otherQuery);
+    Assertions.assertThat(future.join()).containsExactlyElementsOf(this.executor.executeQuery(query));
+    Assertions.assertThat(otherFuture.join()).containsExactlyElementsOf(this.executor.executeQuery(otherQuery));
+  }
+
+  @Test
+  void testCancelQuery() {
+    QueryDto query = Query
+            .from(this.storeName)
+            .select(tableFields(List.of("category")), List.of(sum("p", "price")))
+            .build();
+
+    CancellationToken token = new CancellationToken(null);
+    token.cancel();
+    CompletableFuture<Table> future = this.executor.executeQueryAsync(query, new QueryExecutionContext(null, token), true, null, QueryExecutor.createPivotTableContext(query));
+    Assertions.assertThatThrownBy(future::join).hasCauseInstanceOf(QueryCancelledException.class);
+  }
+
   @Test
   void testMergeTables() {
     QueryDto query1 = Query
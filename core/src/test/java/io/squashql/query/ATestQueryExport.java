@@ -0,0 +1,155 @@
+package io.squashql.query;
+
+import io.squashql.TestClass;
+import io.squashql.query.builder.Query;
+import io.squashql.query.database.CancellationToken;
+import io.squashql.query.dto.QueryDto;
+import io.squashql.table.CsvRowWriter;
+import io.squashql.table.RowCursor;
+import io.squashql.table.RowWriter;
+import io.squashql.table.Table;
+import io.squashql.type.TableTypedField;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static io.squashql.query.Functions.*;
+import static io.squashql.query.TableField.tableField;
+import static io.squashql.query.TableField.tableFields;
+import static io.squashql.query.dto.OrderKeywordDto.DESC;
+
+@TestClass(ignore = {TestClass.Type.BIGQUERY, TestClass.Type.SNOWFLAKE, TestClass.Type.CLICKHOUSE, TestClass.Type.SPARK})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public abstract class ATestQueryExport extends ABaseTestQuery {
+
+  protected String storeName = "store" + getClass().getSimpleName().toLowerCase();
+
+  @Override
+  protected Map<String, List<TableTypedField>> getFieldsByStore() {
+    TableTypedField ean = new TableTypedField(this.storeName, "ean", String.class);
+    TableTypedField category = new TableTypedField(this.storeName, "category", String.class);
+    TableTypedField price = new TableTypedField(this.storeName, "price", double.class);
+    TableTypedField qty = new TableTypedField(this.storeName, "quantity", int.class);
+    return Map.of(this.storeName, List.of(ean, category, price, qty));
+  }
+
+  @Override
+  protected void loadData() {
+    this.tm.load(this.storeName, List.of(
+            new Object[]{"bottle", "drink", 2d, 10},
+            new Object[]{"cookie", "food", 3d, 20},
+            new Object[]{"shirt", "cloth, \"XL\"", 10d, 3},
+            new Object[]{"hat", "cloth, \"XL\"", 7d, 1},
+            new Object[]{"cake", "food", 5d, 2}
+    ));
+  }
+
+  private String exportCsv(QueryDto query) {
+    StringWriter writer = new StringWriter();
+    this.executor.exportQuery(query, new CsvRowWriter(writer), new QueryExecutionContext(null, new CancellationToken()));
+    return writer.toString();
+  }
+
+  private List<List<Object>> export(QueryDto query) {
+    List<List<Object>> rows = new ArrayList<>();
+    this.executor.exportQuery(query, new RowWriter() {
+      @Override
+      public void writeHeaders(List<Header> headers) {
+        rows.add(new ArrayList<>(headers.stream().map(Header::name).toList()));
+      }
+
+      @Override
+      public void writeRow(RowCursor row) {
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < row.size(); i++) {
+          values.add(row.get(i));
+        }
+        rows.add(values);
+      }
+    }, new QueryExecutionContext(null, new CancellationToken()));
+    return rows;
+  }
+
+  private static List<List<Object>> rows(Table table) {
+    List<List<Object>> rows = new ArrayList<>();
+    rows.add(new ArrayList<>(table.headers().stream().map(Header::name).toList()));
+    table.forEach(rows::add);
+    return rows;
+  }
+
+  @Test
+  void testFlatQueryIsStreamedWithoutLimit() {
+    QueryDto query = Query
+            .from(this.storeName)
+            .select(tableFields(List.of("ean")), List.of(sum("ps", "price"), sum("qs", "quantity")))
+            .orderBy(tableField("category"), DESC)
+            .limit(2)
+            .build();
+    List<List<Object>> rows = export(query);
+    Assertions.assertThat(rows).containsExactly(
+            List.of("ean", "ps", "qs"),
+            List.of("cake", 5d, 2L),
+            List.of("cookie", 3d, 20L),
+            List.of("bottle", 2d, 10L),
+            List.of("hat", 7d, 1L),
+            List.of("shirt", 10d, 3L));
+
+    // Same order as the regular execution
+    query.limit = -1;
+    Assertions.assertThat(rows).isEqualTo(rows(this.executor.executeQuery(query)));
+  }
+
+  @Test
+  void testCsv() {
+    QueryDto query = Query
+            .from(this.storeName)
+            .where(tableField("ean"), neq("cake"))
+            .select(tableFields(List.of("category")), List.of(sum("qs", "quantity")))
+            .build();
+    Assertions.assertThat(exportCsv(query)).isEqualTo("""
+            category,qs\r
+            "cloth, ""XL\""",4\r
+            drink,10\r
+            food,20\r
+            """);
+  }
+
+  @Test
+  void testQueryNotFlatIsComputedWithoutLimit() {
+    QueryDto query = Query
+            .from(this.storeName)
+            .select(tableFields(List.of("category")), List.of(sum("qs", "quantity")))
+            .rollup(tableFields(List.of("category")))
+            .limit(2)
+            .build();
+    List<List<Object>> rows = export(query);
+    query.limit = -1;
+    Assertions.assertThat(rows).hasSize(5).isEqualTo(rows(this.executor.executeQuery(query)));
+  }
+
+  @Test
+  void testQueryNotFlatIsComputed() {
+    QueryDto query = Query
+            .from(this.storeName)
+            .select(tableFields(List.of("category")), List.of(sum("qs", "quantity")))
+            .rollup(tableFields(List.of("category")))
+            .build();
+    Assertions.assertThat(export(query)).isEqualTo(rows(this.executor.executeQuery(query)));
+
+    Measure qs = sum("qs", "quantity");
+    query = Query
+            .from(this.storeName)
+            .select(tableFields(List.of("category")), List.of(qs, multiply("qs2", qs, integer(2))))
+            .build();
+    Assertions.assertThat(export(query)).containsExactly(
+            List.of("category", "qs", "qs2"),
+            List.of("cloth, \"XL\"", 4L, 8L),
+            List.of("drink", 10L, 20L),
+            List.of("food", 22L, 44L));
+  }
+}
@@ -0,0 +1,45 @@
+package io.squashql.query;
+
+import io.squashql.query.compiled.CompiledAggregatedMeasure;
+import io.squashql.query.dto.GroupColumnSetDto;
+import io.squashql.table.ColumnarTable;
+import io.squashql.table.Table;
+import io.squashql.type.AliasedTypedField;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static io.squashql.query.agg.AggregationFunction.SUM;
+
+public class TestGrouperExecutor {
+
+  @Test
+  void testGroup() {
+    Header country = new Header("country", String.class, false);
+    Header amount = new Header("amount.sum", double.class, true);
+    CompiledAggregatedMeasure amountSum = new CompiledAggregatedMeasure("amount.sum", new AliasedTypedField("amount"), SUM, null, false);
+    Table table = new ColumnarTable(
+            List.of(country, amount),
+            Set.of(amountSum),
+            List.of(
+                    Arrays.asList("france", "spain", "italy", "usa"),
+                    Arrays.asList(1d, 2d, 3d, 4d)));
+    GroupColumnSetDto groupColumnSet = new GroupColumnSetDto("group", new TableField("country"))
+            .withNewGroup("europe", List.of("france", "spain", "italy"))
+            .withNewGroup("latin", List.of("france", "spain", "italy", "mexico"));
+
+    Map<String, Table> tableByKey = new HashMap<>(Map.of("a", table, "b", table));
+    GrouperExecutor.group(tableByKey, groupColumnSet);
+    for (Table result : tableByKey.values()) {
+      Assertions.assertThat(result.headers()).containsExactly(country, amount, new Header("group", String.class, false));
+      Assertions.assertThat(result).containsExactly(
+              List.of("france", 1d, "europe"),
+              List.of("france", 1d, "latin"),
+              List.of("spain", 2d, "europe"),
+              List.of("spain", 2d, "latin"),
+              List.of("italy", 3d, "europe"),
+              List.of("italy", 3d, "latin"));
+    }
+  }
+}
@@ -91,4 +91,22 @@ public class TestPeriodShiftProcedure {
     Assertions.assertThat(f.apply(new Object[]{2022, 2}, new String[]{"y+1", "q+1"})).containsExactly(2024, 1);
     Assertions.assertThat(f.apply(new Object[]{2022, 1}, new String[]{"y+1", "q+1"})).containsExactly(2023, 2);
   }
+
+  @Test
+  void testProcedureReusedAcrossRows() {
+    CompiledPeriod period = new CompiledPeriod.Year(new AliasedTypedField(""));
+    MutableObjectIntMap<PeriodUnit> indexByPeriodUnit = new ObjectIntHashMap<>();
+    indexByPeriodUnit.put(PeriodUnit.YEAR, 0);
+    PeriodComparisonExecutor.ShiftProcedure procedure = new PeriodComparisonExecutor.ShiftProcedure(
+            period,
+            Map.of(PeriodUnit.YEAR, "y-1"),
+            indexByPeriodUnit);
+    Header[] headers = {new Header("year", int.class, false)};
+
+    for (int year = 2000; year < 2010; year++) {
+      Object[] point = new Object[]{year};
+      Assertions.assertThat(procedure.test(point, headers)).isTrue();
+      Assertions.assertThat(point).containsExactly(year - 1);
+    }
+  }
 }
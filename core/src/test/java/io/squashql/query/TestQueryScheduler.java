@@ -0,0 +1,131 @@
+package io.squashql.query;
+
+import io.squashql.query.database.CancellationToken;
+import io.squashql.query.dto.QueueStatsDto;
+import io.squashql.query.exception.QueryCancelledException;
+import io.squashql.query.parameter.QueryPriorityParameter.Priority;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class TestQueryScheduler {
+
+  private static final SquashQLUser PAUL = new BasicUser("paul");
+  private static final SquashQLUser PETER = new BasicUser("peter");
+
+  /**
+   * The queries started by the scheduler, in the order they were started. They complete when the test completes them.
+   */
+  private final List<String> started = new ArrayList<>();
+  private final List<CompletableFuture<String>> running = new ArrayList<>();
+
+  private CompletableFuture<String> submit(QueryScheduler scheduler, SquashQLUser user, Priority priority, String name) {
+    return submit(scheduler, user, priority, name, new CancellationToken(null), QueueStatsDto.builder());
+  }
+
+  private CompletableFuture<String> submit(QueryScheduler scheduler, SquashQLUser user, Priority priority, String name,
+                                           CancellationToken token, QueueStatsDto.QueueStatsDtoBuilder stats) {
+    return scheduler.submit(user, priority, token, stats, () -> {
+      this.started.add(name);
+      CompletableFuture<String> future = new CompletableFuture<>();
+      this.running.add(future);
+      return future;
+    });
+  }
+
+  private void completeFirstRunning() {
+    CompletableFuture<String> future = this.running.remove(0);
+    future.complete("done");
+  }
+
+  @Test
+  void testGlobalAndPerUserLimits() {
+    QueryScheduler scheduler = new QueryScheduler(3, 2);
+    CompletableFuture<String> a1 = submit(scheduler, PAUL, Priority.NORMAL, "a1");
+    submit(scheduler, PAUL, Priority.NORMAL, "a2");
+    submit(scheduler, PAUL, Priority.NORMAL, "a3");
+    submit(scheduler, PETER, Priority.NORMAL, "b1");
+    submit(scheduler, PETER, Priority.NORMAL, "b2");
+    Assertions.assertThat(this.started).containsExactly("a1", "a2", "b1");
+    Assertions.assertThat(scheduler.queued()).isEqualTo(2);
+
+    completeFirstRunning(); // a1
+    Assertions.assertThat(a1).isCompletedWithValue("done");
+    // Same share for both users, a3 was submitted first.
+    Assertions.assertThat(this.started).containsExactly("a1", "a2", "b1", "a3");
+
+    completeFirstRunning(); // a2
+    Assertions.assertThat(this.started).containsExactly("a1", "a2", "b1", "a3", "b2");
+    Assertions.assertThat(scheduler.queued()).isZero();
+  }
+
+  @Test
+  void testFairQueueing() {
+    QueryScheduler scheduler = new QueryScheduler(1, 1);
+    for (int i = 1; i <= 3; i++) {
+      submit(scheduler, PAUL, Priority.NORMAL, "a" + i);
+    }
+    submit(scheduler, PETER, Priority.NORMAL, "b1");
+    submit(scheduler, PETER, Priority.NORMAL, "b2");
+    for (int i = 0; i < 5; i++) {
+      completeFirstRunning();
+    }
+    // Peter does not wait for all the queries of Paul.
+    Assertions.assertThat(this.started).containsExactly("a1", "b1", "a2", "b2", "a3");
+  }
+
+  @Test
+  void testPriority() {
+    QueryScheduler scheduler = new QueryScheduler(1, 1);
+    submit(scheduler, PAUL, Priority.NORMAL, "a1");
+    submit(scheduler, PAUL, Priority.LOW, "a2");
+    submit(scheduler, PAUL, Priority.HIGH, "a3");
+    // Peter's queries have a larger weight: they get twice as many slots as Paul's ones.
+    submit(scheduler, PETER, Priority.HIGH, "b1");
+    submit(scheduler, PETER, Priority.HIGH, "b2");
+    for (int i = 0; i < 5; i++) {
+      completeFirstRunning();
+    }
+    Assertions.assertThat(this.started).containsExactly("a1", "b1", "b2", "a3", "a2");
+  }
+
+  @Test
+  void testCancelledWhileQueuedAndStats() {
+    QueryScheduler scheduler = new QueryScheduler(1, 1);
+    QueueStatsDto.QueueStatsDtoBuilder stats = QueueStatsDto.builder();
+    submit(scheduler, PAUL, Priority.NORMAL, "a1", new CancellationToken(null), stats);
+    CancellationToken token = new CancellationToken(null);
+    CompletableFuture<String> a2 = submit(scheduler, PAUL, Priority.NORMAL, "a2", token, stats);
+    submit(scheduler, PAUL, Priority.NORMAL, "a3", new CancellationToken(null), stats);
+    token.cancel();
+    completeFirstRunning();
+
+    Assertions.assertThat(this.started).containsExactly("a1", "a3");
+    Assertions.assertThatThrownBy(a2::join).hasCauseInstanceOf(QueryCancelledException.class);
+    Assertions.assertThat(stats.build().queryCount).isEqualTo(2);
+  }
+
+  @Test
+  void testCancelledAfterAdmission() {
+    QueryScheduler scheduler = new QueryScheduler(1, 1);
+    // Not cancelled when the scheduler admits the query, cancelled when it starts it
+    CancellationToken token = new CancellationToken(null) {
+      private int calls;
+
+      @Override
+      public boolean isCancelled() {
+        return this.calls++ > 0;
+      }
+    };
+    CompletableFuture<String> a1 = submit(scheduler, PAUL, Priority.NORMAL, "a1", token, QueueStatsDto.builder());
+    Assertions.assertThatThrownBy(a1::join).hasCauseInstanceOf(QueryCancelledException.class);
+
+    // The slot has been released
+    submit(scheduler, PAUL, Priority.NORMAL, "a2");
+    Assertions.assertThat(this.started).containsExactly("a2");
+    Assertions.assertThat(scheduler.queued()).isZero();
+  }
+}
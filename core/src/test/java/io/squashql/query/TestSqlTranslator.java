@@ -22,6 +22,7 @@ import static io.squashql.query.dto.JoinType.INNER;
 import static io.squashql.query.dto.JoinType.LEFT;
 import static io.squashql.transaction.DataLoader.SCENARIO_FIELD_NAME;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class TestSqlTranslator {
 
@@ -168,6 +169,27 @@ public class TestSqlTranslator {
             .isEqualTo("select sum(`pnl`) as `pnl.sum` from `dataset.baseStore` limit 8");
   }
 
+  @Test
+  void testTableSample() {
+    final QueryDto query = new QueryDto()
+            .withColumn(tableField(SCENARIO_FIELD_NAME))
+            .withMeasure(new AggregatedMeasure("pnl.sum", "pnl", "sum"))
+            .table(BASE_STORE_NAME);
+    DatabaseQuery dq = compileQuery(query);
+    DatabaseQuery sampled = new DatabaseQuery(dq.scope(), dq.measures(), 10, 42);
+
+    QueryRewriter rewriter = new SQLTranslatorQueryRewriter() {
+      @Override
+      public String tableSample(double percentage, int seed) {
+        return "tablesample bernoulli (" + percentage + ") repeatable (" + seed + ")";
+      }
+    };
+    assertThat(SqlTranslator.translate(sampled, rewriter))
+            .isEqualTo("select `scenario`, sum(`pnl`) as `pnl.sum` from `dataset.baseStore` tablesample bernoulli (10.0) repeatable (42) group by `scenario`");
+    assertThatThrownBy(() -> translate(sampled))
+            .isInstanceOf(UnsupportedOperationException.class);
+  }
+
   @Test
   void testGroupBy() {
     final QueryDto query = new QueryDto()
@@ -0,0 +1,89 @@
+package io.squashql.query.cache;
+
+import io.squashql.query.QueryExecutor;
+import io.squashql.query.builder.Query;
+import io.squashql.query.dto.CacheSnapshotDto;
+import io.squashql.query.dto.PivotTableQueryDto;
+import io.squashql.query.dto.QueryDto;
+import io.squashql.query.parameter.QueryCacheParameter;
+import io.squashql.table.PivotTable;
+import io.squashql.table.Table;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static io.squashql.query.Functions.sum;
+import static io.squashql.query.TableField.tableField;
+import static io.squashql.query.TableField.tableFields;
+
+public class TestCacheWarmer {
+
+  private static QueryDto query(String column) {
+    return Query.from("store").select(tableFields(List.of(column)), List.of(sum("ps", "price"))).build();
+  }
+
+  @Test
+  void testRecordSaveAndLoad(@TempDir Path dir) {
+    CacheWarmer warmer = new CacheWarmer(2);
+    warmer.record(query("a"));
+    warmer.record(query("b"));
+    warmer.record(query("a")); // a becomes the most recent
+    warmer.record(query("c")); // b is evicted
+    warmer.record(query("d").withParameter(QueryCacheParameter.KEY, new QueryCacheParameter(QueryCacheParameter.Action.NOT_USE)));
+    PivotTableQueryDto pivotQuery = new PivotTableQueryDto(query("e"), List.of(tableField("e")), List.of());
+    warmer.record(pivotQuery); // a is evicted
+
+    CacheSnapshotDto snapshot = warmer.snapshot();
+    Assertions.assertThat(snapshot.queries).containsExactly(query("c"));
+    Assertions.assertThat(snapshot.pivotQueries).containsExactly(pivotQuery);
+
+    Path path = dir.resolve("snapshot.json");
+    warmer.save(path);
+    Assertions.assertThat(CacheWarmer.load(path)).isEqualTo(snapshot);
+    Assertions.assertThat(CacheWarmer.load(dir.resolve("unknown.json"))).isEqualTo(new CacheSnapshotDto());
+  }
+
+  @Test
+  void testRecordKeepsTheMostRecentQueries() {
+    CacheWarmer warmer = new CacheWarmer(2);
+    for (int i = 0; i < 10; i++) {
+      warmer.record(query("q" + i));
+    }
+    warmer.record(query("q5")); // executed again
+    Assertions.assertThat(warmer.snapshot().queries).containsExactly(query("q9"), query("q5"));
+  }
+
+  @Test
+  void testReplay() throws Exception {
+    ConcurrentLinkedQueue<Object> executed = new ConcurrentLinkedQueue<>();
+    QueryExecutor executor = new QueryExecutor(null, EmptyQueryCache.INSTANCE) {
+      @Override
+      public Table executeQuery(QueryDto query) {
+        if (query.equals(query("fail"))) {
+          throw new RuntimeException("expected");
+        }
+        executed.add(query);
+        return null;
+      }
+
+      @Override
+      public PivotTable executePivotQuery(PivotTableQueryDto pivotTableQueryDto) {
+        executed.add(pivotTableQueryDto);
+        return null;
+      }
+    };
+    PivotTableQueryDto pivotQuery = new PivotTableQueryDto(query("c"), List.of(tableField("c")), List.of());
+    CacheSnapshotDto snapshot = new CacheSnapshotDto(List.of(query("a"), query("fail"), query("b")), List.of(pivotQuery));
+
+    CacheWarmer warmer = new CacheWarmer();
+    warmer.replay(executor, snapshot, 2).get(1, TimeUnit.MINUTES);
+    Assertions.assertThat(executed).containsExactlyInAnyOrder(query("a"), query("b"), pivotQuery);
+    Assertions.assertThat(warmer.snapshot().queries).containsExactlyInAnyOrder(query("a"), query("b"));
+    Assertions.assertThat(warmer.snapshot().pivotQueries).containsExactly(pivotQuery);
+  }
+}
@@ -14,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.IntSupplier;
 import java.util.stream.IntStream;
@@ -54,6 +55,46 @@ public class TestCaffeineCache {
     Assertions.assertThat(histogram).isEqualTo("[1-100:2],[101-1000:1],[1001-10000:2],[10001-50000:0],[50001-100000:0],[100001-200000:0],[200001-500000:0],[500001-1000000:0],[1000000<:0]");
   }
 
+  @Test
+  void testResultsComputedBeforeInvalidationAreNotCached() {
+    CaffeineQueryCache cache = new CaffeineQueryCache();
+    QueryCache.QueryCacheKey key = newKey();
+    String table = key.scope().tableNames().iterator().next();
+    long version = cache.dataVersion(key);
+    cache.invalidate("other");
+    Assertions.assertThat(cache.dataVersion(key)).isEqualTo(version);
+
+    cache.invalidate(table); // while the result is computed
+    Assertions.assertThat(cache.dataVersion(key)).isNotEqualTo(version);
+    cache.contributeToCache(new FakeTable(1, 2), Set.of(), key, version);
+    Assertions.assertThat(cache.getHistogramInteger()).containsOnly(0);
+
+    cache.contributeToCache(new FakeTable(1, 2), Set.of(), key, cache.dataVersion(key));
+    Assertions.assertThat(IntStream.of(cache.getHistogramInteger()).sum()).isEqualTo(1);
+  }
+
+  @Test
+  void testResultsInvalidatedWhileInsertedAreNotCached() {
+    QueryCache.QueryCacheKey key = newKey();
+    String table = key.scope().tableNames().iterator().next();
+    AtomicBoolean armed = new AtomicBoolean();
+    CaffeineQueryCache cache = new CaffeineQueryCache() {
+      @Override
+      public long dataVersion(QueryCacheKey scope) {
+        long version = super.dataVersion(scope);
+        if (armed.getAndSet(false)) {
+          invalidate(table); // Right after the version has been checked, before the scope is inserted
+        }
+        return version;
+      }
+    };
+
+    long version = cache.dataVersion(key);
+    armed.set(true);
+    cache.contributeToCache(new FakeTable(1, 2), Set.of(), key, version);
+    Assertions.assertThat(cache.getHistogramInteger()).containsOnly(0);
+  }
+
   private static QueryCache.QueryCacheKey newKey() {
     return newKey(GlobalCache.user(null));
   }
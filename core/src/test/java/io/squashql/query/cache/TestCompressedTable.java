@@ -0,0 +1,64 @@
+package io.squashql.query.cache;
+
+import io.squashql.query.Header;
+import io.squashql.query.compiled.CompiledAggregatedMeasure;
+import io.squashql.table.ColumnarTable;
+import io.squashql.type.AliasedTypedField;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static io.squashql.query.agg.AggregationFunction.SUM;
+
+public class TestCompressedTable {
+
+  @Test
+  void testEncode() {
+    List<List<Object>> columns = List.of(
+            Arrays.asList("a", "a", "a", "b", "b", null, null, null), // runs
+            Arrays.asList("a", "b", "a", "b", "a", "b", null, "b"), // few distinct values, no runs
+            Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h"), // distinct values
+            Arrays.asList(1L, 2L, null, 4L, 5L, 6L, 7L, 8L),
+            Arrays.asList(1d, null, 3d, 4d, 5d, 6d, 7d, 8d),
+            Arrays.asList(1, 2L, 3d, null, 1, 2L, 3d, null)); // mixed types must be preserved
+    for (List<Object> column : columns) {
+      Assertions.assertThat(CompressedTable.encode(column)).containsExactlyElementsOf(column);
+    }
+
+    List<Object> many = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      many.add("v" + (i % 300));
+    }
+    Assertions.assertThat(CompressedTable.encode(many)).containsExactlyElementsOf(many);
+  }
+
+  @Test
+  void testWithAggregates() {
+    Header city = new Header("city", String.class, false);
+    Header pop = new Header("population.sum", long.class, true);
+    Header area = new Header("area.sum", double.class, true);
+    CompiledAggregatedMeasure popSum = new CompiledAggregatedMeasure("population.sum", new AliasedTypedField("population"), SUM, null, false);
+    CompiledAggregatedMeasure areaSum = new CompiledAggregatedMeasure("area.sum", new AliasedTypedField("area"), SUM, null, false);
+    ColumnarTable table = new ColumnarTable(
+            List.of(city, pop),
+            Set.of(popSum),
+            List.of(Arrays.asList("paris", "london"), Arrays.asList(1L, 2L)));
+    CompressedTable compressed = new CompressedTable(table);
+    ColumnarTable from = new ColumnarTable(
+            List.of(city, area),
+            Set.of(areaSum),
+            List.of(Arrays.asList("london", "paris"), Arrays.asList(20d, 10d)));
+
+    CompressedTable withArea = compressed.withAggregates(from, List.of(areaSum));
+    Assertions.assertThat(withArea.headers()).containsExactly(city, pop, area);
+    Assertions.assertThat(withArea.measures()).containsExactlyInAnyOrder(popSum, areaSum);
+    Assertions.assertThat(withArea).containsExactly(List.of("paris", 1L, 10d), List.of("london", 2L, 20d));
+    // The snapshot it is created from is not modified
+    Assertions.assertThat(compressed.headers()).containsExactly(city, pop);
+    Assertions.assertThat(compressed).containsExactly(List.of("paris", 1L), List.of("london", 2L));
+  }
+}
@@ -0,0 +1,94 @@
+package io.squashql.query.cache;
+
+import io.squashql.query.Header;
+import io.squashql.query.SquashQLUser;
+import io.squashql.query.exception.LimitExceedException;
+import io.squashql.table.ColumnarTable;
+import io.squashql.table.Table;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TestResultCursors {
+
+  private static Table table(int rows) {
+    List<Object> names = new ArrayList<>();
+    List<Object> values = new ArrayList<>();
+    for (int i = 0; i < rows; i++) {
+      names.add("n" + i);
+      values.add((double) i);
+    }
+    return new ColumnarTable(
+            List.of(new Header("name", String.class, false), new Header("value", double.class, false)),
+            Set.of(),
+            List.of(names, values));
+  }
+
+  @Test
+  void testPages() {
+    ResultCursors cursors = new ResultCursors();
+    ResultCursors.Cursor cursor = cursors.open(table(5), null);
+    Assertions.assertThat(cursors.get(cursor.id, null)).isSameAs(cursor);
+    Assertions.assertThat(cursor.count()).isEqualTo(5);
+    Assertions.assertThat(cursor.page(0, 2)).containsExactly(List.of("n0", 0d), List.of("n1", 1d));
+    Assertions.assertThat(cursor.page(4, 2)).containsExactly(List.of("n4", 4d));
+    Assertions.assertThat(cursor.page(7, 2)).isEmpty();
+    Assertions.assertThat(cursor.page(2, 2).headers()).isEqualTo(table(0).headers());
+    Assertions.assertThatThrownBy(() -> cursor.page(-1, 2)).isInstanceOf(IllegalArgumentException.class);
+
+    Assertions.assertThat(cursors.close(cursor.id, null)).isTrue();
+    Assertions.assertThat(cursors.get(cursor.id, null)).isNull();
+    Assertions.assertThat(cursors.close(cursor.id, null)).isFalse();
+  }
+
+  @Test
+  void testUser() {
+    ResultCursors cursors = new ResultCursors();
+    SquashQLUser paul = new SquashQLUser() {
+    };
+    ResultCursors.Cursor cursor = cursors.open(table(1), paul);
+    Assertions.assertThat(cursors.get(cursor.id, paul)).isSameAs(cursor);
+    Assertions.assertThat(cursors.get(cursor.id, null)).isNull();
+    Assertions.assertThat(cursors.close(cursor.id, new SquashQLUser() {
+    })).isFalse();
+    Assertions.assertThat(cursors.get(cursor.id, paul)).isSameAs(cursor);
+  }
+
+  @Test
+  void testExpiration() {
+    AtomicLong time = new AtomicLong();
+    ResultCursors cursors = new ResultCursors(1 << 20, Duration.ofMinutes(5), time::get);
+    ResultCursors.Cursor read = cursors.open(table(1), null);
+    ResultCursors.Cursor notRead = cursors.open(table(1), null);
+
+    time.addAndGet(Duration.ofMinutes(3).toNanos());
+    Assertions.assertThat(cursors.get(read.id, null)).isSameAs(read);
+    time.addAndGet(Duration.ofMinutes(3).toNanos());
+    Assertions.assertThat(cursors.get(read.id, null)).isSameAs(read);
+    Assertions.assertThat(cursors.get(notRead.id, null)).isNull();
+  }
+
+  @Test
+  void testMemoryBudget() {
+    long size = ResultCursors.estimateSize(table(10));
+    Assertions.assertThat(size).isPositive();
+    ResultCursors cursors = new ResultCursors(size * 2, Duration.ofMinutes(5), System::nanoTime);
+    ResultCursors.Cursor first = cursors.open(table(10), null);
+    ResultCursors.Cursor second = cursors.open(table(10), null);
+    Assertions.assertThat(cursors.memoryUsage()).isEqualTo(size * 2);
+    cursors.get(first.id, null);
+
+    ResultCursors.Cursor third = cursors.open(table(10), null);
+    Assertions.assertThat(cursors.memoryUsage()).isEqualTo(size * 2);
+    Assertions.assertThat(cursors.get(second.id, null)).isNull(); // least recently read
+    Assertions.assertThat(cursors.get(first.id, null)).isSameAs(first);
+    Assertions.assertThat(cursors.get(third.id, null)).isSameAs(third);
+
+    Assertions.assertThatThrownBy(() -> cursors.open(table(30), null)).isInstanceOf(LimitExceedException.class);
+  }
+}
@@ -0,0 +1,50 @@
+package io.squashql.query.database;
+
+import io.squashql.query.exception.QueryCancelledException;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestCancellationToken {
+
+  @Test
+  void testCancel() {
+    CancellationToken token = new CancellationToken(null);
+    AtomicInteger calls = new AtomicInteger();
+    token.onCancel(calls::incrementAndGet);
+    CancellationToken.Registration registration = token.onCancel(calls::incrementAndGet);
+    registration.close();
+
+    token.throwIfCancelled(); // does not throw
+    token.cancel();
+    token.cancel();
+    Assertions.assertThat(token.isCancelled()).isTrue();
+    Assertions.assertThat(calls.get()).isEqualTo(1); // the unregistered callback is not called, and only once
+    Assertions.assertThatThrownBy(token::throwIfCancelled).isInstanceOf(QueryCancelledException.class);
+
+    // Called immediately when already cancelled
+    token.onCancel(calls::incrementAndGet);
+    Assertions.assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  void testTimeout() throws InterruptedException {
+    CancellationToken token = new CancellationToken(Duration.ofMillis(10));
+    CountDownLatch latch = new CountDownLatch(1);
+    token.onCancel(latch::countDown);
+    Assertions.assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+    Assertions.assertThat(token.reason()).contains("timed out");
+  }
+
+  @Test
+  void testCloseCancelsTimeout() throws InterruptedException {
+    CancellationToken token = new CancellationToken(Duration.ofMillis(10));
+    token.close();
+    Thread.sleep(50);
+    Assertions.assertThat(token.isCancelled()).isFalse();
+  }
+}
@@ -0,0 +1,53 @@
+package io.squashql.query.util;
+
+import io.squashql.query.BinaryOperator;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+
+public class TestBinaryOperations {
+
+  private final List<Object> longs = Arrays.asList(1L, null, 3L, null, -5L, 6L);
+  private final List<Object> otherLongs = Arrays.asList(2L, 4L, null, null, 7L, 0L);
+  private final List<Object> doubles = Arrays.asList(0.5d, 2d, null, null, 1.5d, 4d);
+  private final List<Object> ints = Arrays.asList(1, 2, 3, null, 5, 6);
+
+  @Test
+  void testApplyIsSameAsBiFunction() {
+    for (BinaryOperator operator : BinaryOperator.values()) {
+      assertSameAsBiFunction(operator, this.longs, long.class, this.otherLongs, long.class);
+      assertSameAsBiFunction(operator, this.longs, long.class, this.doubles, double.class);
+      assertSameAsBiFunction(operator, this.doubles, double.class, this.otherLongs, long.class);
+      assertSameAsBiFunction(operator, this.ints, int.class, this.otherLongs, long.class);
+    }
+  }
+
+  @Test
+  void testChainedOperations() {
+    // The result of an operation is used as operand of another one
+    List<Object> plus = BinaryOperations.apply(BinaryOperator.PLUS, this.longs, long.class, this.otherLongs, long.class);
+    Assertions.assertThat(plus).containsExactly(3L, 4L, 3L, null, 2L, 6L);
+    List<Object> multiply = BinaryOperations.apply(BinaryOperator.MULTIPLY, plus, long.class, this.doubles, double.class);
+    Assertions.assertThat(multiply).containsExactly(1.5d, 8d, null, null, 3d, 24d);
+    List<Object> minus = BinaryOperations.apply(BinaryOperator.MINUS, multiply, double.class, plus, long.class);
+    Assertions.assertThat(minus).containsExactly(-1.5d, 4d, 3d, null, 1d, 18d);
+  }
+
+  private static void assertSameAsBiFunction(BinaryOperator operator, List<Object> left, Class<?> leftType, List<Object> right, Class<?> rightType) {
+    BiFunction<Number, Number, Number> function = BinaryOperations.createBiFunction(operator, leftType, rightType);
+    List<Object> expected = new ArrayList<>();
+    for (int i = 0; i < left.size(); i++) {
+      Number a = (Number) left.get(i);
+      Number b = (Number) right.get(i);
+      // The bi-function for relative difference fails when only the left operand is null
+      expected.add(operator == BinaryOperator.RELATIVE_DIFFERENCE && a == null ? null : function.apply(a, b));
+    }
+    Assertions.assertThat(BinaryOperations.apply(operator, left, leftType, right, rightType))
+            .as("%s %s %s", leftType, operator, rightType)
+            .containsExactlyElementsOf(expected);
+  }
+}
@@ -11,6 +11,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
+import static io.squashql.table.ATestMergeTables.priceAvg;
 import static io.squashql.table.ATestMergeTables.priceSum;
 
 class TestMergeTablesEdgeCases {
@@ -77,4 +78,43 @@ class TestMergeTablesEdgeCases {
     Assertions.assertThatThrownBy(() -> MergeTables.mergeTables(leftTable, rightTable, JoinType.LEFT))
             .isExactlyInstanceOf(UnsupportedOperationException.class);
   }
+
+  @Test
+  void mergeLargeTablesInParallel() {
+    // Enough rows to trigger the parallel probe.
+    int size = MergeTables.PARALLELISM_THRESHOLD * 2;
+    List<Object> leftIds = new ArrayList<>();
+    List<Object> leftValues = new ArrayList<>();
+    List<Object> rightIds = new ArrayList<>();
+    List<Object> rightValues = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      leftIds.add(i);
+      leftValues.add(i);
+      // Shifted by one half of the size: only half of the ids are common
+      rightIds.add(i + size / 2);
+      rightValues.add(-i);
+    }
+    Table leftTable = new ColumnarTable(
+            List.of(new Header("id", int.class, false), new Header("price.sum", int.class, true)),
+            Set.of(priceSum),
+            List.of(leftIds, leftValues));
+    Table rightTable = new ColumnarTable(
+            List.of(new Header("id", int.class, false), new Header("price.avg", int.class, true)),
+            Set.of(priceAvg),
+            List.of(rightIds, rightValues));
+
+    Table mergedTable = MergeTables.mergeTables(leftTable, rightTable, JoinType.FULL);
+    Assertions.assertThat(mergedTable.count()).isEqualTo(size + size / 2);
+    List<Object> ids = mergedTable.getColumnValues("id");
+    List<Object> sums = mergedTable.getColumnValues("price.sum");
+    List<Object> avgs = mergedTable.getColumnValues("price.avg");
+    for (int row = 0; row < mergedTable.count(); row++) {
+      int id = (int) ids.get(row);
+      Assertions.assertThat(sums.get(row)).isEqualTo(id < size ? id : null);
+      Assertions.assertThat(avgs.get(row)).isEqualTo(id >= size / 2 ? -(id - size / 2) : null);
+    }
+
+    mergedTable = MergeTables.mergeTables(leftTable, rightTable, JoinType.INNER);
+    Assertions.assertThat(mergedTable.count()).isEqualTo(size / 2);
+  }
 }
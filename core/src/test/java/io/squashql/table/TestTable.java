@@ -2,15 +2,20 @@ package io.squashql.table;
 
 import io.squashql.query.Header;
 import io.squashql.query.compiled.CompiledAggregatedMeasure;
+import io.squashql.query.database.SqlTranslator;
+import io.squashql.query.dto.SparseCellsDto;
 import io.squashql.type.AliasedTypedField;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
 import static io.squashql.query.agg.AggregationFunction.AVG;
+import static io.squashql.query.database.QueryEngine.GRAND_TOTAL;
+import static io.squashql.query.database.QueryEngine.TOTAL;
 import static io.squashql.table.ATestMergeTables.orderRows;
 
 public class TestTable {
@@ -75,4 +80,109 @@ public class TestTable {
             .isInstanceOf(IllegalArgumentException.class)
             .hasMessageContaining("does not match the headers of the destination table");
   }
+
+  @Test
+  void testSparsePivot() {
+    Header product = new Header("product", String.class, false);
+    Header store = new Header("store", String.class, false);
+    Header pop = new Header("population.avg", double.class, true);
+    CompiledAggregatedMeasure popAvg = new CompiledAggregatedMeasure("population.avg", new AliasedTypedField("population"), AVG, null, false);
+    // Only the diagonal exists: the pivot table is sparse
+    int size = 50;
+    List<Object> products = new ArrayList<>();
+    List<Object> stores = new ArrayList<>();
+    List<Object> values = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      products.add("p" + i);
+      stores.add("s" + i);
+      values.add((double) i);
+    }
+    ColumnarTable table = new ColumnarTable(List.of(product, store, pop), Set.of(popAvg), List.of(products, stores, values));
+
+    PivotTable pivotTable = new PivotTable(table, List.of("product"), List.of("store"), List.of("population.avg"), List.of());
+    List<List<Object>> cells = pivotTable.pivotTableCells;
+    Assertions.assertThat(cells).hasSize(size + 2);
+    List<Object> columnHeader = new ArrayList<>(List.of("store"));
+    columnHeader.addAll(stores);
+    Assertions.assertThat(cells.get(0)).containsExactlyElementsOf(columnHeader);
+    for (int i = 0; i < size; i++) {
+      List<Object> row = cells.get(i + 2);
+      Assertions.assertThat(row.get(0)).isEqualTo("p" + i);
+      for (int j = 0; j < size; j++) {
+        Assertions.assertThat(row.get(j + 1)).isEqualTo(i == j ? (double) i : null);
+      }
+    }
+  }
+  @Test
+  void testSparseCellsOnlyContainNonEmptyCells() {
+    Header product = new Header("product", String.class, false);
+    Header store = new Header("store", String.class, false);
+    Header pop = new Header("population.avg", double.class, true);
+    CompiledAggregatedMeasure popAvg = new CompiledAggregatedMeasure("population.avg", new AliasedTypedField("population"), AVG, null, false);
+    ColumnarTable table = new ColumnarTable(List.of(product, store, pop), Set.of(popAvg), List.of(
+            Arrays.asList("p1", "p1", "p2", "p2"),
+            Arrays.asList("s1", "s2", "s1", "s2"),
+            Arrays.asList(1d, null, null, 4d)));
+    PivotTable pivotTable = new PivotTable(table, List.of("product"), List.of("store"), List.of("population.avg"), List.of());
+
+    SparseCellsDto sparseCells = PivotTableUtils.generateSparseCells(pivotTable, false);
+    Assertions.assertThat(sparseCells.count).isEqualTo(2);
+    Assertions.assertThat(sparseCells.dictionaries.get("product")).containsExactly("p1", "p2");
+    Assertions.assertThat(sparseCells.coordinates.get("store")).containsExactly(0, 1);
+    Assertions.assertThat(sparseCells.measureValues.get("population.avg")).containsExactly(1d, 4d);
+    Assertions.assertThat(sparseCells.toCells()).isEqualTo(PivotTableUtils.generateCells(pivotTable, false).stream()
+            .filter(cell -> cell.get("population.avg") != null)
+            .toList());
+  }
+
+  @Test
+  void testReplaceTotalCellValues() {
+    Header country = new Header("country", String.class, false);
+    Header city = new Header("city", String.class, false);
+    Header year = new Header("year", int.class, false);
+    Header pop = new Header("population.avg", double.class, true);
+    CompiledAggregatedMeasure popAvg = new CompiledAggregatedMeasure("population.avg", new AliasedTypedField("population"), AVG, null, false);
+    String t = SqlTranslator.TOTAL_CELL;
+    List<Object> years = Arrays.asList(t, 2023, t, 2023);
+    ColumnarTable table = new ColumnarTable(
+            List.of(country, city, year, pop),
+            Set.of(popAvg),
+            List.of(
+                    Arrays.asList(t, t, "france", "france"),
+                    Arrays.asList(t, t, t, "paris"),
+                    years,
+                    Arrays.asList(1d, 2d, 3d, 4d)));
+
+    Table result = TableUtils.replaceTotalCellValues(table, List.of("country", "city"), List.of("year"));
+    Assertions.assertThat(result).containsExactly(
+            List.of(GRAND_TOTAL, GRAND_TOTAL, GRAND_TOTAL, 1d),
+            List.of(GRAND_TOTAL, GRAND_TOTAL, 2023, 2d),
+            List.of("france", TOTAL, GRAND_TOTAL, 3d),
+            List.of("france", "paris", 2023, 4d));
+    // The input is not modified
+    Assertions.assertThat(table.getColumn(1)).containsExactly(t, t, t, "paris");
+    Assertions.assertThat(years).containsExactly(t, 2023, t, 2023);
+  }
+
+  @Test
+  void testForEachRow() {
+    Header city = new Header("city", String.class, false);
+    Header pop = new Header("population.avg", double.class, true);
+    CompiledAggregatedMeasure popAvg = new CompiledAggregatedMeasure("population.avg", new AliasedTypedField("population"), AVG, null, false);
+    ColumnarTable columnarTable = new ColumnarTable(
+            List.of(city, pop),
+            Set.of(popAvg),
+            List.of(Arrays.asList("paris", "london"), Arrays.asList(1d, 2d)));
+    RowTable rowTable = new RowTable(List.of(city, pop), List.of(List.of("paris", 1d), List.of("london", 2d)));
+
+    for (Table table : List.of(columnarTable, rowTable)) {
+      List<List<Object>> rows = new ArrayList<>();
+      table.forEachRow(row -> {
+        Assertions.assertThat(row.index()).isEqualTo(rows.size());
+        Assertions.assertThat(row.size()).isEqualTo(2);
+        rows.add(List.of(row.get(0), row.getDouble(1)));
+      });
+      Assertions.assertThat(rows).containsExactly(List.of("paris", 1d), List.of("london", 2d));
+    }
+  }
 }
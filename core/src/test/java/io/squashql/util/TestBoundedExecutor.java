@@ -0,0 +1,44 @@
+package io.squashql.util;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestBoundedExecutor {
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void testMaxConcurrency(boolean virtualThreads) {
+    BoundedExecutor executor = new BoundedExecutor(2, virtualThreads);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      futures.add(CompletableFuture.runAsync(() -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+          Thread.sleep(5);
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        } finally {
+          running.decrementAndGet();
+        }
+      }, executor));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+    Assertions.assertThat(maxRunning.get()).isEqualTo(2);
+    Assertions.assertThat(executor.queued()).isZero();
+  }
+
+  @Test
+  void testInvalidMaxConcurrency() {
+    Assertions.assertThatThrownBy(() -> new BoundedExecutor(0, false)).isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -72,6 +72,24 @@ public class TestMultipleColumnsSorter {
     Assertions.assertThat(sort).containsExactly(3, 1, 4, 2, 0);
   }
 
+  @Test
+  void testWithLimit() {
+    List<Object> c1 = List.of("a", "b", "a", "c", "a", "b", "b", "c", "a");
+    List<Object> c2 = List.of(1, 2, 3, 1, 2, 4, 3, 1, 1);
+    List<Object> c3 = List.of(1, 2, 3, 2, 2, 4, 3, 5, 0);
+    List<List<?>> args = Arrays.asList(c1, c2, c3);
+    List<Comparator<?>> comparators = Arrays.asList(naturalOrder(), naturalOrder(), naturalOrder());
+
+    Assertions.assertThat(MultipleColumnsSorter.sort(args, comparators, new int[0], 4)).containsExactly(8, 0, 4, 2);
+    Assertions.assertThat(MultipleColumnsSorter.sort(args, comparators, new int[0], 0)).isEmpty();
+    Assertions.assertThat(MultipleColumnsSorter.sort(args, comparators, new int[0], 100)).containsExactly(8, 0, 4, 2, 1, 6, 5, 3, 7);
+
+    // Ties must keep the same order as the full sort
+    List<Object> ties = List.of("b", "a", "b", "a", "a");
+    Assertions.assertThat(MultipleColumnsSorter.sort(List.of(ties), List.of(naturalOrder()), new int[0], 3)).containsExactly(1, 3, 4);
+    Assertions.assertThat(MultipleColumnsSorter.sort(List.of(ties), List.of(naturalOrder()), new int[0], 4)).containsExactly(1, 3, 4, 0);
+  }
+
   // To easily check the result.
   private void print(List<Object> c1, List<Object> c2, List<Object> c3, int[] sort) {
     List<Header> headers = Arrays.asList(
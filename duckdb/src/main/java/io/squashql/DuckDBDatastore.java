@@ -1,6 +1,7 @@
 package io.squashql;
 
 import com.google.common.base.Suppliers;
+import io.squashql.jdbc.ConnectionPool;
 import io.squashql.jdbc.JdbcDatastore;
 import io.squashql.jdbc.JdbcUtil;
 import io.squashql.store.Store;
@@ -17,6 +18,7 @@ import java.util.function.Supplier;
 public class DuckDBDatastore implements JdbcDatastore {
 
   private final DuckDBConnection connection;
+  private final ConnectionPool pool;
   public final Supplier<Map<String, Store>> stores;
 
   public DuckDBDatastore() {
@@ -28,6 +30,8 @@ public class DuckDBDatastore implements JdbcDatastore {
       Class.forName("org.duckdb.DuckDBDriver");
       // Create an in-memory db.
       this.connection = (DuckDBConnection) DriverManager.getConnection("jdbc:duckdb:");
+      // Duplicate the connection to increase the count in DuckDBDatabase. Once it reaches 0, the db is deleted.
+      this.pool = new ConnectionPool(this.connection::duplicate);
       this.stores = cacheMetadata ? Suppliers.memoize(this::fetchStoresByName) : this::fetchStoresByName;
     } catch (Exception e) {
       log.error("Connection error", e);
@@ -48,8 +52,7 @@ public class DuckDBDatastore implements JdbcDatastore {
   @Override
   public Connection getConnection() {
     try {
-      // Duplicate the connection to increase the count in DuckDBDatabase. Once it reaches 0, the db is deleted.
-      return this.connection.duplicate();
+      return this.pool.getConnection();
     } catch (SQLException e) {
       throw new RuntimeException(e);
     }
@@ -26,4 +26,10 @@ class DuckDBQueryRewriter implements QueryRewriter {
   public boolean usePartialRollupSyntax() {
     return true;
   }
+
+  @Override
+  public String tableSample(double percentage, int seed) {
+    // Row-level sampling, the default one samples vectors of rows.
+    return "tablesample " + percentage + "% (bernoulli, " + seed + ")";
+  }
 }
@@ -35,6 +35,15 @@ public class HttpClientQuerier {
     return target.run(query);
   }
 
+  /**
+   * Same as {@link #run(PivotTableQueryDto)} but the cells are transferred in a compact format and decoded on the client
+   * side.
+   */
+  public PivotTableQueryResultDto runSparse(PivotTableQueryDto query) {
+    QueryApi target = builder.target(QueryApi.class, this.url);
+    return target.runSparse(query).toPivotTableQueryResultDto();
+  }
+
   public QueryResultDto queryMerge(QueryMergeDto query) {
     QueryApi target = builder.target(QueryApi.class, this.url);
     return target.queryMerge(query);
@@ -50,6 +59,14 @@ public class HttpClientQuerier {
     return target.expression(measures);
   }
 
+  /**
+   * Invalidates the cached results that read the given tables.
+   */
+  public void invalidateCache(List<String> tables) {
+    QueryApi target = builder.target(QueryApi.class, this.url);
+    target.invalidateCache(tables);
+  }
+
   interface QueryApi {
     @RequestLine("POST /query")
     @Headers("Content-Type: application/json")
@@ -59,6 +76,10 @@ public class HttpClientQuerier {
     @Headers("Content-Type: application/json")
     PivotTableQueryResultDto run(PivotTableQueryDto query);
 
+    @RequestLine("POST /query-pivot-sparse")
+    @Headers("Content-Type: application/json")
+    PivotTableQuerySparseResultDto runSparse(PivotTableQueryDto query);
+
     @RequestLine("POST /query-merge")
     @Headers("Content-Type: application/json")
     QueryResultDto queryMerge(QueryMergeDto query);
@@ -69,5 +90,9 @@ public class HttpClientQuerier {
     @RequestLine("POST /expression")
     @Headers("Content-Type: application/json")
     List<Measure> expression(List<Measure> measures);
+
+    @RequestLine("POST /cache-invalidate")
+    @Headers("Content-Type: application/json")
+    void invalidateCache(List<String> tables);
   }
 }
@@ -71,11 +71,12 @@ export {
 } from './period'
 
 export {
-  Action, Parameter, QueryCacheParameter,
+  Action, Priority, Parameter, QueryCacheParameter, QueryTimeoutParameter, QueryPriorityParameter, QuerySamplingParameter,
 } from './parameter'
 
 export {
-  Querier, QueryResult, PivotTableQueryResult, MetadataResult, StoreMetadata, MetadataItem, SimpleTable
+  Querier, QueryResult, Approximation, QueryCursorResult, PivotTableQueryResult, MetadataResult, StoreMetadata, MetadataItem, SimpleTable,
+  SparseCells, PivotTableQuerySparseResult, decodeSparseCells, toPivotTableQueryResult, parseServerSentEvents,
 } from './querier'
 
 export {
@@ -9,6 +9,10 @@ export enum Action {
   USE = "USE", NOT_USE = "NOT_USE", INVALIDATE = "INVALIDATE"
 }
 
+export enum Priority {
+  LOW = "LOW", NORMAL = "NORMAL", HIGH = "HIGH"
+}
+
 export class QueryCacheParameter implements Parameter {
   readonly class: string = PACKAGE + "parameter.QueryCacheParameter"
   readonly key: string = "cache"
@@ -23,3 +27,58 @@ export class QueryCacheParameter implements Parameter {
     }
   }
 }
+
+/**
+ * Duration in seconds after which the query is cancelled.
+ */
+export class QueryTimeoutParameter implements Parameter {
+  readonly class: string = PACKAGE + "parameter.QueryTimeoutParameter"
+  readonly key: string = "timeout"
+
+  constructor(private seconds: number) {
+  }
+
+  toJSON() {
+    return {
+      "@class": this.class,
+      "seconds": this.seconds,
+    }
+  }
+}
+
+/**
+ * Hint used to order the queries waiting for the database.
+ */
+export class QueryPriorityParameter implements Parameter {
+  readonly class: string = PACKAGE + "parameter.QueryPriorityParameter"
+  readonly key: string = "priority"
+
+  constructor(private priority: Priority) {
+  }
+
+  toJSON() {
+    return {
+      "@class": this.class,
+      "priority": this.priority,
+    }
+  }
+}
+
+/**
+ * Executes the query on a random sample of the given percentage of the rows. Sums and counts are scaled to estimate
+ * the values on all the rows.
+ */
+export class QuerySamplingParameter implements Parameter {
+  readonly class: string = PACKAGE + "parameter.QuerySamplingParameter"
+  readonly key: string = "sampling"
+
+  constructor(private percentage: number) {
+  }
+
+  toJSON() {
+    return {
+      "@class": this.class,
+      "percentage": this.percentage,
+    }
+  }
+}
@@ -62,10 +62,143 @@ export class Querier {
     return promise.then(r => r.data)
   }
 
+  /**
+   * Same as executePivotQuery but only the non-empty cells, with at least one measure value, are transferred in a
+   * compact format (see SparseCells) and decoded here.
+   */
+  async executeSparsePivotQuery(query: Query, pivotConfig: PivotConfig): Promise<PivotTableQueryResult> {
+    return this.axiosInstance.post("/query-pivot-sparse", createPivotTableQuery(query, pivotConfig))
+            .then(r => toPivotTableQueryResult(r.data))
+  }
+
+  /**
+   * Executes the query and calls onPartialResult each time new measures are available before the final result, e.g.
+   * the aggregates of the query before the comparison measures, so that the columns computed so far can be rendered.
+   * Each partial result contains all the columns of the query and a subset of its measures. The returned promise
+   * resolves with the final result.
+   */
+  async executeQueryProgressively(query: Query, onPartialResult: (result: QueryResult) => void): Promise<QueryResult> {
+    // axios does not expose the response as a stream in browsers, fetch is used with the configuration of the instance
+    const defaults = this.axiosInstance.defaults
+    const response = await fetch(`${defaults.baseURL ?? this.url}/query-progressive`, {
+      method: "POST",
+      headers: {...this.defaultHeaders(), "Content-Type": "application/json", "Accept": "text/event-stream"},
+      body: JSON.stringify(query),
+      credentials: defaults.withCredentials ? "include" : "same-origin",
+      signal: defaults.timeout ? AbortSignal.timeout(defaults.timeout) : undefined,
+    })
+    if (!response.ok || !response.body) {
+      throw new Error(`Request failed with status code ${response.status}: ${await response.text()}`)
+    }
+
+    const reader = response.body.getReader()
+    const decoder = new TextDecoder()
+    let buffer = ""
+    for (; ;) {
+      const {done, value} = await reader.read()
+      buffer += decoder.decode(value, {stream: !done})
+      const parsed = parseServerSentEvents(buffer)
+      buffer = parsed.rest
+      for (const event of parsed.events) {
+        switch (event.name) {
+          case "partial":
+            onPartialResult(JSON.parse(event.data))
+            break
+          case "result":
+            return JSON.parse(event.data)
+          case "error":
+            throw new Error(event.data)
+        }
+      }
+      if (done) {
+        throw new Error("The stream ended before the result of the query")
+      }
+    }
+  }
+
+  /**
+   * Returns the headers the axios instance sends with every POST request: the ones given to the constructor and the
+   * common and POST ones.
+   */
+  private defaultHeaders(): Record<string, string> {
+    const methods = ["common", "delete", "get", "head", "options", "post", "put", "patch", "purge", "link", "unlink"]
+    const defaults = this.axiosInstance.defaults.headers as Record<string, any>
+    const headers: Record<string, string> = {}
+    for (const source of [defaults.common, defaults.post, defaults]) {
+      for (const [name, value] of Object.entries(source ?? {})) {
+        if (!methods.includes(name) && value != null && typeof value !== "object") {
+          headers[name] = String(value)
+        }
+      }
+    }
+    return headers
+  }
+
+  /**
+   * Executes the query and returns its first limit rows. The result is kept on the server under the returned cursorId
+   * so that the next rows can be fetched with fetchCursor without executing the query again, e.g. by an infinite-scroll
+   * grid. The result is released when it has not been read for some time, or with closeCursor.
+   */
+  async executeQueryWithCursor(query: Query, limit = 100): Promise<QueryCursorResult> {
+    return this.axiosInstance.post("/query-cursor", query, {params: {limit}})
+            .then(r => r.data)
+  }
+
+  async fetchCursor(cursorId: string, offset: number, limit = 100): Promise<QueryCursorResult> {
+    return this.axiosInstance.get(`/query-cursor/${encodeURIComponent(cursorId)}`, {params: {offset, limit}})
+            .then(r => r.data)
+  }
+
+  async closeCursor(cursorId: string): Promise<void> {
+    return this.axiosInstance.delete(`/query-cursor/${encodeURIComponent(cursorId)}`)
+            .then(() => undefined)
+  }
+
+  /**
+   * Executes the query and returns all the rows of its result in the CSV format. The limit of the query is not applied.
+   */
+  async exportQuery(query: Query, format = "csv"): Promise<string> {
+    return this.axiosInstance.post("/query-export", query, {params: {format}, responseType: "text"})
+            .then(r => r.data)
+  }
+
   async executeQueryJoin(query: QueryJoin): Promise<QueryResult> {
     return this.axiosInstance.post("/experimental/query-join", query)
             .then(r => r.data)
   }
+
+  /**
+   * Invalidates the cached results that read the given tables, typically after loading data into them.
+   */
+  async invalidateCache(tables: Array<string>): Promise<void> {
+    return this.axiosInstance.post("/cache-invalidate", tables)
+            .then(() => undefined)
+  }
+}
+
+/**
+ * Extracts the complete server-sent events from the received text, and returns the text of the incomplete event to
+ * prepend to the next received text.
+ */
+export function parseServerSentEvents(text: string): { events: Array<{ name: string, data: string }>, rest: string } {
+  const events: Array<{ name: string, data: string }> = []
+  const blocks = text.replace(/\r\n/g, "\n").split("\n\n")
+  const rest = blocks.pop() ?? ""
+  for (const block of blocks) {
+    let name = "message"
+    const data: Array<string> = []
+    for (const line of block.split("\n")) {
+      if (line.startsWith("event:")) {
+        name = line.substring("event:".length).trim()
+      } else if (line.startsWith("data:")) {
+        data.push(line.substring("data:".length))
+      }
+    }
+    if (data.length > 0) {
+      events.push({name, data: data.join("\n")})
+    }
+  }
+  return {events, rest}
 }
 
 export function createPivotTableQuery(query: Query, pivotConfig: PivotConfig): PivotTableQuery {
@@ -76,11 +209,73 @@ export function createPivotTableQueryMerge(query: QueryMerge, pivotConfig: Pivot
   return {query, rows: pivotConfig.rows, columns: pivotConfig.columns}
 }
 
+/**
+ * Decodes the cells returned by the sparse endpoint into the cells as returned by executePivotQuery. The cells without
+ * any measure value are not returned by the sparse endpoint.
+ */
+export function decodeSparseCells(sparseCells: SparseCells): Array<Record<string, any>> {
+  const cells: Array<Record<string, any>> = []
+  for (let i = 0; i < sparseCells.count; i++) {
+    cells.push({})
+  }
+
+  for (const column of Object.keys(sparseCells.coordinates)) {
+    const dictionary = sparseCells.dictionaries[column]
+    sparseCells.coordinates[column].forEach((code, i) => {
+      if (code >= 0) {
+        cells[i][column] = dictionary[code]
+      }
+    })
+  }
+
+  for (const measure of Object.keys(sparseCells.measureValues)) {
+    const absent = new Set(sparseCells.absentMeasureCells[measure] ?? [])
+    sparseCells.measureValues[measure].forEach((value, i) => {
+      if (!absent.has(i)) {
+        cells[i][measure] = value
+      }
+    })
+  }
+  return cells
+}
+
+export function toPivotTableQueryResult(result: PivotTableQuerySparseResult): PivotTableQueryResult {
+  return {
+    cells: decodeSparseCells(result.cells),
+    rows: result.rows,
+    columns: result.columns,
+    hiddenTotals: result.hiddenTotals,
+    values: result.values,
+    approximation: result.approximation,
+  }
+}
+
 export interface QueryResult {
   columns: Array<string>
   cells: Array<Record<string, any>>,
   metadata: Array<MetadataItem>
   debug: any
+  approximation?: Approximation
+}
+
+/**
+ * Set when the query has been executed on a sample of the rows.
+ */
+export interface Approximation {
+  samplingPercentage: number
+  confidenceLevel: number
+  relativeError: number
+  /**
+   * The aliases of the measures whose values are estimates.
+   */
+  estimatedMeasures: Array<string>
+}
+
+export interface QueryCursorResult {
+  cursorId: string
+  count: number
+  offset: number
+  result: QueryResult
 }
 
 export interface PivotTableQueryResult {
@@ -89,6 +284,24 @@ export interface PivotTableQueryResult {
   columns: Array<string>
   hiddenTotals: Array<string>
   values: Array<string>
+  approximation?: Approximation
+}
+
+export interface SparseCells {
+  count: number
+  dictionaries: Record<string, Array<any>>
+  coordinates: Record<string, Array<number>>
+  measureValues: Record<string, Array<any>>
+  absentMeasureCells: Record<string, Array<number>>
+}
+
+export interface PivotTableQuerySparseResult {
+  cells: SparseCells,
+  rows: Array<string>
+  columns: Array<string>
+  hiddenTotals: Array<string>
+  values: Array<string>
+  approximation?: Approximation
 }
 
 export interface MetadataResult {
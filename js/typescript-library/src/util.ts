@@ -1,7 +1,7 @@
 import {AliasedField, BinaryOperationField, ConstantField, Field, FunctionField, TableField} from "./field"
 import PACKAGE from "./package"
 import {ColumnSet, GroupColumnSet} from "./columnset"
-import {Parameter, QueryCacheParameter} from "./parameter"
+import {Parameter, QueryCacheParameter, QueryPriorityParameter, QuerySamplingParameter, QueryTimeoutParameter} from "./parameter"
 import {
   AggregatedMeasure,
   BinaryOperationMeasure,
@@ -44,6 +44,12 @@ function transformToObject(key: string, value: any, reviverFallback?: (key: stri
     return new GroupColumnSet(value["newField"], value["field"], m)
   } else if (clazz === PACKAGE + "parameter.QueryCacheParameter") {
     return new QueryCacheParameter(value["action"])
+  } else if (clazz === PACKAGE + "parameter.QueryTimeoutParameter") {
+    return new QueryTimeoutParameter(value["seconds"])
+  } else if (clazz === PACKAGE + "parameter.QueryPriorityParameter") {
+    return new QueryPriorityParameter(value["priority"])
+  } else if (clazz === PACKAGE + "parameter.QuerySamplingParameter") {
+    return new QuerySamplingParameter(value["percentage"])
   } else if (clazz === PACKAGE + "AggregatedMeasure") {
     return new AggregatedMeasure(value["alias"], transformToObject("field", value["field"]), value["aggregationFunction"], value["distinct"], value["criteria"])
   } else if (clazz === PACKAGE + "ComparisonMeasureReferencePosition") {
@@ -1,6 +1,7 @@
 package io.squashql;
 
 import com.google.common.base.Suppliers;
+import io.squashql.jdbc.ConnectionPool;
 import io.squashql.jdbc.JdbcDatastore;
 import io.squashql.jdbc.JdbcUtil;
 import io.squashql.store.Store;
@@ -14,13 +15,11 @@ import java.util.function.Supplier;
 
 public class PostgreSQLDatastore implements JdbcDatastore {
 
-  private final String jdbcUrl;
-  private final Properties connectionProperties;
+  private final ConnectionPool pool;
   public final Supplier<Map<String, Store>> stores;
 
   public PostgreSQLDatastore(String jdbcUrl, Properties properties) {
-    this.jdbcUrl = jdbcUrl;
-    this.connectionProperties = properties;
+    this.pool = new ConnectionPool(() -> DriverManager.getConnection(jdbcUrl, properties));
     String schema = properties.getProperty("currentSchema", "public");
     this.stores = Suppliers.memoize(() -> JdbcUtil.getStores(properties.getProperty("database"), schema, getConnection(), PostgreSQLUtil::getJavaClass));
   }
@@ -28,7 +27,7 @@ public class PostgreSQLDatastore implements JdbcDatastore {
   @Override
   public Connection getConnection() {
     try {
-      return DriverManager.getConnection(this.jdbcUrl, this.connectionProperties);
+      return this.pool.getConnection();
     } catch (SQLException e) {
       throw new RuntimeException(e);
     }
@@ -73,6 +73,12 @@ public class PostgreSQLQueryEngine extends JdbcQueryEngine<PostgreSQLDatastore>
     };
   }
 
+  @Override
+  protected boolean streamWithinTransaction() {
+    // The driver reads the whole result at once in autocommit mode, whatever the fetch size.
+    return true;
+  }
+
   @Override
   public List<String> supportedAggregationFunctions() {
     return SUPPORTED_AGGREGATION_FUNCTIONS;
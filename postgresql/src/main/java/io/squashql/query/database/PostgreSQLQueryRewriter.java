@@ -66,4 +66,9 @@ class PostgreSQLQueryRewriter implements QueryRewriter {
   public String arrayContains(TypedField field, Object value) {
     return String.format("%s=ANY(%s)", value, field.sqlExpression(this));
   }
+
+  @Override
+  public String tableSample(double percentage, int seed) {
+    return "tablesample bernoulli (" + percentage + ") repeatable (" + seed + ")";
+  }
 }
@@ -0,0 +1,28 @@
+package io.squashql.spring.web.rest;
+
+import io.squashql.util.BoundedExecutor;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+@Configuration
+public class ExecutorConfiguration {
+
+  /**
+   * Handles the requests with virtual threads when {@link BoundedExecutor#VIRTUAL_THREADS} is set and the runtime
+   * supports them. Otherwise, Tomcat keeps its own thread pool.
+   */
+  @Bean
+  public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+    return protocolHandler -> {
+      if (BoundedExecutor.VIRTUAL_THREADS) {
+        ExecutorService executor = BoundedExecutor.newVirtualThreadPerTaskExecutor();
+        if (executor != null) {
+          protocolHandler.setExecutor(executor);
+        }
+      }
+    };
+  }
+}
@@ -1,137 +1,432 @@
 package io.squashql.spring.web.rest;
 
 import io.squashql.query.*;
+import io.squashql.query.cache.CacheWarmer;
+import io.squashql.query.cache.ResultCursors;
+import io.squashql.query.database.CancellationToken;
 import io.squashql.query.database.QueryEngine;
 import io.squashql.query.dto.*;
+import io.squashql.query.parameter.QueryTimeoutParameter;
 import io.squashql.store.Store;
+import io.squashql.table.CsvRowWriter;
 import io.squashql.table.PivotTable;
 import io.squashql.table.PivotTableUtils;
 import io.squashql.table.Table;
 import io.squashql.table.TableUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import static io.squashql.query.QueryExecutor.createCancellationToken;
 import static io.squashql.query.QueryExecutor.createPivotTableContext;
 
-@Import({JacksonConfiguration.class, SquashQLErrorHandler.class})
+@Import({JacksonConfiguration.class, ExecutorConfiguration.class, SquashQLErrorHandler.class})
 @RestController
 public class QueryController {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueryController.class);
+
   public static final String MAPPING_QUERY = "/query";
   public static final String MAPPING_QUERY_STRINGIFY = "/query-stringify";
+  public static final String MAPPING_QUERY_PROGRESSIVE = "/query-progressive";
+  /**
+   * Names of the server-sent events of {@link #MAPPING_QUERY_PROGRESSIVE}.
+   */
+  public static final String EVENT_PARTIAL = "partial";
+  public static final String EVENT_RESULT = "result";
+  public static final String EVENT_ERROR = "error";
+  public static final String MAPPING_QUERY_CURSOR = "/query-cursor";
+  public static final String MAPPING_QUERY_EXPORT = "/query-export";
+  public static final String EXPORT_FORMAT_CSV = "csv";
   public static final String MAPPING_QUERY_MERGE = "/query-merge";
   public static final String MAPPING_QUERY_MERGE_STRINGIFY = "/query-merge-stringify";
   public static final String MAPPING_QUERY_JOIN_EXPERIMENTAL = "/experimental/query-join";
   public static final String MAPPING_QUERY_PIVOT = "/query-pivot";
   public static final String MAPPING_QUERY_PIVOT_STRINGIFY = "/query-pivot-stringify";
+  public static final String MAPPING_QUERY_PIVOT_SPARSE = "/query-pivot-sparse";
   public static final String MAPPING_QUERY_MERGE_PIVOT = "/query-merge-pivot";
   public static final String MAPPING_QUERY_MERGE_PIVOT_STRINGIFY = "/query-merge-pivot-stringify";
   public static final String MAPPING_METADATA = "/metadata";
   public static final String MAPPING_EXPRESSION = "/expression";
+  public static final String MAPPING_CACHE_INVALIDATE = "/cache-invalidate";
+  /**
+   * File in which the executed queries are saved on shutdown and replayed on startup to warm up the cache.
+   */
+  public static final String CACHE_SNAPSHOT_PATH = System.getProperty("io.squashql.cache.snapshot");
+  /**
+   * File listing queries (see {@link CacheSnapshotDto}) to replay on startup to warm up the cache.
+   */
+  public static final String CACHE_WARMUP_PATH = System.getProperty("io.squashql.cache.warmup");
+  /**
+   * Duration after which the exports are cancelled, set with the property {@code io.squashql.export.timeout} (in
+   * seconds, no timeout by default). The default timeout of the queries does not apply as exports read many more rows.
+   */
+  public static final Duration EXPORT_TIMEOUT = Optional.ofNullable(System.getProperty("io.squashql.export.timeout"))
+          .map(timeout -> Duration.ofSeconds(Long.parseLong(timeout)))
+          .orElse(null);
+  /**
+   * Time given to a query reaching its deadline to be cancelled before the request times out, see
+   * {@link #asyncTimeout(CancellationToken)}.
+   */
+  private static final Duration ASYNC_TIMEOUT_GRACE = Duration.ofSeconds(5);
   protected final QueryEngine<?> queryEngine;
   public final QueryExecutor queryExecutor;
+  public final CacheWarmer cacheWarmer;
+  public final ResultCursors resultCursors;
   protected final Supplier<SquashQLUser> squashQLUserSupplier;
 
   public QueryController(QueryEngine<?> queryEngine, Optional<Supplier<SquashQLUser>> squashQLUserSupplier) {
     this.queryEngine = queryEngine;
     this.queryExecutor = new QueryExecutor(this.queryEngine);
+    this.cacheWarmer = new CacheWarmer();
+    this.resultCursors = new ResultCursors();
     this.squashQLUserSupplier = squashQLUserSupplier.orElse(null);
   }
 
+  /**
+   * Replays the saved queries once the application is ready to serve requests so that warming up the cache does not
+   * delay the startup.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUpCache() {
+    // Replayed queries are executed without user so they only warm up the cache when there is no per-user cache.
+    if (this.squashQLUserSupplier == null) {
+      for (String path : new String[]{CACHE_WARMUP_PATH, CACHE_SNAPSHOT_PATH}) {
+        if (path != null) {
+          this.cacheWarmer.replay(this.queryExecutor, CacheWarmer.load(Path.of(path)), CacheWarmer.PARALLELISM);
+        }
+      }
+    }
+  }
+
+  @PreDestroy
+  public void saveCacheSnapshot() {
+    if (CACHE_SNAPSHOT_PATH != null) {
+      this.cacheWarmer.save(Path.of(CACHE_SNAPSHOT_PATH));
+    }
+  }
+
   @PostMapping(MAPPING_QUERY)
-  public ResponseEntity<QueryResultDto> execute(@RequestBody QueryDto query) {
-    CacheStatsDto.CacheStatsDtoBuilder csBuilder = CacheStatsDto.builder();
-    Table table = this.queryExecutor.executeQuery(query,
-            csBuilder,
-            this.squashQLUserSupplier == null ? null : this.squashQLUserSupplier.get(),
-            true,
-            null,
-            createPivotTableContext(query));
-    return ResponseEntity.ok(createQueryResultDto(table, csBuilder, query.minify));
+  public DeferredResult<ResponseEntity<QueryResultDto>> execute(@RequestBody QueryDto query) {
+    QueryExecutionContext context = createContext(List.of(query));
+    return toDeferredResult(context.token, this.queryExecutor.executeQueryAsync(query, context, true, null, createPivotTableContext(query))
+            .thenApply(table -> {
+              this.cacheWarmer.record(query);
+              return ResponseEntity.ok(createQueryResultDto(table, context, query.minify));
+            }));
+  }
+
+  /**
+   * Executes the query and streams its results as server-sent events: a {@link #EVENT_PARTIAL} event each time new
+   * measures are available before the final result (see {@link QueryExecutor#executeQueryProgressivelyAsync}), then a
+   * {@link #EVENT_RESULT} event with the final result, or a {@link #EVENT_ERROR} event with the error message if the
+   * execution fails. The data of the events are {@link QueryResultDto}. As for the other queries, the stream times out
+   * after the deadline of the query, if any, see {@link #asyncTimeout(CancellationToken)}.
+   */
+  @PostMapping(value = MAPPING_QUERY_PROGRESSIVE, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter executeProgressively(@RequestBody QueryDto query) {
+    QueryExecutionContext context = createContext(List.of(query));
+    CancellationToken token = context.token;
+    SseEmitter emitter = new SseEmitter(asyncTimeout(token));
+    emitter.onTimeout(token::cancel);
+    emitter.onError(e -> token.cancel());
+    this.queryExecutor.executeQueryProgressivelyAsync(query,
+                    context,
+                    partial -> send(emitter, token, EVENT_PARTIAL, QueryResultDto.builder()
+                            .columns(partial.headers().stream().map(Header::name).toList())
+                            .cells(TableUtils.generateCells(partial, query.minify))
+                            .metadata(TableUtils.buildTableMetadata(partial))
+                            .build()))
+            .whenComplete((table, e) -> {
+              token.close();
+              if (e == null) {
+                this.cacheWarmer.record(query);
+                send(emitter, token, EVENT_RESULT, createQueryResultDto(table, context, query.minify));
+              } else {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                LOGGER.error("", cause);
+                send(emitter, token, EVENT_ERROR, String.valueOf(cause.getMessage()));
+              }
+              emitter.complete();
+            });
+    return emitter;
+  }
+
+  private static void send(SseEmitter emitter, CancellationToken token, String name, Object data) {
+    try {
+      emitter.send(SseEmitter.event().name(name).data(data, data instanceof String ? MediaType.TEXT_PLAIN : MediaType.APPLICATION_JSON));
+    } catch (IOException | IllegalStateException e) {
+      // The client is gone
+      token.cancel();
+    }
+  }
+
+  /**
+   * Executes the query, keeps its result on the server (see {@link ResultCursors}) and returns its first rows with the
+   * id of the cursor to use to fetch the next ones with {@link #fetchCursor(String, int, int)}.
+   */
+  @PostMapping(MAPPING_QUERY_CURSOR)
+  public DeferredResult<ResponseEntity<QueryCursorResultDto>> executeWithCursor(@RequestBody QueryDto query,
+                                                                                @RequestParam(defaultValue = "100") int limit) {
+    QueryExecutionContext context = createContext(List.of(query));
+    return toDeferredResult(context.token, this.queryExecutor.executeQueryAsync(query, context, true, null, createPivotTableContext(query))
+            .thenApply(table -> {
+              this.cacheWarmer.record(query);
+              ResultCursors.Cursor cursor = this.resultCursors.open(table, context.user);
+              // Not minified so that all the pages have the same columns
+              QueryResultDto page = createQueryResultDto(cursor.page(0, limit), context, false);
+              return ResponseEntity.ok(new QueryCursorResultDto(cursor.id, cursor.count(), 0, page));
+            }));
+  }
+
+  /**
+   * Returns the rows of the result kept under the given cursor, without executing the query again. Returns the status
+   * 404 if the cursor has expired.
+   */
+  @GetMapping(MAPPING_QUERY_CURSOR + "/{cursorId}")
+  public ResponseEntity<QueryCursorResultDto> fetchCursor(@PathVariable String cursorId,
+                                                          @RequestParam(defaultValue = "0") int offset,
+                                                          @RequestParam(defaultValue = "100") int limit) {
+    ResultCursors.Cursor cursor = this.resultCursors.get(cursorId, this.squashQLUserSupplier == null ? null : this.squashQLUserSupplier.get());
+    if (cursor == null) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+    QueryResultDto page = createQueryResultDto(cursor.page(offset, limit), null, false);
+    return ResponseEntity.ok(new QueryCursorResultDto(cursor.id, cursor.count(), offset, page));
+  }
+
+  /**
+   * Releases the result kept under the given cursor.
+   */
+  @DeleteMapping(MAPPING_QUERY_CURSOR + "/{cursorId}")
+  public ResponseEntity<Void> closeCursor(@PathVariable String cursorId) {
+    boolean closed = this.resultCursors.close(cursorId, this.squashQLUserSupplier == null ? null : this.squashQLUserSupplier.get());
+    return closed ? ResponseEntity.ok().build() : ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+  }
+
+  /**
+   * Executes the query and writes all the rows of its result to a temporary file as they are read from the database,
+   * see {@link QueryExecutor#exportQueryAsync}, then sends the file. The connection to the database and the slot of the
+   * query in the scheduler are thus released before the response is sent and are not held by slow clients, and the
+   * errors of the query are returned with an error status as nothing has been sent yet. If the file cannot be sent
+   * entirely, the connection is aborted so that the client does not take a truncated file for a complete one.
+   * <p>
+   * The query is cancelled after {@link #EXPORT_TIMEOUT} unless it sets its own timeout, and the request has no other
+   * timeout: the file is written while the response is dispatched, not in another asynchronous processing that the
+   * default timeout of the container would apply to. Only the {@link #EXPORT_FORMAT_CSV} format is supported.
+   */
+  @PostMapping(MAPPING_QUERY_EXPORT)
+  public DeferredResult<ResponseEntity<Resource>> export(@RequestBody QueryDto query,
+                                                        @RequestParam(defaultValue = EXPORT_FORMAT_CSV) String format) throws IOException {
+    if (!EXPORT_FORMAT_CSV.equals(format)) {
+      DeferredResult<ResponseEntity<Resource>> result = new DeferredResult<>();
+      result.setResult(ResponseEntity.badRequest().build());
+      return result;
+    }
+    QueryTimeoutParameter timeout = (QueryTimeoutParameter) query.parameters.get(QueryTimeoutParameter.KEY);
+    CancellationToken token = new CancellationToken(timeout == null ? EXPORT_TIMEOUT : Duration.ofSeconds(timeout.seconds));
+    QueryExecutionContext context = new QueryExecutionContext(this.squashQLUserSupplier == null ? null : this.squashQLUserSupplier.get(), token);
+    Path file = Files.createTempFile("squashql-export", "." + EXPORT_FORMAT_CSV);
+    Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    CompletableFuture<Void> export;
+    try {
+      export = this.queryExecutor.exportQueryAsync(query, new CsvRowWriter(writer), context);
+    } catch (RuntimeException e) {
+      token.close();
+      writer.close();
+      Files.delete(file);
+      throw e;
+    }
+    CompletableFuture<ResponseEntity<Resource>> response = export
+            .whenComplete((v, e) -> {
+              try {
+                writer.close();
+              } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+              }
+            })
+            .thenApply(v -> {
+              try {
+                long size = Files.size(file);
+                // Deleted once sent, the stream being closed by the converter writing it
+                InputStream in = Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE);
+                return ResponseEntity.ok()
+                        .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                        .contentLength(size)
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"export.csv\"")
+                        .body(new InputStreamResource(in));
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+    response.whenComplete((v, e) -> {
+      if (e != null) {
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException ex) {
+          LOGGER.warn("Cannot delete " + file, ex);
+        }
+      }
+    });
+    return toDeferredResult(token, response);
   }
 
   @PostMapping(MAPPING_QUERY_PIVOT)
-  public ResponseEntity<PivotTableQueryResultDto> execute(@RequestBody PivotTableQueryDto pivotTableQueryDto) {
-    CacheStatsDto.CacheStatsDtoBuilder csBuilder = CacheStatsDto.builder();
-    PivotTable pt = this.queryExecutor.executePivotQuery(pivotTableQueryDto,
-            csBuilder,
-            this.squashQLUserSupplier == null ? null : this.squashQLUserSupplier.get(),
-            true,
-            null);
-    List<Map<String, Object>> cells = PivotTableUtils.generateCells(pt, pivotTableQueryDto.query.minify);
-    return ResponseEntity.ok(new PivotTableQueryResultDto(cells, pt.rows, pt.columns, pt.values, pt.hiddenTotals));
+  public DeferredResult<ResponseEntity<PivotTableQueryResultDto>> execute(@RequestBody PivotTableQueryDto pivotTableQueryDto) {
+    return executePivot(pivotTableQueryDto, (pt, approximation) -> {
+      List<Map<String, Object>> cells = PivotTableUtils.generateCells(pt, pivotTableQueryDto.query.minify);
+      return new PivotTableQueryResultDto(cells, pt.rows, pt.columns, pt.values, pt.hiddenTotals, approximation);
+    });
+  }
+
+  @PostMapping(MAPPING_QUERY_PIVOT_SPARSE)
+  public DeferredResult<ResponseEntity<PivotTableQuerySparseResultDto>> executeSparse(@RequestBody PivotTableQueryDto pivotTableQueryDto) {
+    return executePivot(pivotTableQueryDto, (pt, approximation) -> {
+      SparseCellsDto cells = PivotTableUtils.generateSparseCells(pt, pivotTableQueryDto.query.minify);
+      return new PivotTableQuerySparseResultDto(cells, pt.rows, pt.columns, pt.values, pt.hiddenTotals, approximation);
+    });
+  }
+
+  private <T> DeferredResult<ResponseEntity<T>> executePivot(PivotTableQueryDto pivotTableQueryDto, BiFunction<PivotTable, ApproximationDto, T> resultFactory) {
+    QueryExecutionContext context = createContext(List.of(pivotTableQueryDto.query));
+    return toDeferredResult(context.token, this.queryExecutor.executePivotQueryAsync(pivotTableQueryDto, context, true, null)
+            .thenApply(pt -> {
+              this.cacheWarmer.record(pivotTableQueryDto);
+              return ResponseEntity.ok(resultFactory.apply(pt, context.approximation.build()));
+            }));
   }
 
   @PostMapping(MAPPING_QUERY_MERGE)
-  public ResponseEntity<QueryResultDto> executeAndMerge(@RequestBody QueryMergeDto queryMergeDto) {
-    Table table = this.queryExecutor.executeQueryMerge(
-            queryMergeDto,
-            this.squashQLUserSupplier == null ? null : this.squashQLUserSupplier.get());
-    return ResponseEntity.ok(createQueryResultDto(table, CacheStatsDto.builder(), queryMergeDto.minify));
+  public DeferredResult<ResponseEntity<QueryResultDto>> executeAndMerge(@RequestBody QueryMergeDto queryMergeDto) {
+    QueryExecutionContext context = createContext(queryMergeDto.queries);
+    return toDeferredResult(context.token, this.queryExecutor.executeQueryMergeAsync(queryMergeDto, context)
+            .thenApply(table -> ResponseEntity.ok(createQueryResultDto(table, context, queryMergeDto.minify))));
   }
 
   @PostMapping(MAPPING_QUERY_MERGE_PIVOT)
-  public ResponseEntity<PivotTableQueryResultDto> executeQueryMergePivot(@RequestBody PivotTableQueryMergeDto pivotTableQueryMergeDto) {
-    PivotTable pt = this.queryExecutor.executePivotQueryMerge(
-            pivotTableQueryMergeDto,
-            this.squashQLUserSupplier == null ? null : this.squashQLUserSupplier.get()
-    );
-    List<Map<String, Object>> cells = PivotTableUtils.generateCells(pt, pivotTableQueryMergeDto.query.minify);
-    return ResponseEntity.ok(new PivotTableQueryResultDto(cells, pt.rows, pt.columns, pt.values, pt.hiddenTotals));
+  public DeferredResult<ResponseEntity<PivotTableQueryResultDto>> executeQueryMergePivot(@RequestBody PivotTableQueryMergeDto pivotTableQueryMergeDto) {
+    QueryExecutionContext context = createContext(pivotTableQueryMergeDto.query.queries);
+    return toDeferredResult(context.token, this.queryExecutor.executePivotQueryMergeAsync(pivotTableQueryMergeDto, context)
+            .thenApply(pt -> {
+              List<Map<String, Object>> cells = PivotTableUtils.generateCells(pt, pivotTableQueryMergeDto.query.minify);
+              return ResponseEntity.ok(new PivotTableQueryResultDto(cells, pt.rows, pt.columns, pt.values, pt.hiddenTotals, context.approximation.build()));
+            }));
   }
 
   @PostMapping(MAPPING_QUERY_JOIN_EXPERIMENTAL)
   public ResponseEntity<QueryResultDto> executeQueryJoin(@RequestBody QueryJoinDto queryJoinDto) {
     Table table = this.queryExecutor.executeExperimentalQueryMerge(queryJoinDto);
-    return ResponseEntity.ok(createQueryResultDto(table, CacheStatsDto.builder(), queryJoinDto.minify));
+    return ResponseEntity.ok(createQueryResultDto(table, null, queryJoinDto.minify));
   }
 
-  private static QueryResultDto createQueryResultDto(Table table, CacheStatsDto.CacheStatsDtoBuilder csBuilder, Boolean minify) {
+  /**
+   * Creates the context of the execution of the given queries, on behalf of the current user.
+   */
+  private QueryExecutionContext createContext(List<QueryDto> queries) {
+    return new QueryExecutionContext(this.squashQLUserSupplier == null ? null : this.squashQLUserSupplier.get(), createCancellationToken(queries));
+  }
+
+  /**
+   * @param context the context of the execution of the query to read the statistics from, null if there are none
+   */
+  private static QueryResultDto createQueryResultDto(Table table, QueryExecutionContext context, Boolean minify) {
     List<String> fields = table.headers().stream().map(Header::name).collect(Collectors.toList());
     QueryResultDto result = QueryResultDto.builder()
             .columns(fields)
             .cells(TableUtils.generateCells(table, minify))
             .metadata(TableUtils.buildTableMetadata(table))
-            .debug(DebugInfoDto.builder().cache(csBuilder.build()).build())
+            .debug(DebugInfoDto.builder()
+                    .cache((context == null ? CacheStatsDto.builder() : context.cacheStats).build())
+                    .queue((context == null ? QueueStatsDto.builder() : context.queueStats).build())
+                    .build())
+            .approximation(context == null ? null : context.approximation.build())
             .build();
     return result;
   }
 
   @PostMapping(MAPPING_QUERY_STRINGIFY)
-  public ResponseEntity<String> executeStringify(@RequestBody QueryDto query) {
-    Table table = this.queryExecutor.executeQuery(query);
-    return ResponseEntity.ok(table.toString());
+  public DeferredResult<ResponseEntity<String>> executeStringify(@RequestBody QueryDto query) {
+    QueryExecutionContext context = new QueryExecutionContext(null, createCancellationToken(List.of(query)));
+    return toDeferredResult(context.token, this.queryExecutor.executeQueryAsync(query, context, true, null, createPivotTableContext(query))
+            .thenApply(table -> ResponseEntity.ok(table.toString())));
   }
 
   @PostMapping(MAPPING_QUERY_MERGE_STRINGIFY)
-  public ResponseEntity<String> executeAndMergeStringify(@RequestBody QueryMergeDto queryMergeDto) {
-    Table table = this.queryExecutor.executeQueryMerge(
-            queryMergeDto,
-            this.squashQLUserSupplier == null ? null : this.squashQLUserSupplier.get());
-    return ResponseEntity.ok(table.toString());
+  public DeferredResult<ResponseEntity<String>> executeAndMergeStringify(@RequestBody QueryMergeDto queryMergeDto) {
+    QueryExecutionContext context = createContext(queryMergeDto.queries);
+    return toDeferredResult(context.token, this.queryExecutor.executeQueryMergeAsync(queryMergeDto, context)
+            .thenApply(table -> ResponseEntity.ok(table.toString())));
   }
 
   @PostMapping(MAPPING_QUERY_PIVOT_STRINGIFY)
-  public ResponseEntity<String> executePivotStringify(@RequestBody PivotTableQueryDto query) {
-    PivotTable table = this.queryExecutor.executePivotQuery(query);
-    return ResponseEntity.ok(table.toString());
+  public DeferredResult<ResponseEntity<String>> executePivotStringify(@RequestBody PivotTableQueryDto query) {
+    QueryExecutionContext context = new QueryExecutionContext(null, createCancellationToken(List.of(query.query)));
+    return toDeferredResult(context.token, this.queryExecutor.executePivotQueryAsync(query, context, true, null)
+            .thenApply(table -> ResponseEntity.ok(table.toString())));
   }
 
   @PostMapping(MAPPING_QUERY_MERGE_PIVOT_STRINGIFY)
-  public ResponseEntity<String> executeAndMergePivotStringify(@RequestBody PivotTableQueryMergeDto pivotTableQueryMergeDto) {
-    PivotTable pt = this.queryExecutor.executePivotQueryMerge(
-            pivotTableQueryMergeDto,
-            this.squashQLUserSupplier == null ? null : this.squashQLUserSupplier.get()
-    );
-    return ResponseEntity.ok(pt.toString());
+  public DeferredResult<ResponseEntity<String>> executeAndMergePivotStringify(@RequestBody PivotTableQueryMergeDto pivotTableQueryMergeDto) {
+    QueryExecutionContext context = createContext(pivotTableQueryMergeDto.query.queries);
+    return toDeferredResult(context.token, this.queryExecutor.executePivotQueryMergeAsync(pivotTableQueryMergeDto, context)
+            .thenApply(pt -> ResponseEntity.ok(pt.toString())));
+  }
+
+  /**
+   * Returns the timeout of the asynchronous processing of a request, in milliseconds: a little after the deadline of
+   * its query so that the cancellation of the query is the error returned, or -1 (no timeout) if the query has no
+   * deadline. The default timeout of the container would otherwise cancel the queries running longer than it.
+   */
+  private static long asyncTimeout(CancellationToken token) {
+    Duration timeout = token.timeout();
+    return timeout == null ? -1 : timeout.plus(ASYNC_TIMEOUT_GRACE).toMillis();
+  }
+
+  /**
+   * Adapts the future to a {@link DeferredResult} to cancel the query when the request times out or fails, typically
+   * because the client has gone away.
+   */
+  private static <T> DeferredResult<T> toDeferredResult(CancellationToken token, CompletableFuture<T> future) {
+    DeferredResult<T> result = new DeferredResult<>(asyncTimeout(token));
+    result.onTimeout(token::cancel);
+    result.onError(e -> token.cancel());
+    future.whenComplete((value, e) -> {
+      token.close();
+      if (e == null) {
+        result.setResult(value);
+      } else {
+        result.setErrorResult(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+      }
+    });
+    return result;
   }
 
   @GetMapping(MAPPING_METADATA)
@@ -157,4 +452,14 @@ public class QueryController {
     }
     return ResponseEntity.ok(res);
   }
+
+  /**
+   * Invalidates the cached results that read the given tables, after loading data into them without going through
+   * a {@link io.squashql.transaction.MaterializingDataLoader}, that invalidates them itself.
+   */
+  @PostMapping(MAPPING_CACHE_INVALIDATE)
+  public ResponseEntity<Void> invalidateCache(@RequestBody List<String> tables) {
+    tables.forEach(this.queryExecutor.queryCache::invalidate);
+    return ResponseEntity.ok().build();
+  }
 }
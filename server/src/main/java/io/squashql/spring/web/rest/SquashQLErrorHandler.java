@@ -1,6 +1,7 @@
 package io.squashql.spring.web.rest;
 
 import io.squashql.query.exception.LimitExceedException;
+import io.squashql.query.exception.QueryCancelledException;
 import jakarta.servlet.ServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,4 +28,11 @@ public class SquashQLErrorHandler {
     LOGGER.error("", ex);
     return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("query limit exceeded");
   }
+
+  @ExceptionHandler(value = QueryCancelledException.class)
+  @ResponseBody
+  public ResponseEntity<String> cancelled(ServletRequest req, QueryCancelledException ex) {
+    LOGGER.warn(ex.getMessage());
+    return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(ex.getMessage());
+  }
 }
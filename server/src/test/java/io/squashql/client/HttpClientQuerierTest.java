@@ -16,6 +16,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.context.annotation.Import;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
@@ -66,6 +67,29 @@ public class HttpClientQuerierTest {
     Assertions.assertThat(response.debug.cache).isNotNull();
   }
 
+  @Test
+  void testInvalidateCache() {
+    QueryDto query = new QueryDto()
+            .table("our_prices")
+            .withColumn(tableField("pdv"))
+            .withMeasure(new AggregatedMeasure("qs_invalidate", "quantity", "sum"));
+
+    CacheStatsDto first = this.querier.run(query).debug.cache;
+    CacheStatsDto hit = this.querier.run(query).debug.cache;
+    Assertions.assertThat(hit.hitCount).isGreaterThan(first.hitCount);
+    Assertions.assertThat(hit.missCount).isEqualTo(first.missCount);
+
+    this.querier.invalidateCache(List.of("unknown_table"));
+    CacheStatsDto stillHit = this.querier.run(query).debug.cache;
+    Assertions.assertThat(stillHit.hitCount).isGreaterThan(hit.hitCount);
+    Assertions.assertThat(stillHit.missCount).isEqualTo(hit.missCount);
+
+    this.querier.invalidateCache(List.of("our_prices"));
+    CacheStatsDto miss = this.querier.run(query).debug.cache;
+    Assertions.assertThat(miss.hitCount).isEqualTo(stillHit.hitCount);
+    Assertions.assertThat(miss.missCount).isGreaterThan(stillHit.missCount);
+  }
+
   @Test
   void testMergeQuery() {
     QueryDto query1 = new QueryDto()
@@ -196,6 +220,18 @@ public class HttpClientQuerierTest {
     Assertions.assertThat(response.cells).isEqualTo(cells);
   }
 
+  @Test
+  void testPivotTableSparse() {
+    QueryDto query = Query.from("our_prices")
+            .select(tableFields(List.of("ean", "pdv", SCENARIO_FIELD_NAME)), List.of(CountMeasure.INSTANCE, Functions.sum("ps", "price")))
+            .build();
+    for (Boolean minify : Arrays.asList(null, true, false)) {
+      query.minify = minify;
+      PivotTableQueryDto pivotTableQuery = new PivotTableQueryDto(query, tableFields(List.of("pdv", "ean")), tableFields(List.of(SCENARIO_FIELD_NAME)));
+      Assertions.assertThat(this.querier.runSparse(pivotTableQuery)).isEqualTo(this.querier.run(pivotTableQuery));
+    }
+  }
+
   @Test
   void testRunQueryWithTotalCount() {
     // Note. The CJ will make null appear in rows. We want to make sure null values are correctly handled.
@@ -6,6 +6,7 @@ import io.squashql.query.builder.Query;
 import io.squashql.query.database.DuckDBQueryEngine;
 import io.squashql.query.dto.*;
 import io.squashql.query.exception.LimitExceedException;
+import io.squashql.query.parameter.QueryTimeoutParameter;
 import io.squashql.spring.dataset.DatasetTestConfig;
 import io.squashql.util.TestUtil;
 import org.assertj.core.api.Assertions;
@@ -16,8 +17,12 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
@@ -29,6 +34,8 @@ import static io.squashql.query.TableField.tableField;
 import static io.squashql.query.TableField.tableFields;
 import static io.squashql.transaction.DataLoader.MAIN_SCENARIO_NAME;
 import static io.squashql.transaction.DataLoader.SCENARIO_FIELD_NAME;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest(properties = "spring.main.allow-bean-definition-overriding=true")
@@ -56,7 +63,7 @@ public class QueryControllerTest {
                     new ExpressionMeasure("indice_prix", "sum(capdv) / sum(competitor_price * quantity)")))
             .build();
 
-    this.mvc.perform(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY)
+    performAsync(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY)
                     .content(JacksonUtil.serialize(query))
                     .contentType(MediaType.APPLICATION_JSON))
             .andExpect(status().isOk())
@@ -98,6 +105,134 @@ public class QueryControllerTest {
             });
   }
 
+  @Test
+  void testQueryProgressive() throws Exception {
+    Measure capdv = Functions.sum("capdv", "capdv");
+    List<Field> fields = tableFields(List.of(SCENARIO_FIELD_NAME, "ean"));
+    var query = Query
+            .from("our_prices")
+            .select(fields, List.of(capdv, new ComparisonMeasureReferencePosition("percentOfParent", ComparisonMethod.DIVIDE, capdv, fields)))
+            .build();
+
+    MvcResult mvcResult = this.mvc.perform(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY_PROGRESSIVE)
+                    .content(JacksonUtil.serialize(query))
+                    .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    // Not interrupted by the default timeout of the container, the query has no deadline
+    Assertions.assertThat(mvcResult.getRequest().getAsyncContext().getTimeout()).isNegative();
+    mvcResult.getAsyncResult();
+
+    // The partial result depends on the order in which the scopes are received, only the final one is checked
+    Map<String, String> dataByEvent = new HashMap<>();
+    String event = null;
+    for (String line : mvcResult.getResponse().getContentAsString().split("\n")) {
+      if (line.startsWith("event:")) {
+        event = line.substring("event:".length());
+      } else if (line.startsWith("data:")) {
+        dataByEvent.put(event, line.substring("data:".length()));
+      }
+    }
+    Assertions.assertThat(dataByEvent).containsKey(QueryController.EVENT_RESULT).doesNotContainKey(QueryController.EVENT_ERROR);
+    QueryResultDto queryResult = JacksonUtil.deserialize(dataByEvent.get(QueryController.EVENT_RESULT), QueryResultDto.class);
+    Assertions.assertThat(queryResult.columns).containsExactly(SCENARIO_FIELD_NAME, "ean", "capdv", "percentOfParent");
+    Assertions.assertThat(queryResult.cells).hasSize(10);
+    if (dataByEvent.containsKey(QueryController.EVENT_PARTIAL)) {
+      QueryResultDto partial = JacksonUtil.deserialize(dataByEvent.get(QueryController.EVENT_PARTIAL), QueryResultDto.class);
+      Assertions.assertThat(partial.columns).containsExactly(SCENARIO_FIELD_NAME, "ean", "capdv");
+    }
+  }
+
+  @Test
+  void testQueryCursor() throws Exception {
+    var query = Query
+            .from("our_prices")
+            .select(tableFields(List.of(SCENARIO_FIELD_NAME, "ean")), List.of(Functions.sum("capdv", "capdv")))
+            .orderBy(tableField("ean"), OrderKeywordDto.ASC)
+            .build();
+    MvcResult mvcResult = performAsync(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY_CURSOR)
+            .param("limit", "4")
+            .content(JacksonUtil.serialize(query))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andReturn();
+    QueryCursorResultDto first = JacksonUtil.deserialize(mvcResult.getResponse().getContentAsString(), QueryCursorResultDto.class);
+    Assertions.assertThat(first.count).isEqualTo(10);
+    Assertions.assertThat(first.offset).isZero();
+    Assertions.assertThat(first.result.columns).containsExactly(SCENARIO_FIELD_NAME, "ean", "capdv");
+    Assertions.assertThat(first.result.cells).hasSize(4).allSatisfy(cell -> Assertions.assertThat(cell.get("ean")).isEqualTo("ITMella 250g"));
+
+    String cursorUrl = QueryController.MAPPING_QUERY_CURSOR + "/" + first.cursorId;
+    mvcResult = this.mvc.perform(MockMvcRequestBuilders.get(cursorUrl).param("offset", "8").param("limit", "4"))
+            .andExpect(status().isOk())
+            .andReturn();
+    QueryCursorResultDto last = JacksonUtil.deserialize(mvcResult.getResponse().getContentAsString(), QueryCursorResultDto.class);
+    Assertions.assertThat(last.cursorId).isEqualTo(first.cursorId);
+    Assertions.assertThat(last.offset).isEqualTo(8);
+    Assertions.assertThat(last.result.cells).hasSize(2).allSatisfy(cell -> Assertions.assertThat(cell.get("ean")).isEqualTo("Nutella 250g"));
+
+    this.mvc.perform(MockMvcRequestBuilders.delete(cursorUrl)).andExpect(status().isOk());
+    this.mvc.perform(MockMvcRequestBuilders.get(cursorUrl)).andExpect(status().isNotFound());
+  }
+
+  @Test
+  void testQueryExport() throws Exception {
+    var query = Query
+            .from("our_prices")
+            .select(tableFields(List.of(SCENARIO_FIELD_NAME, "ean")), List.of(Functions.sum("capdv", "capdv")))
+            .orderBy(tableField("ean"), OrderKeywordDto.DESC)
+            .limit(3)
+            .build();
+    MvcResult mvcResult = this.mvc.perform(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY_EXPORT)
+                    .content(JacksonUtil.serialize(query))
+                    .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    // No timeout by default, see QueryController.EXPORT_TIMEOUT
+    Assertions.assertThat(mvcResult.getRequest().getAsyncContext().getTimeout()).isNegative();
+    String csv = this.mvc.perform(asyncDispatch(mvcResult))
+            .andExpect(status().isOk())
+            .andExpect(request().asyncNotStarted())
+            .andReturn().getResponse().getContentAsString();
+    String[] lines = csv.split("\r\n");
+    // The limit is not applied
+    Assertions.assertThat(lines).hasSize(11);
+    Assertions.assertThat(lines[0]).isEqualTo(SCENARIO_FIELD_NAME + ",ean,capdv");
+    Assertions.assertThat(lines[1]).isEqualTo("MDD up,Nutella 250g,20000.0");
+
+    performAsync(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY_EXPORT)
+            .param("format", "parquet")
+            .content(JacksonUtil.serialize(query))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void testAsyncTimeout() throws Exception {
+    // The default timeout of the container (30 seconds for Tomcat) does not apply: the request lasts as long as its
+    // query, until the deadline of the query if any.
+    QueryDto query = Query
+            .from("our_prices")
+            .select(tableFields(List.of("ean")), List.of(Functions.sum("capdv", "capdv")))
+            .build();
+    MvcResult mvcResult = this.mvc.perform(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY)
+                    .content(JacksonUtil.serialize(query))
+                    .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    Assertions.assertThat(mvcResult.getRequest().getAsyncContext().getTimeout()).isNegative();
+    this.mvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk());
+
+    query = query.withParameter(QueryTimeoutParameter.KEY, new QueryTimeoutParameter(60));
+    mvcResult = this.mvc.perform(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY)
+                    .content(JacksonUtil.serialize(query))
+                    .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    Assertions.assertThat(mvcResult.getRequest().getAsyncContext().getTimeout()).isEqualTo(65_000);
+    this.mvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk());
+  }
+
   @Test
   void testMetadata() throws Exception {
     this.mvc.perform(MockMvcRequestBuilders.get(QueryController.MAPPING_METADATA))
@@ -169,7 +304,7 @@ public class QueryControllerTest {
             .select_(List.of(groupCS), List.of(aggregatedMeasureDiff, indicePrixDiff))
             .build();
 
-    this.mvc.perform(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY)
+    performAsync(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY)
                     .content(JacksonUtil.serialize(query))
                     .contentType(MediaType.APPLICATION_JSON))
             .andExpect(status().isOk())
@@ -208,7 +343,7 @@ public class QueryControllerTest {
     DatasetTestConfig.squashQLUserSupplier.set(new BasicUser("paul"));
     BiConsumer<Long, Long> checker = (expectedHitCount, expectedMissCount) -> {
       try {
-        this.mvc.perform(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY)
+        performAsync(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY)
                         .content(JacksonUtil.serialize(query))
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -244,7 +379,7 @@ public class QueryControllerTest {
             .select(tableFields(List.of("ean")), List.of(Functions.avg("capdv-avg", "capdv")))
             .build();
 
-    this.mvc.perform(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY_MERGE)
+    performAsync(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY_MERGE)
                     .content(JacksonUtil.serialize(QueryMergeDto.from(query1).join(query2, JoinType.FULL)))
                     .contentType(MediaType.APPLICATION_JSON))
             .andExpect(result -> {
@@ -268,7 +403,7 @@ public class QueryControllerTest {
             .select(tableFields(List.of("ean")), List.of(Functions.avg("capdv-avg", "capdv")))
             .build();
 
-    this.mvc.perform(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY_MERGE_PIVOT)
+    performAsync(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY_MERGE_PIVOT)
                     .content(JacksonUtil.serialize(new PivotTableQueryMergeDto(QueryMergeDto.from(query1).join(query2, JoinType.FULL), tableFields(List.of("ean")), List.of())))
                     .contentType(MediaType.APPLICATION_JSON))
             .andExpect(result -> {
@@ -295,7 +430,7 @@ public class QueryControllerTest {
             .limit(1)
             .build();
 
-    this.mvc.perform(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY_MERGE)
+    performAsync(MockMvcRequestBuilders.post(QueryController.MAPPING_QUERY_MERGE)
                     .content(JacksonUtil.serialize(QueryMergeDto.from(query1).join(query2, JoinType.FULL)))
                     .contentType(MediaType.APPLICATION_JSON))
             .andExpect(status().isInternalServerError())
@@ -331,4 +466,15 @@ public class QueryControllerTest {
               Assertions.assertThat(queryResult.columns).containsExactly("our_prices.ean", "price_sum", "competitor_sum");
             });
   }
+
+  /**
+   * Performs a request on an endpoint returning a {@link java.util.concurrent.CompletableFuture}, and dispatches the
+   * response once the future has completed.
+   */
+  private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+    MvcResult mvcResult = this.mvc.perform(requestBuilder)
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    return this.mvc.perform(asyncDispatch(mvcResult));
+  }
 }
@@ -1,6 +1,7 @@
 package io.squashql;
 
 import com.google.common.base.Suppliers;
+import io.squashql.jdbc.ConnectionPool;
 import io.squashql.jdbc.JdbcDatastore;
 import io.squashql.jdbc.JdbcUtil;
 import io.squashql.store.Store;
@@ -14,8 +15,7 @@ import java.util.function.Supplier;
 
 public class SnowflakeDatastore implements JdbcDatastore {
 
-  private final String jdbcUrl;
-  private final Properties connectionProperties;
+  private final ConnectionPool pool;
   public final Supplier<Map<String, Store>> stores;
 
   /**
@@ -29,20 +29,19 @@ public class SnowflakeDatastore implements JdbcDatastore {
                             String database,
                             String schema,
                             Properties info) {
-    this.jdbcUrl = jdbcUrl;
     // Build connection properties
     Properties properties = new Properties();
     properties.putAll(info);
     properties.put("db", database);
     properties.put("schema", schema);
-    this.connectionProperties = properties;
+    this.pool = new ConnectionPool(() -> DriverManager.getConnection(jdbcUrl, properties));
     this.stores = Suppliers.memoize(() -> JdbcUtil.getStores(database, schema, getConnection(), (dataType, __) -> JdbcUtil.sqlTypeToClass(dataType)));
   }
 
   @Override
   public Connection getConnection() {
     try {
-      return DriverManager.getConnection(this.jdbcUrl, this.connectionProperties);
+      return this.pool.getConnection();
     } catch (SQLException e) {
       throw new RuntimeException(e);
     }
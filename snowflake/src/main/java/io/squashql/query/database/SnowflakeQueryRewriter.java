@@ -44,4 +44,9 @@ class SnowflakeQueryRewriter implements QueryRewriter {
       default -> QueryRewriter.super.binaryOperation(operator, leftOperand, rightOperand);
     };
   }
+
+  @Override
+  public String tableSample(double percentage, int seed) {
+    return "tablesample bernoulli (" + percentage + ") seed (" + seed + ")";
+  }
 }
@@ -23,7 +23,8 @@ public class SnowflakeDataLoader implements DataLoader {
   }
 
   public void dropTable(String table) {
-    try (Statement statement = this.snowflakeDatastore.getConnection().createStatement()) {
+    try (Connection conn = this.snowflakeDatastore.getConnection();
+         Statement statement = conn.createStatement()) {
       statement.execute("drop table \"" + table + "\";");
     } catch (SQLException e) {
       throw new RuntimeException(e);
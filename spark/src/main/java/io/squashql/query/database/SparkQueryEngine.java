@@ -6,6 +6,7 @@ import io.squashql.query.Header;
 import io.squashql.table.ColumnarTable;
 import io.squashql.table.RowTable;
 import io.squashql.table.Table;
+import org.apache.spark.SparkContext;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.eclipse.collections.api.tuple.Pair;
@@ -13,6 +14,7 @@ import org.eclipse.collections.api.tuple.Pair;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.UUID;
 
 import static io.squashql.SparkUtil.datatypeToClass;
 
@@ -43,18 +45,36 @@ public class SparkQueryEngine extends AQueryEngine<SparkDatastore> {
 
   @Override
   protected Table retrieveAggregates(DatabaseQuery query, String sql) {
-    Dataset<Row> ds = this.datastore.spark.sql(sql);
-    Pair<List<Header>, List<List<Object>>> result = transformToColumnFormat(
-            query.scope().columns(),
-            query.measures(),
-            Arrays.stream(ds.schema().fields()).toList(),
-            (column, name) -> datatypeToClass(column.dataType()),
-            ds.toLocalIterator(),
-            (i, r) -> SparkUtil.getTypeValue(r.schema().fields()[i].dataType(), r.get(i)));
-    return new ColumnarTable(
-            result.getOne(),
-            new HashSet<>(query.measures()),
-            result.getTwo());
+    return retrieveAggregates(query, sql, new CancellationToken(null));
+  }
+
+  /**
+   * The Spark jobs of the query are started in a dedicated job group that is cancelled when the token is cancelled.
+   */
+  @Override
+  protected Table retrieveAggregates(DatabaseQuery query, String sql, CancellationToken token) {
+    SparkContext sparkContext = this.datastore.spark.sparkContext();
+    String jobGroup = "squashql-" + UUID.randomUUID();
+    sparkContext.setJobGroup(jobGroup, sql, true); // set for the current thread only
+    try (CancellationToken.Registration registration = token.onCancel(() -> sparkContext.cancelJobGroup(jobGroup))) {
+      Dataset<Row> ds = this.datastore.spark.sql(sql);
+      Pair<List<Header>, List<List<Object>>> result = transformToColumnFormat(
+              query.scope().columns(),
+              query.measures(),
+              Arrays.stream(ds.schema().fields()).toList(),
+              (column, name) -> datatypeToClass(column.dataType()),
+              ds.toLocalIterator(),
+              (i, r) -> SparkUtil.getTypeValue(r.schema().fields()[i].dataType(), r.get(i)));
+      return new ColumnarTable(
+              result.getOne(),
+              new HashSet<>(query.measures()),
+              result.getTwo());
+    } catch (RuntimeException e) {
+      token.throwIfCancelled(); // the error is likely due to the cancellation
+      throw e;
+    } finally {
+      sparkContext.clearJobGroup();
+    }
   }
 
   @Override
@@ -27,4 +27,9 @@ public class SparkQueryRewriter extends DefaultQueryRewriter {
     // For that reason, we do not use aliases in group by. See https://github.com/squashql/squashql/issues/186
     return _select(f, false);
   }
+
+  @Override
+  public String tableSample(double percentage, int seed) {
+    return "tablesample (" + percentage + " percent) repeatable (" + seed + ")";
+  }
 }